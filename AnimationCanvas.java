@@ -0,0 +1,308 @@
+////////////////////////////////////////////////////////
+// AnimationCanvas.java - draws moving faces with active rendering
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.locks.LockSupport;
+
+////////////////////////////////////////////////////////
+// class AnimationCanvas - a Canvas that animates a list of faces on a
+// thread of its own
+//
+// Swing paints a window only when asked, whenever it gets around to it,
+// which is too irregular for smooth animation.  An AnimationCanvas instead
+// draws each frame itself ("active rendering"): its thread repeatedly
+// updates the animation, draws the faces into the back buffer of a
+// BufferStrategy and shows it.
+//
+// The animation is updated in fixed steps of time (e.g., 1/60 of a second),
+// however long a frame takes: a slow frame is followed by several steps, a
+// fast one by none.  So the faces move at the same speed at any frame rate.
+// The frame rate can be limited to a target; the canvas measures how long
+// each frame takes to update and draw, and how many frames it shows per
+// second.
+//
+// The faces are drawn with their drawOn methods, so every kind of face
+// works.  The canvas draws them in the order of the list, on its
+// background color.
+//
+// An AnimationCanvas object provides the following public methods:
+//   - AnimationCanvas - the constructor
+//   - start - starts animating
+//   - stop - stops animating
+//   - isRunning - tells whether it is animating
+//   - setTargetFps/getTargetFps - the frame rate to aim for
+//   - setShowStatistics - whether to show the frame rate on the canvas
+//   - getFrameCount - tells how many frames have been shown
+//   - getAverageFrameTime - tells how long frames take, in milliseconds
+//   - getFramesPerSecond - tells how many frames are shown per second
+//
+////////////////////////////////////////////////////////
+public class AnimationCanvas extends Canvas implements Runnable {
+
+    // Canvas is Serializable; an AnimationCanvas is never serialized
+    private static final long serialVersionUID = 1L;
+
+    ////////////////////////////////////////////////////////
+    // interface Animation - something that changes the faces over time
+    ////////////////////////////////////////////////////////
+    public interface Animation {
+        // advances the animation by the given number of seconds; called on
+        // the canvas's thread, between frames
+        void update(double seconds);
+    }
+
+    // the most fixed steps to take before drawing a frame; if drawing
+    // falls further behind than this, the animation slows down instead
+    private static final int MAX_STEPS_PER_FRAME = 5;
+
+    // how much each new frame counts towards the averages
+    private static final double SMOOTHING = 0.05;
+
+    ///////////////////////////////
+    // instance variables
+    ///////////////////////////////
+
+    // the faces, and what moves them
+    private java.util.List<Face> faces;
+    private Animation animation;
+
+    // the length of a fixed step, in nanoseconds
+    private long stepNanos;
+
+    // the frame rate to aim for; 0 means as fast as possible
+    private volatile int targetFps = 60;
+
+    // whether to draw the statistics in the corner
+    private volatile boolean showStatistics = true;
+
+    // the animation thread; null when not running
+    private Thread thread = null;
+    private volatile boolean running = false;
+
+    // the statistics: frames shown, and the (smoothed) time to update and
+    // draw a frame and time from one frame to the next, in nanoseconds
+    private volatile long frameCount = 0;
+    private volatile double averageFrameNanos = 0;
+    private volatile double averageIntervalNanos = 0;
+
+    ////////////////////////////////////////////////////////
+    // AnimationCanvas - constructor
+    //
+    // calling sequence:
+    //   aCanvas = new AnimationCanvas(faces, animation, stepsPerSecond);
+    //
+    // parameters:
+    //   faces - the faces to draw, in the order in which to draw them
+    //   animation - what moves the faces, or null if they do not move
+    //   stepsPerSecond - the number of fixed steps per second of animation
+    //
+    // side-effects:
+    //   the canvas is created.  It ignores requests to repaint, since it
+    //   draws itself.
+    //
+    // bugs/anomalies:
+    //   While the canvas is running, the faces (and the list) must be
+    //   changed only by the animation.
+    //
+    ////////////////////////////////////////////////////////
+    public AnimationCanvas(java.util.List<Face> faces, Animation animation,
+                           int stepsPerSecond) {
+        this.faces = faces;
+        this.animation = animation;
+        stepNanos = 1000000000L/Math.max(stepsPerSecond, 1);
+        setIgnoreRepaint(true);
+        setBackground(Color.white);
+    }
+
+    ////////////////////////////////////////////////////////
+    // start - starts the animation thread
+    //
+    // side-effects:
+    //   creates the canvas's buffer strategy and starts its thread
+    //
+    // bugs/anomalies:
+    //   throws IllegalStateException if the canvas is not displayable
+    //   (i.e., not yet in a window that has been made visible or packed)
+    //
+    ////////////////////////////////////////////////////////
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        if (!isDisplayable()) {
+            throw new IllegalStateException("canvas is not displayable");
+        }
+        createBufferStrategy(2);
+        running = true;
+        thread = new Thread(this, "AnimationCanvas");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    ////////////////////////////////////////////////////////
+    // stop - stops the animation thread, waiting for it to finish
+    ////////////////////////////////////////////////////////
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            thread.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    ////////////////////////////////////////////////////////
+    // simple accessors
+    ////////////////////////////////////////////////////////
+    public boolean isRunning() { return running; }
+    public int getTargetFps() { return targetFps; }
+    public void setTargetFps(int fps) { targetFps = Math.max(fps, 0); }
+    public void setShowStatistics(boolean show) { showStatistics = show; }
+    public long getFrameCount() { return frameCount; }
+
+    ////////////////////////////////////////////////////////
+    // getAverageFrameTime - tells how long a frame takes to update and draw
+    //                       (not counting any wait for the next one), in
+    //                       milliseconds
+    ////////////////////////////////////////////////////////
+    public double getAverageFrameTime() {
+        return averageFrameNanos/1e6;
+    }
+
+    ////////////////////////////////////////////////////////
+    // getFramesPerSecond - tells how many frames are being shown per second
+    ////////////////////////////////////////////////////////
+    public double getFramesPerSecond() {
+        double interval = averageIntervalNanos;
+        return interval > 0 ? 1e9/interval : 0;
+    }
+
+    ////////////////////////////////////////////////////////
+    // paint - does nothing; the canvas's thread draws it
+    ////////////////////////////////////////////////////////
+    public void paint(Graphics g) {
+    }
+
+    ////////////////////////////////////////////////////////
+    // update - does nothing (rather than clearing the canvas)
+    ////////////////////////////////////////////////////////
+    public void update(Graphics g) {
+    }
+
+    ////////////////////////////////////////////////////////
+    // run - the animation loop; runs on the canvas's thread
+    ////////////////////////////////////////////////////////
+    public void run() {
+        BufferStrategy strategy = getBufferStrategy();
+        long previous = System.nanoTime();
+        long lag = 0;
+        while (running) {
+            long frameStart = System.nanoTime();
+
+            // take as many fixed steps as the time since the last frame
+            // calls for
+            lag += frameStart - previous;
+            int steps = 0;
+            while (lag >= stepNanos && steps < MAX_STEPS_PER_FRAME) {
+                if (animation != null) {
+                    animation.update(stepNanos/1e9);
+                }
+                lag -= stepNanos;
+                steps++;
+            }
+            if (steps == MAX_STEPS_PER_FRAME) {
+                // too far behind to catch up
+                lag = Math.min(lag, stepNanos);
+            }
+
+            render(strategy);
+
+            long frameEnd = System.nanoTime();
+            recordFrame(frameEnd - frameStart, frameStart - previous);
+            previous = frameStart;
+
+            // wait until it is time for the next frame
+            int fps = targetFps;
+            if (fps > 0) {
+                long next = frameStart + 1000000000L/fps;
+                long wait;
+                while (running && (wait = next - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+            else {
+                Thread.yield();
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // render - draws a frame into the back buffer and shows it
+    ////////////////////////////////////////////////////////
+    private void render(BufferStrategy strategy) {
+        // the buffer's contents may be lost (e.g., if the display mode
+        // changes), in which case the frame is drawn again
+        do {
+            do {
+                Graphics g = strategy.getDrawGraphics();
+                try {
+                    g.setColor(getBackground());
+                    g.fillRect(0, 0, getWidth(), getHeight());
+                    for (int i = 0; i < faces.size(); i++) {
+                        faces.get(i).drawOn(g);
+                    }
+                    if (showStatistics) {
+                        drawStatistics(g);
+                    }
+                }
+                finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+
+        // make sure the frame reaches the screen now, on systems that
+        // buffer graphics commands
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    ////////////////////////////////////////////////////////
+    // drawStatistics - shows the frame rate and frame time in the corner
+    ////////////////////////////////////////////////////////
+    private void drawStatistics(Graphics g) {
+        String text = String.format("%d faces  %.1f fps  %.2f ms/frame",
+                                    faces.size(), getFramesPerSecond(),
+                                    getAverageFrameTime());
+        g.setColor(Color.black);
+        g.drawString(text, 10, getHeight() - 10);
+    }
+
+    ////////////////////////////////////////////////////////
+    // recordFrame - adds a frame's times to the statistics
+    ////////////////////////////////////////////////////////
+    private void recordFrame(long frameNanos, long intervalNanos) {
+        if (frameCount == 0) {
+            averageFrameNanos = frameNanos;
+        }
+        else {
+            averageFrameNanos += SMOOTHING*(frameNanos - averageFrameNanos);
+            if (averageIntervalNanos == 0) {
+                averageIntervalNanos = intervalNanos;
+            }
+            else {
+                averageIntervalNanos +=
+                    SMOOTHING*(intervalNanos - averageIntervalNanos);
+            }
+        }
+        frameCount++;
+    }
+}
@@ -0,0 +1,175 @@
+////////////////////////////////////////////////////////
+// AvatarLoadTest.java - measures how fast an AvatarServer answers
+////////////////////////////////////////////////////////
+
+// imports
+import java.net.URI;
+import java.net.http.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+////////////////////////////////////////////////////////
+// class AvatarLoadTest - sends many requests for faces to an AvatarServer,
+// from several threads at once, and reports the latency (median and 99th
+// percentile) and the number of requests answered per second
+//
+// The requests are for random types of face, at a few sizes, so most are
+// answered from the server's cache once it has warmed up.  The first
+// round of requests warms the server (and this program) up; only the
+// second is measured.
+//
+// To run:
+//   java AvatarLoadTest [requests [concurrency [serverUrl]]]
+//
+// where
+//   requests - the number of requests to measure (default 20000)
+//   concurrency - the number of requests sent at once (default 16)
+//   serverUrl - the server, e.g. http://localhost:8080; if not given, an
+//               AvatarServer is started in this program, on a free port
+//
+////////////////////////////////////////////////////////
+public class AvatarLoadTest {
+
+    // the sizes of face that are requested
+    private static final int[] SIZES = { 32, 64, 128, 256 };
+
+    // //////////////////////////////////////////////////////
+    // main - runs the test
+    // //////////////////////////////////////////////////////
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+
+        AvatarServer local = null;
+        String base;
+        if (args.length > 2) {
+            base = args[2];
+        }
+        else {
+            local = new AvatarServer(0, 64L << 20);
+            local.start();
+            base = "http://" +
+                java.net.InetAddress.getLoopbackAddress().getHostAddress() +
+                ":" + local.getPort();
+        }
+
+        // (the server speaks only HTTP/1.1, so do not offer to upgrade)
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1).build();
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        try {
+            run(client, pool, base, requests, concurrency);
+            long[] latencies = new long[requests];
+            long start = System.nanoTime();
+            int failures = run(client, pool, base, requests, concurrency,
+                               latencies);
+            double seconds = (System.nanoTime() - start)/1e9;
+
+            Arrays.sort(latencies);
+            System.out.printf("%d requests to %s, %d at a time%n", requests,
+                              base, concurrency);
+            System.out.printf("p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                              percentile(latencies, 0.5)/1e6,
+                              percentile(latencies, 0.99)/1e6,
+                              latencies[requests - 1]/1e6);
+            System.out.printf("%.0f requests/s, %d failed%n",
+                              requests/seconds, failures);
+            if (local != null) {
+                System.out.printf("server cache: %d images, %d hits, " +
+                                  "%d misses%n", local.getCache().size(),
+                                  local.getCache().getHits(),
+                                  local.getCache().getMisses());
+            }
+        }
+        finally {
+            pool.shutdown();
+            if (local != null) {
+                local.stop();
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // run - sends requests without recording their latencies (to warm up)
+    ////////////////////////////////////////////////////////
+    private static int run(HttpClient client, ExecutorService pool,
+                           String base, int requests, int concurrency)
+        throws Exception {
+        return run(client, pool, base, requests, concurrency,
+                   new long[requests]);
+    }
+
+    ////////////////////////////////////////////////////////
+    // run - sends requests, 'concurrency' at a time, putting the time each
+    //       one took into 'latencies'; tells how many failed
+    ////////////////////////////////////////////////////////
+    private static int run(HttpClient client, ExecutorService pool,
+                           String base, int requests, int concurrency,
+                           long[] latencies) throws Exception {
+        ArrayList<Future<Integer>> results = new ArrayList<Future<Integer>>();
+        for (int t = 0; t < concurrency; t++) {
+            results.add(pool.submit(new Sender(client, base, latencies, t,
+                                               concurrency)));
+        }
+        int failures = 0;
+        for (int t = 0; t < results.size(); t++) {
+            failures += results.get(t).get();
+        }
+        return failures;
+    }
+
+    ////////////////////////////////////////////////////////
+    // percentile - tells the value below which a fraction of a sorted
+    //              array's values fall
+    ////////////////////////////////////////////////////////
+    private static long percentile(long[] sorted, double fraction) {
+        int i = (int)Math.ceil(fraction*sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(i, sorted.length - 1))];
+    }
+
+    ////////////////////////////////////////////////////////
+    // class Sender - sends every 'step'th request, starting with 'first',
+    // one after another; gives the number that failed
+    ////////////////////////////////////////////////////////
+    private static class Sender implements Callable<Integer> {
+        private HttpClient client;
+        private String base;
+        private long[] latencies;
+        private int first;
+        private int step;
+
+        Sender(HttpClient client, String base, long[] latencies, int first,
+               int step) {
+            this.client = client;
+            this.base = base;
+            this.latencies = latencies;
+            this.first = first;
+            this.step = step;
+        }
+
+        public Integer call() throws Exception {
+            Random rand = new Random(first);
+            FaceType[] types = FaceType.values();
+            int failures = 0;
+            for (int i = first; i < latencies.length; i += step) {
+                int size = SIZES[rand.nextInt(SIZES.length)];
+                String path = "/face/" +
+                    types[rand.nextInt(types.length)].name().toLowerCase() +
+                    "/" + size + "x" + size + ".png";
+                HttpRequest request =
+                    HttpRequest.newBuilder(URI.create(base + path)).build();
+
+                long t0 = System.nanoTime();
+                HttpResponse<byte[]> response = client.send(
+                    request, HttpResponse.BodyHandlers.ofByteArray());
+                latencies[i] = System.nanoTime() - t0;
+                if (response.statusCode() != 200 ||
+                    response.body().length == 0) {
+                    failures++;
+                }
+            }
+            return failures;
+        }
+    }
+}
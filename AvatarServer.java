@@ -0,0 +1,348 @@
+////////////////////////////////////////////////////////
+// AvatarServer.java - serves pictures of faces over HTTP
+////////////////////////////////////////////////////////
+
+// imports
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.*;
+import javax.imageio.ImageIO;
+import com.sun.net.httpserver.*;
+
+////////////////////////////////////////////////////////
+// class AvatarServer - a small web server that draws faces as PNG images
+//
+// A request for
+//   /face/TYPE/WIDTHxHEIGHT.png
+// (e.g., /face/homer/128x128.png) is answered with a PNG image of that
+// type of face (see FaceType.forName) at that size, drawn as
+// HeadlessRenderer.render draws it.  The encoded images are kept in a cache
+// with a memory budget, the least-recently-used being discarded when it is
+// full, so that popular faces are drawn only once.
+//
+// The server is built on the JDK's com.sun.net.httpserver.  Each request is
+// handled on a thread of its own: a virtual thread on Java versions that
+// have them (21 and later), or otherwise a thread from a pool that grows as
+// needed.  No display is needed.
+//
+// Drawing a face that is not in the cache takes memory for the image and
+// its encoding, so only a few faces (one per processor) are drawn at once;
+// a request that would need to draw one more is answered with 503 (Service
+// Unavailable), and may be tried again.
+//
+// To run:
+//   java AvatarServer [port [cacheMegabytes [host]]]
+//
+// (the default port is 8080, and the default cache 64 megabytes).  The
+// server listens only on the loopback address, so that only programs on
+// the same machine can reach it, unless a host name or address to listen
+// on is given (e.g., 0.0.0.0 for every interface).  See AvatarLoadTest for
+// a client that measures it.
+//
+// An AvatarServer object provides the following public methods:
+//   - AvatarServer - the constructor
+//   - start - starts serving requests
+//   - stop - stops serving requests
+//   - getPort - tells the port on which the server listens
+//   - getCache - gives the cache of images
+//
+////////////////////////////////////////////////////////
+public class AvatarServer {
+
+    // the most pixels in either direction of a requested face; a face of
+    // the largest size takes a 4-megabyte image to draw
+    private static final int MAX_SIZE = 1024;
+
+    // how many seconds a client that is told the server is busy should
+    // wait before trying again
+    private static final int RETRY_SECONDS = 1;
+
+    // the path that requests for faces start with
+    private static final String PREFIX = "/face/";
+
+    static {
+        // send small responses at once, rather than letting TCP hold them
+        // back for up to 40 ms waiting for more; the server reads this
+        // only when its first instance is made
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    ///////////////////////////////
+    // instance variables
+    ///////////////////////////////
+
+    // the server, and the threads that handle its requests
+    private HttpServer server;
+    private ExecutorService executor;
+
+    // the encoded images, by type and size (e.g., "HOMER/128x128")
+    private PngCache cache;
+
+    // permits to draw a face; one per processor
+    private Semaphore renders =
+        new Semaphore(Runtime.getRuntime().availableProcessors());
+
+    // //////////////////////////////////////////////////////
+    // main - starts a server
+    // //////////////////////////////////////////////////////
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        long cacheBytes = (args.length > 1 ? Long.parseLong(args[1]) : 64)
+            << 20;
+        String host = args.length > 2 ? args[2] : null;
+        AvatarServer s = new AvatarServer(host, port, cacheBytes);
+        s.start();
+        System.out.println("serving faces at http://" +
+                           s.server.getAddress().getHostString() + ":" +
+                           s.getPort() + PREFIX +
+                           "homer/128x128.png (etc.)");
+    }
+
+    ////////////////////////////////////////////////////////
+    // AvatarServer - constructor
+    //
+    // calling sequence:
+    //   aServer = new AvatarServer(host, port, cacheBytes);
+    //
+    // parameters:
+    //   host - the host name or address to listen on, or null for the
+    //          loopback address (so that only this machine can connect)
+    //   port - the port to listen on; 0 means any free port
+    //   cacheBytes - the most memory that cached images may use
+    //
+    // side-effects:
+    //   the server is created and bound to the port, but does not handle
+    //   requests until started
+    //
+    // bugs/anomalies:
+    //   throws IOException if the host is unknown or the port cannot be
+    //   used
+    //
+    ////////////////////////////////////////////////////////
+    public AvatarServer(String host, int port, long cacheBytes)
+        throws IOException {
+        InetAddress address = host == null ? InetAddress.getLoopbackAddress()
+            : InetAddress.getByName(host);
+        cache = new PngCache(cacheBytes);
+        server = HttpServer.create(new InetSocketAddress(address, port), 0);
+        server.createContext(PREFIX, new FaceHandler());
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+    }
+
+    ////////////////////////////////////////////////////////
+    // AvatarServer - constructor, listening on the loopback address
+    ////////////////////////////////////////////////////////
+    public AvatarServer(int port, long cacheBytes) throws IOException {
+        this(null, port, cacheBytes);
+    }
+
+    ////////////////////////////////////////////////////////
+    // start - starts handling requests, on other threads
+    ////////////////////////////////////////////////////////
+    public void start() {
+        server.start();
+    }
+
+    ////////////////////////////////////////////////////////
+    // stop - stops handling requests, waiting up to a second for those
+    //        under way to finish
+    ////////////////////////////////////////////////////////
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    ////////////////////////////////////////////////////////
+    // simple accessors
+    ////////////////////////////////////////////////////////
+    public int getPort() { return server.getAddress().getPort(); }
+    public LruCache<String, byte[]> getCache() { return cache; }
+
+    ////////////////////////////////////////////////////////
+    // newRequestExecutor - makes an executor that runs each task on a
+    //                      virtual thread, if this Java has them, or else
+    //                      on a pool of ordinary threads
+    ////////////////////////////////////////////////////////
+    private static ExecutorService newRequestExecutor() {
+        try {
+            // found by name, so that this compiles on older versions
+            return (ExecutorService)Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // renderPng - draws a face and encodes it as a PNG image
+    //
+    // calling sequence:
+    //   someBytes = AvatarServer.renderPng(type, w, h);
+    //
+    // parameters:
+    //   type - the type of face
+    //   w - the face's width
+    //   h - the face's height
+    //
+    // return-value:
+    //   the PNG file's bytes
+    //
+    // side-effects:
+    //   creates new objects; otherwise, none
+    //
+    // bugs/anomalies:
+    //   throws IOException if there is no PNG encoder
+    //
+    ////////////////////////////////////////////////////////
+    public static byte[] renderPng(FaceType type, int w, int h)
+        throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!ImageIO.write(HeadlessRenderer.render(type, w, h), "png", out)) {
+            throw new IOException("no PNG writer available");
+        }
+        return out.toByteArray();
+    }
+
+    ////////////////////////////////////////////////////////
+    // class FaceHandler - answers requests for /face/TYPE/WxH.png
+    ////////////////////////////////////////////////////////
+    private class FaceHandler implements HttpHandler {
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                String method = exchange.getRequestMethod();
+                if (!method.equals("GET") && !method.equals("HEAD")) {
+                    exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                    sendError(exchange, 405, "only GET and HEAD are allowed");
+                    return;
+                }
+
+                Request r = parse(exchange);
+                if (r == null) {
+                    return;
+                }
+
+                // find the image, drawing it if it is not in the cache and
+                // too many others are not being drawn already.  (Two
+                // requests for the same new image may both draw it.)
+                byte[] png = cache.get(r.key);
+                String hit = "HIT";
+                if (png == null) {
+                    if (!renders.tryAcquire()) {
+                        exchange.getResponseHeaders().set(
+                            "Retry-After", String.valueOf(RETRY_SECONDS));
+                        sendError(exchange, 503, "busy drawing other faces");
+                        return;
+                    }
+                    try {
+                        png = renderPng(r.type, r.width, r.height);
+                    }
+                    finally {
+                        renders.release();
+                    }
+                    cache.put(r.key, png);
+                    hit = "MISS";
+                }
+
+                Headers headers = exchange.getResponseHeaders();
+                headers.set("Content-Type", "image/png");
+                headers.set("Cache-Control", "public, max-age=86400");
+                headers.set("X-Cache", hit);
+                if (method.equals("HEAD")) {
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                else {
+                    exchange.sendResponseHeaders(200, png.length);
+                    exchange.getResponseBody().write(png);
+                }
+            }
+            finally {
+                exchange.close();
+            }
+        }
+
+        // tells what face a request asks for; if it does not ask for one
+        // properly, sends an error and gives null
+        private Request parse(HttpExchange exchange) throws IOException {
+            // TYPE/WIDTHxHEIGHT.png
+            String path = exchange.getRequestURI().getPath();
+            String[] parts = path.substring(PREFIX.length()).split("/");
+            if (parts.length != 2 || !parts[1].endsWith(".png")) {
+                sendError(exchange, 404, "use " + PREFIX + "TYPE/WxH.png");
+                return null;
+            }
+            FaceType type = FaceType.forName(parts[0]);
+            if (type == null) {
+                sendError(exchange, 404, "unknown face type: " + parts[0]);
+                return null;
+            }
+            String[] wh = parts[1].substring(0, parts[1].length() - 4)
+                .split("x");
+            int w, h;
+            try {
+                w = Integer.parseInt(wh[0]);
+                h = wh.length == 2 ? Integer.parseInt(wh[1]) : -1;
+            }
+            catch (NumberFormatException e) {
+                w = h = -1;
+            }
+            if (w <= 0 || h <= 0 || w > MAX_SIZE || h > MAX_SIZE) {
+                sendError(exchange, 400, "size must be WxH, each from 1 to " +
+                          MAX_SIZE);
+                return null;
+            }
+            return new Request(type, w, h);
+        }
+
+        // sends a plain-text error response
+        private void sendError(HttpExchange exchange, int status,
+                               String message) throws IOException {
+            byte[] body = (message + "\n").getBytes("UTF-8");
+            exchange.getResponseHeaders().set("Content-Type",
+                                              "text/plain; charset=utf-8");
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(status, -1);
+            }
+            else {
+                exchange.sendResponseHeaders(status, body.length);
+                exchange.getResponseBody().write(body);
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // class Request - the face that a request asks for; its key in the
+    // cache is the same however the type's name was spelled
+    ////////////////////////////////////////////////////////
+    private static class Request {
+        FaceType type;
+        int width;
+        int height;
+        String key;
+
+        Request(FaceType type, int width, int height) {
+            this.type = type;
+            this.width = width;
+            this.height = height;
+            key = type.name() + "/" + width + "x" + height;
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // class PngCache - encoded images, limited by their total size
+    ////////////////////////////////////////////////////////
+    private static class PngCache extends LruCache<String, byte[]> {
+        PngCache(long maxBytes) {
+            super(maxBytes);
+        }
+
+        protected long sizeOf(byte[] png) {
+            return png.length;
+        }
+    }
+}
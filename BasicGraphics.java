@@ -0,0 +1,214 @@
+////////////////////////////////////////////////////////
+// BasicGraphics.java - a starting point for Graphics implementations
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.*;
+import java.awt.image.*;
+import java.text.AttributedCharacterIterator;
+
+////////////////////////////////////////////////////////
+// class BasicGraphics - a Graphics object that keeps track of its color,
+// font, translation and clip, but does not draw anything
+//
+// Java's Graphics class has several dozen abstract methods.  A subclass of
+// BasicGraphics need only override the drawing operations that it actually
+// supports (e.g., fillOval); every other drawing operation throws
+// UnsupportedOperationException.
+//
+// The translation (see 'translate') is kept in 'transX' and 'transY'; a
+// subclass adds them to the coordinates it is given.  The clip is kept in
+// translated (i.e., device) coordinates, but is not enforced; a subclass
+// that wants to honor it can use 'deviceClip'.
+//
+////////////////////////////////////////////////////////
+public abstract class BasicGraphics extends Graphics {
+
+    ///////////////////////////////
+    // instance variables
+    ///////////////////////////////
+
+    // the current color and font
+    protected Color color = Color.black;
+    protected Font font = new Font("Dialog", Font.PLAIN, 12);
+
+    // the translation, added to every coordinate
+    protected int transX = 0;
+    protected int transY = 0;
+
+    // the clip, in device coordinates; null if there is none
+    protected Rectangle deviceClip = null;
+
+    // used to measure fonts
+    private static final Graphics MEASURER =
+        new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).getGraphics();
+
+    ////////////////////////////////////////////////////////
+    // copyStateFrom - copies the color, font, translation and clip of
+    //                 another BasicGraphics; for use by 'create'
+    ////////////////////////////////////////////////////////
+    protected void copyStateFrom(BasicGraphics other) {
+        color = other.color;
+        font = other.font;
+        transX = other.transX;
+        transY = other.transY;
+        deviceClip = other.deviceClip == null ? null
+            : new Rectangle(other.deviceClip);
+    }
+
+    ////////////////////////////////////////////////////////
+    // unsupported - creates the exception thrown by an unsupported operation
+    ////////////////////////////////////////////////////////
+    protected UnsupportedOperationException unsupported(String operation) {
+        return new UnsupportedOperationException(
+            operation + " is not supported by " + getClass().getName());
+    }
+
+    ////////////////////////////////////////////////////////
+    // state: color, font, translation, paint mode
+    ////////////////////////////////////////////////////////
+    public Color getColor() { return color; }
+    public void setColor(Color c) {
+        if (c != null) {
+            color = c;
+        }
+    }
+    public Font getFont() { return font; }
+    public void setFont(Font f) {
+        if (f != null) {
+            font = f;
+        }
+    }
+    public FontMetrics getFontMetrics(Font f) {
+        synchronized (MEASURER) {
+            return MEASURER.getFontMetrics(f);
+        }
+    }
+    public void translate(int x, int y) {
+        transX += x;
+        transY += y;
+    }
+    public void setPaintMode() {
+        // painting is the only mode supported
+    }
+    public void setXORMode(Color c) { throw unsupported("setXORMode"); }
+
+    ////////////////////////////////////////////////////////
+    // state: the clip
+    ////////////////////////////////////////////////////////
+    public Rectangle getClipBounds() {
+        if (deviceClip == null) {
+            return null;
+        }
+        return new Rectangle(deviceClip.x - transX, deviceClip.y - transY,
+                             deviceClip.width, deviceClip.height);
+    }
+    public Shape getClip() { return getClipBounds(); }
+    public void clipRect(int x, int y, int w, int h) {
+        Rectangle r = new Rectangle(x + transX, y + transY, w, h);
+        deviceClip = deviceClip == null ? r : deviceClip.intersection(r);
+    }
+    public void setClip(int x, int y, int w, int h) {
+        deviceClip = new Rectangle(x + transX, y + transY, w, h);
+    }
+    public void setClip(Shape clip) {
+        if (clip == null) {
+            deviceClip = null;
+        }
+        else if (clip instanceof Rectangle) {
+            Rectangle r = (Rectangle)clip;
+            setClip(r.x, r.y, r.width, r.height);
+        }
+        else {
+            throw unsupported("a non-rectangular clip");
+        }
+    }
+    public void dispose() {
+        // nothing to release
+    }
+
+    ////////////////////////////////////////////////////////
+    // finalize - does nothing.  Graphics.finalize calls 'dispose', which
+    //   does nothing here; overriding it with an empty method lets the
+    //   garbage collector free these objects (and anything they refer to,
+    //   such as an image's pixels) without first queueing them to be
+    //   finalized.
+    ////////////////////////////////////////////////////////
+    @SuppressWarnings("deprecation")
+    public void finalize() {
+    }
+
+    ////////////////////////////////////////////////////////
+    // drawing operations: all unsupported unless a subclass overrides them
+    ////////////////////////////////////////////////////////
+    public void copyArea(int x, int y, int w, int h, int dx, int dy) {
+        throw unsupported("copyArea");
+    }
+    public void drawLine(int x1, int y1, int x2, int y2) {
+        throw unsupported("drawLine");
+    }
+    public void fillRect(int x, int y, int w, int h) {
+        throw unsupported("fillRect");
+    }
+    public void clearRect(int x, int y, int w, int h) {
+        throw unsupported("clearRect");
+    }
+    public void drawRoundRect(int x, int y, int w, int h, int aw, int ah) {
+        throw unsupported("drawRoundRect");
+    }
+    public void fillRoundRect(int x, int y, int w, int h, int aw, int ah) {
+        throw unsupported("fillRoundRect");
+    }
+    public void drawOval(int x, int y, int w, int h) {
+        throw unsupported("drawOval");
+    }
+    public void fillOval(int x, int y, int w, int h) {
+        throw unsupported("fillOval");
+    }
+    public void drawArc(int x, int y, int w, int h, int start, int arc) {
+        throw unsupported("drawArc");
+    }
+    public void fillArc(int x, int y, int w, int h, int start, int arc) {
+        throw unsupported("fillArc");
+    }
+    public void drawPolyline(int[] xs, int[] ys, int n) {
+        throw unsupported("drawPolyline");
+    }
+    public void drawPolygon(int[] xs, int[] ys, int n) {
+        throw unsupported("drawPolygon");
+    }
+    public void fillPolygon(int[] xs, int[] ys, int n) {
+        throw unsupported("fillPolygon");
+    }
+    public void drawString(String str, int x, int y) {
+        throw unsupported("drawString");
+    }
+    public void drawString(AttributedCharacterIterator it, int x, int y) {
+        throw unsupported("drawString");
+    }
+    public boolean drawImage(Image img, int x, int y, ImageObserver o) {
+        throw unsupported("drawImage");
+    }
+    public boolean drawImage(Image img, int x, int y, int w, int h,
+                             ImageObserver o) {
+        throw unsupported("drawImage");
+    }
+    public boolean drawImage(Image img, int x, int y, Color bg,
+                             ImageObserver o) {
+        throw unsupported("drawImage");
+    }
+    public boolean drawImage(Image img, int x, int y, int w, int h, Color bg,
+                             ImageObserver o) {
+        throw unsupported("drawImage");
+    }
+    public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2,
+                             int sx1, int sy1, int sx2, int sy2,
+                             ImageObserver o) {
+        throw unsupported("drawImage");
+    }
+    public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2,
+                             int sx1, int sy1, int sx2, int sy2, Color bg,
+                             ImageObserver o) {
+        throw unsupported("drawImage");
+    }
+}
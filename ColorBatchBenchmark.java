@@ -0,0 +1,89 @@
+////////////////////////////////////////////////////////
+// ColorBatchBenchmark.java - checks and times ColorBatchScheduler
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+
+////////////////////////////////////////////////////////
+// class ColorBatchBenchmark - draws a canvas of random faces one at a time
+// and with a ColorBatchScheduler, checks that the pixels are identical, and
+// reports the times and the number of color changes saved
+//
+// To run:
+//   java ColorBatchBenchmark [faceCount [canvasSize]]
+//
+////////////////////////////////////////////////////////
+public class ColorBatchBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    // //////////////////////////////////////////////////////
+    // main - runs the benchmark
+    // //////////////////////////////////////////////////////
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 1500;
+
+        // a canvas of random faces of every type
+        Random rand = new Random(1);
+        FaceType[] types = FaceType.values();
+        ArrayList<Face> faces = new ArrayList<Face>();
+        for (int i = 0; i < n; i++) {
+            Face f = types[rand.nextInt(types.length)].create(
+                20 + rand.nextInt(100), 20 + rand.nextInt(100));
+            f.setLocation(rand.nextInt(size) - 50, rand.nextInt(size) - 50);
+            faces.add(f);
+        }
+
+        BufferedImage expected = FaceBenchmarks.newCanvas(size);
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < ROUNDS; r++) {
+            Graphics g = clear(expected);
+            long t0 = System.nanoTime();
+            for (int i = 0; i < faces.size(); i++) {
+                faces.get(i).drawOn(g);
+            }
+            best = Math.min(best, System.nanoTime() - t0);
+            g.dispose();
+        }
+
+        ColorBatchScheduler scheduler = new ColorBatchScheduler();
+        BufferedImage actual = FaceBenchmarks.newCanvas(size);
+        long batchedBest = Long.MAX_VALUE;
+        for (int r = 0; r < ROUNDS; r++) {
+            Graphics g = clear(actual);
+            scheduler.resetCounters();
+            long t0 = System.nanoTime();
+            scheduler.draw(g, faces);
+            batchedBest = Math.min(batchedBest, System.nanoTime() - t0);
+            g.dispose();
+        }
+
+        long differ = FaceBenchmarks.countDifferences(expected, actual);
+        System.out.printf("%d faces on %dx%d, %d shapes%n", n, size, size,
+                          scheduler.getShapeCount());
+        System.out.printf("one face at a time: %8.1f ms, %7d color changes%n",
+                          best/1e6, scheduler.getUnbatchedColorChanges());
+        System.out.printf("batched by color:   %8.1f ms, %7d color changes" +
+                          " (%d saved)%n", batchedBest/1e6,
+                          scheduler.getColorChanges(),
+                          scheduler.getColorChangesSaved());
+        System.out.printf("%d pixels differ%n", differ);
+        if (differ != 0) {
+            throw new IllegalStateException("batched output differs");
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // clear - fills an image with white, giving a graphics object for it
+    ////////////////////////////////////////////////////////
+    private static Graphics clear(BufferedImage image) {
+        Graphics g = image.getGraphics();
+        g.setColor(Color.white);
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        return g;
+    }
+}
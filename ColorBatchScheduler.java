@@ -0,0 +1,396 @@
+////////////////////////////////////////////////////////
+// ColorBatchScheduler.java - draws many faces, grouping their shapes by color
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.*;
+import java.util.*;
+
+////////////////////////////////////////////////////////
+// class ColorBatchScheduler - draws a list of faces with fewer changes of
+// color than drawing them one at a time
+//
+// Drawing a face changes the graphics object's color for its head, eyes,
+// mouth, nose, hair and ears, so drawing a thousand faces changes it
+// thousands of times.  This class takes the shapes of all of the faces (from
+// their display lists; see DisplayList) and reorders them so that shapes of
+// the same color are drawn together, with a single setColor for each run.
+//
+// A shape may be moved ahead of another only if they cannot touch the same
+// pixel, so the result is the same as drawing the faces in order.  To find
+// an order, each shape is given a level: the highest level of the earlier
+// shapes that it overlaps, plus one if that shape's color differs from its
+// own.  (Overlaps are found with a grid of small cells; shapes that merely
+// share a cell are treated as overlapping.)  So a shape is always drawn after every earlier shape that it
+// overlaps, and shapes of one level and one color never need to be ordered
+// with respect to shapes of another color.  The shapes are then drawn by
+// level, and within a level by color (and otherwise in their original
+// order).
+//
+// A face whose drawing cannot be recorded is drawn with its own drawOn, as
+// a single "shape" whose color matches no other.
+//
+// The scheduler counts the color changes it makes, and the number that
+// drawing the same shapes in their original order would have made.
+//
+// Fewer color changes pay only where a change is expensive, as on an
+// accelerated surface that must flush its queue for each one.  On an image
+// in memory, setColor is cheap, and finding the order costs more than it
+// saves: ColorBatchBenchmark draws 5000 faces 10 to 50 percent slower
+// batched than one at a time.  So FaceFrame does not use this class.
+//
+// A ColorBatchScheduler object provides the following public methods:
+//   - draw - draws a list of faces
+//   - getShapeCount - tells the number of shapes drawn
+//   - getColorChanges - tells the number of color changes made
+//   - getUnbatchedColorChanges - tells the number that drawing the faces
+//     one at a time would have made
+//   - getColorChangesSaved - tells the difference
+//   - resetCounters - sets the counts to zero
+//
+////////////////////////////////////////////////////////
+public class ColorBatchScheduler {
+
+    // a color-id that is never in the table: used before the first color
+    private static final int NO_COLOR = -1;
+
+    // a cell's color when its highest shapes have different colors
+    private static final int MIXED = -2;
+
+    // the smallest size of a grid cell, and the most cells to use
+    private static final int MIN_CELL_SIZE = 8;
+    private static final int MAX_CELLS = 1 << 18;
+
+    ///////////////////////////////
+    // instance variables
+    ///////////////////////////////
+
+    // the counts, since the last reset
+    private long shapeCount = 0;
+    private long colorChanges = 0;
+    private long unbatchedColorChanges = 0;
+
+    // the shapes of the faces being drawn, in their original order: the
+    // face (an index into 'faces') and operation (see DisplayList) that each
+    // comes from, the color it is drawn in (an index into 'colors'), its
+    // level, and (four numbers each) its bounds.  These are kept from one
+    // call to the next, to avoid allocating them each time.
+    private int count;
+    private int[] faceOf = new int[256];
+    private int[] operationOf = new int[256];
+    private int[] colorOf = new int[256];
+    private int[] levelOf = new int[256];
+    private int[] bounds = new int[4*256];
+
+    // the faces, their display lists (null if they have none), and the
+    // colors seen so far
+    private ArrayList<Face> faces = new ArrayList<Face>();
+    private ArrayList<DisplayList> lists = new ArrayList<DisplayList>();
+    private ArrayList<Color> colors = new ArrayList<Color>();
+    private HashMap<Color, Integer> colorIds = new HashMap<Color, Integer>();
+
+    // a uniform grid over the shapes' bounds.  For each cell, 'cellLevel'
+    // is the highest level of the shapes so far that overlap it, and
+    // 'cellColor' is their color, or MIXED if they differ.  (That is all
+    // that matters for the next shape: a lower level could not raise its
+    // level any higher.)  Two shapes that overlap share a cell, so this
+    // never misses an overlap, though it may find some that are not there.
+    private int cellSize;
+    private int gridLeft;
+    private int gridTop;
+    private int cols;
+    private int rows;
+    private int[] cellLevel = new int[0];
+    private int[] cellColor = new int[0];
+
+    // a polygon into which shapes' points are moved to be drawn
+    private Polygon scratch = new Polygon();
+
+    // the drawing order, and scratch space for sorting it
+    private int[] order = new int[256];
+    private int[] sorted = new int[256];
+    private int[] tally = new int[256];
+
+    ////////////////////////////////////////////////////////
+    // draw - draws faces, grouping their shapes by color
+    //
+    // calling sequence:
+    //   aScheduler.draw(g, someFaces);
+    //
+    // parameters:
+    //   g - the graphics object on which to draw
+    //   faceList - the faces to draw, in the order in which they would be
+    //              painted
+    //
+    // side-effects:
+    //   the faces are drawn on the graphics object, with the same result
+    //   as calling their drawOn methods in order.  The graphics object's
+    //   color is left unchanged; its font is changed if a face draws a
+    //   string.  The counts are increased.
+    //
+    // bugs/anomalies:
+    //   A ColorBatchScheduler may be used by only one thread at a time.
+    //   The faces are drawn from their display lists even if a sprite cache
+    //   is in use (see Face.setSpriteCache).
+    //
+    ////////////////////////////////////////////////////////
+    public void draw(Graphics g, java.util.List<Face> faceList) {
+        gatherShapes(faceList);
+        assignLevels();
+        sortShapes();
+
+        // draw the shapes, changing the color only when it differs
+        Color saved = g.getColor();
+        int current = NO_COLOR;
+        for (int i = 0; i < count; i++) {
+            int s = order[i];
+            Face f = faces.get(faceOf[s]);
+            DisplayList list = lists.get(faceOf[s]);
+            if (list == null) {
+                // a face that could not be recorded; it sets its own colors,
+                // and restores the one that was current
+                f.drawOn(g);
+                colorChanges++;
+                continue;
+            }
+            if (colorOf[s] != current) {
+                current = colorOf[s];
+                g.setColor(colors.get(current));
+                colorChanges++;
+            }
+            list.drawOperation(g, operationOf[s], f.getX(), f.getY(),
+                               scratch);
+        }
+        g.setColor(saved);
+
+        // count the changes that drawing in the original order would make
+        current = NO_COLOR;
+        for (int s = 0; s < count; s++) {
+            if (lists.get(faceOf[s]) == null || colorOf[s] != current) {
+                current = colorOf[s];
+                unbatchedColorChanges++;
+            }
+        }
+        shapeCount += count;
+
+        faces.clear();
+        lists.clear();
+    }
+
+    ////////////////////////////////////////////////////////
+    // simple accessors for the counts
+    ////////////////////////////////////////////////////////
+    public long getShapeCount() { return shapeCount; }
+    public long getColorChanges() { return colorChanges; }
+    public long getUnbatchedColorChanges() { return unbatchedColorChanges; }
+    public long getColorChangesSaved() {
+        return unbatchedColorChanges - colorChanges;
+    }
+
+    ////////////////////////////////////////////////////////
+    // resetCounters - sets the counts to zero
+    ////////////////////////////////////////////////////////
+    public void resetCounters() {
+        shapeCount = 0;
+        colorChanges = 0;
+        unbatchedColorChanges = 0;
+    }
+
+    ////////////////////////////////////////////////////////
+    // gatherShapes - lists the shapes of the faces, in their original order
+    ////////////////////////////////////////////////////////
+    private void gatherShapes(java.util.List<Face> faceList) {
+        count = 0;
+        colors.clear();
+        colorIds.clear();
+        for (int i = 0; i < faceList.size(); i++) {
+            Face f = faceList.get(i);
+            DisplayList list = f.getDisplayList();
+            faces.add(f);
+            lists.add(list);
+            if (list == null) {
+                // the whole face, in a color of its own
+                int s = addShape(i, 0, colors.size());
+                colors.add(null);
+                Rectangle b = f.getBounds();
+                bounds[4*s] = b.x - 1;
+                bounds[4*s+1] = b.y - 1;
+                bounds[4*s+2] = b.x + b.width + 2;
+                bounds[4*s+3] = b.y + b.height + 2;
+                continue;
+            }
+            for (int k = 0; k < list.getOperationCount(); k++) {
+                int s = addShape(i, k, colorId(list.getOperationColor(k)));
+                list.getOperationBounds(k, f.getX(), f.getY(), bounds, 4*s);
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // addShape - adds a shape to the arrays, making room if needed, and
+    //            tells its index
+    ////////////////////////////////////////////////////////
+    private int addShape(int face, int operation, int color) {
+        if (count == faceOf.length) {
+            int n = 2*count;
+            faceOf = Arrays.copyOf(faceOf, n);
+            operationOf = Arrays.copyOf(operationOf, n);
+            colorOf = Arrays.copyOf(colorOf, n);
+            levelOf = Arrays.copyOf(levelOf, n);
+            bounds = Arrays.copyOf(bounds, 4*n);
+        }
+        faceOf[count] = face;
+        operationOf[count] = operation;
+        colorOf[count] = color;
+        return count++;
+    }
+
+    ////////////////////////////////////////////////////////
+    // colorId - tells the index of a color in 'colors', adding it if new
+    ////////////////////////////////////////////////////////
+    private int colorId(Color c) {
+        Integer id = colorIds.get(c);
+        if (id == null) {
+            id = colors.size();
+            colors.add(c);
+            colorIds.put(c, id);
+        }
+        return id;
+    }
+
+    ////////////////////////////////////////////////////////
+    // assignLevels - gives each shape its level, finding the earlier shapes
+    //                that it overlaps with a grid
+    ////////////////////////////////////////////////////////
+    private void assignLevels() {
+        buildGrid();
+        for (int s = 0; s < count; s++) {
+            // find the lowest level above everything in the shape's cells
+            int c0, c1, r0, r1;
+            if (bounds[4*s] == Integer.MIN_VALUE) {
+                // unlimited bounds: every cell
+                c0 = r0 = 0;
+                c1 = cols - 1;
+                r1 = rows - 1;
+            }
+            else {
+                c0 = col(bounds[4*s]);
+                c1 = col(bounds[4*s+2] - 1);
+                r0 = row(bounds[4*s+1]);
+                r1 = row(bounds[4*s+3] - 1);
+            }
+            // (a face that could not be recorded matches no other color)
+            int color = colors.get(colorOf[s]) == null ? MIXED : colorOf[s];
+            int level = 0;
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    int cell = r*cols + c;
+                    if (cellLevel[cell] >= 0) {
+                        int above = cellColor[cell] == color
+                            ? cellLevel[cell] : cellLevel[cell] + 1;
+                        level = Math.max(level, above);
+                    }
+                }
+            }
+            levelOf[s] = level;
+
+            // then record it in those cells
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    int cell = r*cols + c;
+                    if (level > cellLevel[cell]) {
+                        cellLevel[cell] = level;
+                        cellColor[cell] = color;
+                    }
+                    else if (cellColor[cell] != color) {
+                        cellColor[cell] = MIXED;
+                    }
+                }
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // buildGrid - makes an empty grid covering the shapes' bounds
+    ////////////////////////////////////////////////////////
+    private void buildGrid() {
+        int left = Integer.MAX_VALUE;
+        int top = Integer.MAX_VALUE;
+        int right = Integer.MIN_VALUE;
+        int bottom = Integer.MIN_VALUE;
+        for (int s = 0; s < count; s++) {
+            if (bounds[4*s] != Integer.MIN_VALUE) {
+                left = Math.min(left, bounds[4*s]);
+                top = Math.min(top, bounds[4*s+1]);
+                right = Math.max(right, bounds[4*s+2]);
+                bottom = Math.max(bottom, bounds[4*s+3]);
+            }
+        }
+        if (left > right) {
+            left = top = right = bottom = 0;
+        }
+        double area = (double)(right - left)*(bottom - top);
+        cellSize = (int)Math.max(MIN_CELL_SIZE,
+                                 Math.ceil(Math.sqrt(area/MAX_CELLS)));
+        gridLeft = left;
+        gridTop = top;
+        cols = (right - left)/cellSize + 1;
+        rows = (bottom - top)/cellSize + 1;
+        if (cellLevel.length < cols*rows) {
+            cellLevel = new int[cols*rows];
+            cellColor = new int[cols*rows];
+        }
+        Arrays.fill(cellLevel, 0, cols*rows, -1);
+    }
+
+    ////////////////////////////////////////////////////////
+    // col/row - tell the column and row of the cell holding a point
+    ////////////////////////////////////////////////////////
+    private int col(int x) {
+        return Math.min(Math.max((x - gridLeft)/cellSize, 0), cols - 1);
+    }
+    private int row(int y) {
+        return Math.min(Math.max((y - gridTop)/cellSize, 0), rows - 1);
+    }
+
+    ////////////////////////////////////////////////////////
+    // sortShapes - puts the shapes in drawing order: by level, then color,
+    //              then original order (two stable counting sorts)
+    ////////////////////////////////////////////////////////
+    private void sortShapes() {
+        if (order.length < count) {
+            order = new int[faceOf.length];
+            sorted = new int[faceOf.length];
+        }
+        int maxLevel = 0;
+        for (int s = 0; s < count; s++) {
+            order[s] = s;
+            maxLevel = Math.max(maxLevel, levelOf[s]);
+        }
+        countingSort(colorOf, colors.size());
+        countingSort(levelOf, maxLevel + 1);
+    }
+
+    ////////////////////////////////////////////////////////
+    // countingSort - stably sorts 'order' by a key from 0 to range-1
+    ////////////////////////////////////////////////////////
+    private void countingSort(int[] key, int range) {
+        if (tally.length < range + 1) {
+            tally = new int[Math.max(range + 1, 2*tally.length)];
+        }
+        Arrays.fill(tally, 0, range + 1, 0);
+        for (int i = 0; i < count; i++) {
+            tally[key[order[i]] + 1]++;
+        }
+        for (int k = 0; k < range; k++) {
+            tally[k + 1] += tally[k];
+        }
+        for (int i = 0; i < count; i++) {
+            int s = order[i];
+            sorted[tally[key[s]]++] = s;
+        }
+        int[] t = order;
+        order = sorted;
+        sorted = t;
+    }
+}
@@ -0,0 +1,188 @@
+////////////////////////////////////////////////////////
+// CrescentCache.java - shared crescent outlines, made once each
+////////////////////////////////////////////////////////
+
+// imports
+import java.util.concurrent.ConcurrentHashMap;
+
+////////////////////////////////////////////////////////
+// class CrescentCache - crescent-shaped Polygon2s, by percentage and angle
+//
+// 'new Polygon2(percent)' computes 48 sines and cosines each time it is
+// called, and 'rotateBy' two more for every point.  Faces use only a few
+// crescents (e.g., the hair is a half-moon turned upside down), so this
+// class makes each crescent, at each angle, once, and keeps it.
+//
+// The points of a crescent are computed exactly as Polygon2 computes them,
+// from a table of the sines and cosines of the 23 steps around the outline
+// (and, for rotation, from TrigTable), so a cached crescent is identical to
+// 'new Polygon2(percent).rotateBy(degrees)'.  FaceBenchmarks checks
+// this, and compares the times.
+//
+// The CrescentCache class provides the following public methods:
+//   - get - (static) gives a copy of a crescent, possibly rotated
+//
+////////////////////////////////////////////////////////
+public class CrescentCache {
+
+    // the number of steps in each half of a crescent's outline
+    private static final int STEPS = 24;
+
+    // the radius of a crescent
+    private static final double RADIUS = 1000.0;
+
+    // the most crescents to keep; beyond this, crescents are made but not
+    // kept, so that a program that uses many angles cannot fill memory
+    private static final int MAX_SHAPES = 256;
+
+    // the sine and cosine of each step, and the points of the (unchanging)
+    // outer edge of the outline
+    private static final double[] STEP_SINES = new double[STEPS];
+    private static final int[] OUTER_X = new int[STEPS];
+    private static final int[] OUTER_Y = new int[STEPS];
+
+    static {
+        for (int i = 1; i < STEPS; i++) {
+            double angle = i*Math.PI/STEPS;
+            STEP_SINES[i] = Math.sin(angle);
+            OUTER_X[i] = (int)Math.round(RADIUS*Math.cos(angle));
+            OUTER_Y[i] = (int)Math.round(RADIUS*STEP_SINES[i]);
+        }
+    }
+
+    // the crescents made so far
+    private static final ConcurrentHashMap<Key, Polygon2> shapes =
+        new ConcurrentHashMap<Key, Polygon2>();
+
+    ////////////////////////////////////////////////////////
+    // CrescentCache - constructor; not used, since all methods are static
+    ////////////////////////////////////////////////////////
+    private CrescentCache() {
+    }
+
+    ////////////////////////////////////////////////////////
+    // get - gives a crescent
+    //
+    // calling sequence:
+    //   aPoly2 = CrescentCache.get(percent);
+    //
+    // parameters:
+    //   percent - the percentage of the moon that should be showing (see
+    //             the Polygon2(double) constructor)
+    //
+    // return-value:
+    //   a new Polygon2 with the same points as 'new Polygon2(percent)'
+    //
+    // side-effects:
+    //   the crescent is made and kept, if it has not been already
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public static Polygon2 get(double percent) {
+        return get(percent, 0);
+    }
+
+    ////////////////////////////////////////////////////////
+    // get - gives a rotated crescent
+    //
+    // calling sequence:
+    //   aPoly2 = CrescentCache.get(percent, degrees);
+    //
+    // parameters:
+    //   percent - the percentage of the moon that should be showing
+    //   degrees - the number of degrees of clockwise rotation
+    //
+    // return-value:
+    //   a new Polygon2 with the same points as
+    //   'new Polygon2(percent).rotateBy(degrees)'
+    //
+    // side-effects:
+    //   the crescent is made and kept, if it has not been already
+    //
+    // bugs/anomalies:
+    //   A copy is given because a Polygon2's points can be changed; use
+    //   'shared' to avoid the copy.
+    //
+    ////////////////////////////////////////////////////////
+    public static Polygon2 get(double percent, double degrees) {
+        Polygon2 p = shared(percent, degrees);
+        return new Polygon2(p.xpoints, p.ypoints, p.npoints);
+    }
+
+    ////////////////////////////////////////////////////////
+    // shared - gives the kept crescent itself, which must not be changed;
+    //          used by Face
+    ////////////////////////////////////////////////////////
+    static Polygon2 shared(double percent, double degrees) {
+        Key key = new Key(percent, degrees);
+        Polygon2 p = shapes.get(key);
+        if (p == null) {
+            p = make(percent, degrees);
+            if (shapes.size() < MAX_SHAPES) {
+                Polygon2 other = shapes.putIfAbsent(key, p);
+                if (other != null) {
+                    p = other;
+                }
+            }
+        }
+        return p;
+    }
+
+    ////////////////////////////////////////////////////////
+    // make - makes a crescent, as Polygon2 would, then rotates it
+    ////////////////////////////////////////////////////////
+    private static Polygon2 make(double percent, double degrees) {
+        int n = 2*STEPS;
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+
+        // the outer edge, from the right around the bottom to the left
+        xs[0] = (int)RADIUS;
+        for (int i = 1; i < STEPS; i++) {
+            xs[i] = OUTER_X[i];
+            ys[i] = OUTER_Y[i];
+        }
+        xs[STEPS] = -(int)RADIUS;
+
+        // then the inner edge, back to the right
+        double inner = (1.0 - 0.02*percent)*RADIUS;
+        for (int i = STEPS - 1; i >= 1; i--) {
+            xs[n - i] = OUTER_X[i];
+            ys[n - i] = (int)Math.round(inner*STEP_SINES[i]);
+        }
+
+        Polygon2 p = new Polygon2(xs, ys, n);
+        if (degrees != 0) {
+            PolygonTransform.rotateBy(p, degrees, p);
+        }
+        return p;
+    }
+
+    ////////////////////////////////////////////////////////
+    // class Key - a crescent's percentage and angle
+    ////////////////////////////////////////////////////////
+    private static class Key {
+        private double percent;
+        private double degrees;
+
+        Key(double percent, double degrees) {
+            this.percent = percent;
+            this.degrees = degrees;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key)o;
+            return Double.compare(percent, k.percent) == 0 &&
+                Double.compare(degrees, k.degrees) == 0;
+        }
+
+        public int hashCode() {
+            return Double.hashCode(percent)*31 + Double.hashCode(degrees);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+////////////////////////////////////////////////////////
+// DirtyRegion.java - collects the areas that need repainting
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.Rectangle;
+import java.util.ArrayList;
+
+////////////////////////////////////////////////////////
+// class DirtyRegion - a FaceListener that keeps a few rectangles covering
+// every change it has been told of since it was last emptied
+//
+// Moving a face changes only the area where it was and the area where it
+// is now.  A window that repaints just that area, rather than all of
+// itself, draws only the faces there (see FaceGrid.query).  When several
+// faces move between frames, a DirtyRegion combines their areas: those
+// that overlap become one rectangle, and when there would be more than
+// MAX_RECTANGLES, the two whose union adds the least area are joined.
+// The region can then be taken either as one rectangle covering all of
+// them (for a single repaint request, which is what Swing would make of
+// several requests anyway), or as the separate rectangles (for a caller
+// that draws them itself).  Faces that move far apart from each other
+// give a single rectangle that covers much more than they do.
+//
+// A DirtyRegion can be told (through a Runnable) when it stops being
+// empty, so that its owner can arrange to repaint; for example, FaceFrame
+// then has the event-dispatch thread repaint the region once it has
+// finished what it is doing.
+//
+// A DirtyRegion object provides the following public methods:
+//   - DirtyRegion - the constructor
+//   - faceChanged - adds a face's changed area
+//   - add - adds an area
+//   - take - gives one rectangle covering the region, and empties it
+//   - takeAll - gives the region's rectangles, and empties it
+//   - isEmpty - tells whether nothing has changed
+//
+// All of the methods are synchronized, so faces may be changed on any
+// thread.
+//
+////////////////////////////////////////////////////////
+public class DirtyRegion implements FaceListener {
+
+    // the most rectangles kept separately
+    public static final int MAX_RECTANGLES = 16;
+
+    ///////////////////////////////
+    // instance variables
+    ///////////////////////////////
+
+    // the rectangles covering the changes, no two of which overlap
+    private ArrayList<Rectangle> rects = new ArrayList<Rectangle>();
+
+    // what to run when the region stops being empty, or null
+    private Runnable onDirty;
+
+    ////////////////////////////////////////////////////////
+    // DirtyRegion - constructor
+    //
+    // calling sequence:
+    //   aRegion = new DirtyRegion(onDirty);
+    //
+    // parameters:
+    //   onDirty - what to run whenever an area is added to the empty
+    //             region, or null
+    //
+    // side-effects:
+    //   the (empty) region is created
+    //
+    // bugs/anomalies:
+    //   'onDirty' is run on the thread that adds the area, while the region
+    //   is locked, so it should do no more than schedule the repainting.
+    //
+    ////////////////////////////////////////////////////////
+    public DirtyRegion(Runnable onDirty) {
+        this.onDirty = onDirty;
+    }
+
+    ////////////////////////////////////////////////////////
+    // faceChanged - adds the area of a change to a face
+    ////////////////////////////////////////////////////////
+    public void faceChanged(Face f, Rectangle area) {
+        add(area);
+    }
+
+    ////////////////////////////////////////////////////////
+    // add - adds an area to the region
+    //
+    // calling sequence:
+    //   aRegion.add(area);
+    //
+    // parameters:
+    //   area - the area that needs repainting
+    //
+    // side-effects:
+    //   the region grows to cover the area (see the class comment).  If
+    //   the region was empty, its 'onDirty' (if any) is run.
+    //
+    // bugs/anomalies:
+    //   An empty area is ignored.
+    //
+    ////////////////////////////////////////////////////////
+    public synchronized void add(Rectangle area) {
+        if (area.width <= 0 || area.height <= 0) {
+            return;
+        }
+        boolean wasEmpty = rects.isEmpty();
+        insert(new Rectangle(area));
+        if (wasEmpty && onDirty != null) {
+            onDirty.run();
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // take - gives the area that needs repainting, and empties the region
+    //
+    // return value:
+    //   the smallest rectangle covering every area added since the region
+    //   was last emptied, or null if there were none
+    ////////////////////////////////////////////////////////
+    public synchronized Rectangle take() {
+        Rectangle result = null;
+        for (int i = 0; i < rects.size(); i++) {
+            if (result == null) {
+                result = rects.get(i);
+            }
+            else {
+                result.add(rects.get(i));
+            }
+        }
+        rects.clear();
+        return result;
+    }
+
+    ////////////////////////////////////////////////////////
+    // takeAll - gives the separate rectangles that need repainting, and
+    //           empties the region
+    //
+    // calling sequence:
+    //   aRegion.takeAll(result);
+    //
+    // parameters:
+    //   result - the list to which the rectangles are added
+    //
+    // side-effects:
+    //   at most MAX_RECTANGLES rectangles, none overlapping another and
+    //   together covering every area added since the region was last
+    //   emptied, are added to 'result'; the region is emptied
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public synchronized void takeAll(java.util.List<Rectangle> result) {
+        result.addAll(rects);
+        rects.clear();
+    }
+
+    ////////////////////////////////////////////////////////
+    // insert - adds a rectangle to the list, joining it with those it
+    //          overlaps, and joining the closest two if there are too many
+    ////////////////////////////////////////////////////////
+    private void insert(Rectangle r) {
+        // joining may make the rectangle overlap ones it did not before,
+        // so keep looking until it overlaps none
+        for (int i = 0; i < rects.size(); i++) {
+            if (rects.get(i).intersects(r)) {
+                r.add(removeAt(i));
+                i = -1;
+            }
+        }
+        rects.add(r);
+        if (rects.size() <= MAX_RECTANGLES) {
+            return;
+        }
+
+        // join the two rectangles whose union covers the least extra area
+        int bestI = 0;
+        int bestJ = 1;
+        double bestWaste = Double.MAX_VALUE;
+        for (int i = 0; i < rects.size(); i++) {
+            Rectangle a = rects.get(i);
+            for (int j = i + 1; j < rects.size(); j++) {
+                Rectangle b = rects.get(j);
+                Rectangle u = a.union(b);
+                double waste = (double)u.width*u.height -
+                    (double)a.width*a.height - (double)b.width*b.height;
+                if (waste < bestWaste) {
+                    bestWaste = waste;
+                    bestI = i;
+                    bestJ = j;
+                }
+            }
+        }
+        Rectangle joined = removeAt(bestJ);
+        joined.add(removeAt(bestI));
+        insert(joined);
+    }
+
+    ////////////////////////////////////////////////////////
+    // removeAt - takes a rectangle out of the list (whose order does not
+    //            matter) by moving the last one into its place
+    ////////////////////////////////////////////////////////
+    private Rectangle removeAt(int i) {
+        Rectangle r = rects.get(i);
+        Rectangle last = rects.remove(rects.size() - 1);
+        if (i < rects.size()) {
+            rects.set(i, last);
+        }
+        return r;
+    }
+
+    ////////////////////////////////////////////////////////
+    // isEmpty - tells whether no area has been added since the region was
+    //           last emptied
+    ////////////////////////////////////////////////////////
+    public synchronized boolean isEmpty() {
+        return rects.isEmpty();
+    }
+}
@@ -0,0 +1,147 @@
+////////////////////////////////////////////////////////
+// DirtyRegionBenchmark.java - compares repainting only where faces moved
+// with repainting everything
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+
+////////////////////////////////////////////////////////
+// class DirtyRegionBenchmark - moves a few of many faces each frame, and
+// times repainting the frame three ways: all of it; the one rectangle
+// covering the DirtyRegion that the moved faces reported (as FaceFrame
+// does); and each of the region's rectangles separately
+//
+// Each repaint clears its area of an image and draws the faces that a
+// FaceGrid finds there, clipped to the area.  The images are compared
+// after every frame, to check that repainting only the dirty region leaves
+// the same picture.  (A few pixels may differ: Java2D fills an oval that
+// the clip cuts through slightly differently from one that it does not.)
+//
+// To run:
+//   java DirtyRegionBenchmark [faceCount]
+//
+////////////////////////////////////////////////////////
+public class DirtyRegionBenchmark {
+
+    private static final int SIDE = 2000;
+    private static final int FRAMES = 50;
+
+    // //////////////////////////////////////////////////////
+    // main - runs the benchmark
+    // //////////////////////////////////////////////////////
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int[] movers = { 1, 5, 50 };
+        System.out.printf("%d faces on %dx%d, %d frames%n", n, SIDE, SIDE,
+                          FRAMES);
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < movers.length; i++) {
+                run(n, movers[i], round == 1);
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // run - moves 'movers' faces per frame, repainting each way, and
+    //       reports the results if 'report' is true
+    ////////////////////////////////////////////////////////
+    private static void run(int n, int movers, boolean report) {
+        Random rand = new Random(n);
+        FaceType[] types = FaceType.values();
+        Face[] faces = new Face[n];
+        FaceGrid grid = new FaceGrid(new Rectangle(0, 0, SIDE, SIDE), 128);
+        DirtyRegion dirty = new DirtyRegion(null);
+        for (int i = 0; i < n; i++) {
+            int size = 40 + rand.nextInt(40);
+            faces[i] = types[rand.nextInt(types.length)].create(size, size);
+            faces[i].setLocation(rand.nextInt(SIDE - size),
+                                 rand.nextInt(SIDE - size));
+            grid.add(faces[i]);
+            faces[i].setFaceListener(dirty);
+        }
+
+        Rectangle all = new Rectangle(0, 0, SIDE, SIDE);
+        BufferedImage full = FaceBenchmarks.newCanvas(SIDE);
+        BufferedImage united = FaceBenchmarks.newCanvas(SIDE);
+        BufferedImage separate = FaceBenchmarks.newCanvas(SIDE);
+        ArrayList<Face> toDraw = new ArrayList<Face>();
+        ArrayList<Rectangle> rects = new ArrayList<Rectangle>();
+        repaint(full, all, grid, toDraw);
+        repaint(united, all, grid, toDraw);
+        repaint(separate, all, grid, toDraw);
+
+        long fullNanos = 0;
+        long unitedNanos = 0;
+        long separateNanos = 0;
+        double unitedArea = 0;
+        double separateArea = 0;
+        long differ = 0;
+        for (int frame = 0; frame < FRAMES; frame++) {
+            // a face may be moved more than once; the region covers both
+            for (int i = 0; i < movers; i++) {
+                Face f = faces[rand.nextInt(n)];
+                int x = f.getX() + rand.nextInt(9) - 4;
+                int y = f.getY() + rand.nextInt(9) - 4;
+                f.setLocation(Math.max(0, Math.min(x, SIDE - f.getWidth())),
+                              Math.max(0, Math.min(y, SIDE - f.getHeight())));
+            }
+            rects.clear();
+            dirty.takeAll(rects);
+            Rectangle union = null;
+            for (Rectangle r : rects) {
+                union = union == null ? new Rectangle(r) : union.union(r);
+            }
+
+            long t0 = System.nanoTime();
+            repaint(full, all, grid, toDraw);
+            long t1 = System.nanoTime();
+            if (union != null) {
+                repaint(united, union, grid, toDraw);
+                unitedArea += (double)union.width*union.height;
+            }
+            long t2 = System.nanoTime();
+            for (Rectangle r : rects) {
+                repaint(separate, r, grid, toDraw);
+                separateArea += (double)r.width*r.height;
+            }
+            long t3 = System.nanoTime();
+            fullNanos += t1 - t0;
+            unitedNanos += t2 - t1;
+            separateNanos += t3 - t2;
+            differ += FaceBenchmarks.countDifferences(full, united) +
+                FaceBenchmarks.countDifferences(full, separate);
+        }
+        if (report) {
+            double canvasArea = (double)SIDE*SIDE*FRAMES/100;
+            System.out.printf("%3d moving: full %6.2f ms; one rectangle " +
+                              "%5.1f%% of the canvas, %6.2f ms; separate " +
+                              "rectangles %5.2f%%, %6.2f ms; %d pixels " +
+                              "differ%n", movers,
+                              fullNanos/1e6/FRAMES, unitedArea/canvasArea,
+                              unitedNanos/1e6/FRAMES,
+                              separateArea/canvasArea,
+                              separateNanos/1e6/FRAMES, differ);
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // repaint - clears an area of an image, and draws the faces there
+    ////////////////////////////////////////////////////////
+    private static void repaint(BufferedImage image, Rectangle r,
+                                FaceGrid grid, ArrayList<Face> toDraw) {
+        Graphics g = image.getGraphics();
+        g.setClip(r.x, r.y, r.width, r.height);
+        g.setColor(Color.white);
+        g.fillRect(r.x, r.y, r.width, r.height);
+        toDraw.clear();
+        grid.query(r, toDraw);
+        for (int i = 0; i < toDraw.size(); i++) {
+            toDraw.get(i).drawOn(g);
+        }
+        g.dispose();
+    }
+}
@@ -0,0 +1,524 @@
+////////////////////////////////////////////////////////
+// DisplayList.java - a recording of a face's drawing operations
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.*;
+import java.util.*;
+
+////////////////////////////////////////////////////////
+// class DisplayList - the drawing operations of a face, recorded once so
+// that they can be re-issued (at any position) without recomputing them
+//
+// A face issues the same sequence of setColor/fillOval/fillRect/fillPolygon
+// calls every time it is drawn; only the position changes.  A DisplayList
+// captures that sequence (relative to the face's position) into compact
+// arrays of numbers.  Replaying it issues exactly the same calls on the
+// real graphics object, shifted to the face's current position, so the
+// result is the same as drawing the face; and since the calls are still
+// shape-drawing calls, they look as sharp as ever under any scaling.
+//
+// The recording is only valid for the face's width and height at the time
+// it was made.
+//
+// The operations that can be recorded are: setColor, setFont, fillRect,
+// fillOval, drawOval, drawLine, fillArc, drawArc, fillRoundRect,
+// drawRoundRect, fillPolygon, drawPolygon, drawPolyline and drawString (as
+// well as the operations that Graphics builds from them, such as drawRect).
+// Recording a face that uses any other operation fails.
+//
+// A DisplayList object provides the following public methods:
+//   - record - (static) records a face's drawing
+//   - replay - re-issues the recorded operations at a given position
+//   - getWidth/getHeight - tell the size of the face when it was recorded
+//   - getOperationCount - tells the number of drawing operations
+//
+// It also lets a scheduler (see ColorBatchScheduler) issue its drawing
+// operations one at a time, each with the color it was drawn in and a
+// rectangle that holds everything it could touch.
+//
+////////////////////////////////////////////////////////
+public class DisplayList {
+
+    // the operation codes
+    private static final int SET_COLOR = 0;
+    private static final int SET_FONT = 1;
+    private static final int FILL_RECT = 2;
+    private static final int FILL_OVAL = 3;
+    private static final int DRAW_OVAL = 4;
+    private static final int DRAW_LINE = 5;
+    private static final int FILL_ARC = 6;
+    private static final int DRAW_ARC = 7;
+    private static final int FILL_ROUND_RECT = 8;
+    private static final int DRAW_ROUND_RECT = 9;
+    private static final int FILL_POLYGON = 10;
+    private static final int DRAW_POLYGON = 11;
+    private static final int DRAW_POLYLINE = 12;
+    private static final int DRAW_STRING = 13;
+
+    ///////////////////////////////
+    // instance variables
+    ///////////////////////////////
+
+    // the operations: each is a code followed by its arguments.  Colors,
+    // fonts and strings are given as indexes into 'objects'.  A polygon is
+    // given as its number of points and the index in 'objects' of its
+    // x-coordinates; its y-coordinates follow them.
+    private int[] ops;
+    private Object[] objects;
+
+    // the number of drawing operations (i.e., not counting setColor, etc.)
+    private int operationCount;
+
+    // the face's size when it was recorded
+    private int width;
+    private int height;
+
+    // for each drawing operation: where it starts in 'ops', the color and
+    // font in effect, and (four numbers each) the left, top, right and
+    // bottom of the pixels it could touch, right and bottom exclusive
+    private int[] starts;
+    private Color[] colors;
+    private Font[] fonts;
+    private int[] bounds;
+
+    ////////////////////////////////////////////////////////
+    // DisplayList - constructor; used only by 'record'
+    ////////////////////////////////////////////////////////
+    private DisplayList(Recorder r, int w, int h) {
+        ops = Arrays.copyOf(r.ops, r.opCount);
+        objects = r.objects.toArray();
+        operationCount = r.operationCount;
+        width = w;
+        height = h;
+        indexOperations();
+    }
+
+    ////////////////////////////////////////////////////////
+    // indexOperations - finds where each drawing operation starts, the
+    //                   color and font it uses, and its bounds
+    ////////////////////////////////////////////////////////
+    private void indexOperations() {
+        starts = new int[operationCount];
+        colors = new Color[operationCount];
+        fonts = new Font[operationCount];
+        bounds = new int[4*operationCount];
+        // (a recording sets the color before its first drawing operation,
+        // and the font before its first string)
+        Color color = null;
+        Font font = null;
+        int n = 0;
+        for (int i = 0; i < ops.length; i = next(i)) {
+            if (ops[i] == SET_COLOR) {
+                color = (Color)objects[ops[i+1]];
+            }
+            else if (ops[i] == SET_FONT) {
+                font = (Font)objects[ops[i+1]];
+            }
+            else {
+                starts[n] = i;
+                colors[n] = color;
+                fonts[n] = font;
+                findBounds(i, bounds, 4*n);
+                n++;
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // findBounds - puts the bounds of the drawing operation at 'i' into
+    //              four elements of 'b', starting at 'at'
+    //
+    // The bounds are generous: a shape's outline extends one pixel past its
+    // width and height.  A string's extent depends on the font, so its
+    // bounds are everything.
+    ////////////////////////////////////////////////////////
+    private void findBounds(int i, int[] b, int at) {
+        int[] a = ops;
+        int left, top, right, bottom;
+        switch (a[i]) {
+        case DRAW_STRING:
+            left = top = Integer.MIN_VALUE;
+            right = bottom = Integer.MAX_VALUE;
+            break;
+        case FILL_POLYGON:
+        case DRAW_POLYGON:
+        case DRAW_POLYLINE:
+            int[] xs = (int[])objects[a[i+2]];
+            int[] ys = (int[])objects[a[i+2]+1];
+            left = top = Integer.MAX_VALUE;
+            right = bottom = Integer.MIN_VALUE;
+            for (int k = 0; k < a[i+1]; k++) {
+                left = Math.min(left, xs[k]);
+                right = Math.max(right, xs[k]);
+                top = Math.min(top, ys[k]);
+                bottom = Math.max(bottom, ys[k]);
+            }
+            break;
+        case DRAW_LINE:
+            left = Math.min(a[i+1], a[i+3]);
+            right = Math.max(a[i+1], a[i+3]);
+            top = Math.min(a[i+2], a[i+4]);
+            bottom = Math.max(a[i+2], a[i+4]);
+            break;
+        default:
+            // x, y, width and height
+            left = Math.min(a[i+1], a[i+1] + a[i+3]);
+            right = Math.max(a[i+1], a[i+1] + a[i+3]);
+            top = Math.min(a[i+2], a[i+2] + a[i+4]);
+            bottom = Math.max(a[i+2], a[i+2] + a[i+4]);
+            break;
+        }
+        b[at] = left;
+        b[at+1] = top;
+        b[at+2] = right == Integer.MAX_VALUE ? right : right + 2;
+        b[at+3] = bottom == Integer.MAX_VALUE ? bottom : bottom + 2;
+    }
+
+    ////////////////////////////////////////////////////////
+    // next - tells where the operation after the one at 'i' starts
+    ////////////////////////////////////////////////////////
+    private int next(int i) {
+        switch (ops[i]) {
+        case SET_COLOR:
+        case SET_FONT:
+            return i + 2;
+        case FILL_POLYGON:
+        case DRAW_POLYGON:
+        case DRAW_POLYLINE:
+            return i + 3;
+        case DRAW_STRING:
+            return i + 4;
+        case FILL_ARC:
+        case DRAW_ARC:
+        case FILL_ROUND_RECT:
+        case DRAW_ROUND_RECT:
+            return i + 7;
+        default:
+            return i + 5;
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // record - records a face's drawing
+    //
+    // calling sequence:
+    //   aList = DisplayList.record(aFace);
+    //
+    // parameters:
+    //   f - the face to record
+    //
+    // return-value:
+    //   the recording, with coordinates relative to the face's position
+    //
+    // side-effects:
+    //   creates new objects; otherwise, none
+    //
+    // bugs/anomalies:
+    //   throws UnsupportedOperationException if the face uses a drawing
+    //   operation that cannot be recorded
+    //
+    ////////////////////////////////////////////////////////
+    public static DisplayList record(Face f) {
+        Recorder r = new Recorder();
+        r.translate(-f.getX(), -f.getY());
+        f.helpDrawOn(r);
+        return new DisplayList(r, f.getWidth(), f.getHeight());
+    }
+
+    ////////////////////////////////////////////////////////
+    // simple accessors
+    ////////////////////////////////////////////////////////
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public int getOperationCount() { return operationCount; }
+
+    ////////////////////////////////////////////////////////
+    // replay - re-issues the recorded operations
+    //
+    // calling sequence:
+    //   aList.replay(g, x, y);
+    //
+    // parameters:
+    //   g - the graphics object on which to draw
+    //   x - the horizontal position of the face
+    //   y - the vertical position of the face
+    //
+    // side-effects:
+    //   the operations are performed on the graphics object; its color (and
+    //   font, if the recording sets one) are changed
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public void replay(Graphics g, int x, int y) {
+        g.translate(x, y);
+        int i = 0;
+        while (i < ops.length) {
+            i = perform(g, i, 0, 0, null);
+        }
+        g.translate(-x, -y);
+    }
+
+    ////////////////////////////////////////////////////////
+    // accessors for the individual drawing operations, by number (from 0
+    // to getOperationCount()-1); for use by ColorBatchScheduler
+    //
+    // getOperationColor/getOperationFont tell the color and font that an
+    // operation is drawn with.  getOperationBounds gives its bounds at the
+    // given position; they include every pixel it could change.
+    // drawOperation draws it at the given position, without setting the
+    // color (the caller must) but setting the font if it draws a string.
+    // It moves the operation's coordinates rather than translating the
+    // graphics object, since Java2D revalidates its drawing pipeline after
+    // every translate; a polygon's moved points go into 'scratch'.
+    ////////////////////////////////////////////////////////
+    Color getOperationColor(int n) { return colors[n]; }
+    Font getOperationFont(int n) { return fonts[n]; }
+
+    void getOperationBounds(int n, int x, int y, int[] b, int at) {
+        for (int k = 0; k < 4; k++) {
+            int v = bounds[4*n + k];
+            if (v != Integer.MIN_VALUE && v != Integer.MAX_VALUE) {
+                v += (k & 1) == 0 ? x : y;
+            }
+            b[at + k] = v;
+        }
+    }
+
+    void drawOperation(Graphics g, int n, int x, int y, Polygon scratch) {
+        int i = starts[n];
+        if (ops[i] == DRAW_STRING) {
+            g.setFont(fonts[n]);
+        }
+        perform(g, i, x, y, scratch);
+    }
+
+    ////////////////////////////////////////////////////////
+    // perform - performs the operation at 'i', moved by (dx,dy), and tells
+    //           where the next one starts; 'scratch' holds a moved
+    //           polygon's points, and may be null if (dx,dy) is (0,0)
+    ////////////////////////////////////////////////////////
+    private int perform(Graphics g, int i, int dx, int dy, Polygon scratch) {
+        int[] a = ops;
+        switch (a[i]) {
+        case SET_COLOR:
+            g.setColor((Color)objects[a[i+1]]);
+            break;
+        case SET_FONT:
+            g.setFont((Font)objects[a[i+1]]);
+            break;
+        case FILL_RECT:
+            g.fillRect(a[i+1] + dx, a[i+2] + dy, a[i+3], a[i+4]);
+            break;
+        case FILL_OVAL:
+            g.fillOval(a[i+1] + dx, a[i+2] + dy, a[i+3], a[i+4]);
+            break;
+        case DRAW_OVAL:
+            g.drawOval(a[i+1] + dx, a[i+2] + dy, a[i+3], a[i+4]);
+            break;
+        case DRAW_LINE:
+            g.drawLine(a[i+1] + dx, a[i+2] + dy, a[i+3] + dx, a[i+4] + dy);
+            break;
+        case FILL_ARC:
+            g.fillArc(a[i+1] + dx, a[i+2] + dy,
+                      a[i+3], a[i+4], a[i+5], a[i+6]);
+            break;
+        case DRAW_ARC:
+            g.drawArc(a[i+1] + dx, a[i+2] + dy,
+                      a[i+3], a[i+4], a[i+5], a[i+6]);
+            break;
+        case FILL_ROUND_RECT:
+            g.fillRoundRect(a[i+1] + dx, a[i+2] + dy,
+                            a[i+3], a[i+4], a[i+5], a[i+6]);
+            break;
+        case DRAW_ROUND_RECT:
+            g.drawRoundRect(a[i+1] + dx, a[i+2] + dy,
+                            a[i+3], a[i+4], a[i+5], a[i+6]);
+            break;
+        case FILL_POLYGON:
+            if (dx == 0 && dy == 0) {
+                g.fillPolygon((int[])objects[a[i+2]],
+                              (int[])objects[a[i+2]+1], a[i+1]);
+            }
+            else {
+                g.fillPolygon(movedPoints(i, dx, dy, scratch));
+            }
+            break;
+        case DRAW_POLYGON:
+            if (dx == 0 && dy == 0) {
+                g.drawPolygon((int[])objects[a[i+2]],
+                              (int[])objects[a[i+2]+1], a[i+1]);
+            }
+            else {
+                g.drawPolygon(movedPoints(i, dx, dy, scratch));
+            }
+            break;
+        case DRAW_POLYLINE:
+            if (dx == 0 && dy == 0) {
+                g.drawPolyline((int[])objects[a[i+2]],
+                               (int[])objects[a[i+2]+1], a[i+1]);
+            }
+            else {
+                Polygon p = movedPoints(i, dx, dy, scratch);
+                g.drawPolyline(p.xpoints, p.ypoints, p.npoints);
+            }
+            break;
+        case DRAW_STRING:
+            g.drawString((String)objects[a[i+1]], a[i+2] + dx, a[i+3] + dy);
+            break;
+        default:
+            throw new IllegalStateException("bad operation " + a[i]);
+        }
+        return next(i);
+    }
+
+    ////////////////////////////////////////////////////////
+    // movedPoints - puts the points of the polygon operation at 'i', moved
+    //               by (dx,dy), into 'scratch', and gives it
+    ////////////////////////////////////////////////////////
+    private Polygon movedPoints(int i, int dx, int dy, Polygon scratch) {
+        int n = ops[i+1];
+        int[] xs = (int[])objects[ops[i+2]];
+        int[] ys = (int[])objects[ops[i+2]+1];
+        if (scratch.xpoints.length < n) {
+            scratch.xpoints = new int[n];
+            scratch.ypoints = new int[n];
+        }
+        for (int k = 0; k < n; k++) {
+            scratch.xpoints[k] = xs[k] + dx;
+            scratch.ypoints[k] = ys[k] + dy;
+        }
+        scratch.npoints = n;
+        scratch.invalidate();
+        return scratch;
+    }
+
+    ////////////////////////////////////////////////////////
+    // class Recorder - a Graphics object that records what is drawn on it
+    ////////////////////////////////////////////////////////
+    private static class Recorder extends BasicGraphics {
+        int[] ops = new int[64];
+        int opCount = 0;
+        ArrayList<Object> objects = new ArrayList<Object>();
+        int operationCount = 0;
+
+        // the color and font as last recorded (not necessarily the current
+        // ones, which are recorded only when something is drawn)
+        private Color recordedColor = null;
+        private Font recordedFont = null;
+
+        public Graphics create() {
+            throw unsupported("create");
+        }
+
+        private void add(int v) {
+            if (opCount == ops.length) {
+                ops = Arrays.copyOf(ops, 2*ops.length);
+            }
+            ops[opCount++] = v;
+        }
+
+        private int indexOf(Object o) {
+            objects.add(o);
+            return objects.size() - 1;
+        }
+
+        // records the current color, if it is not the one last recorded
+        private void recordColor() {
+            if (color != recordedColor) {
+                add(SET_COLOR);
+                add(indexOf(color));
+                recordedColor = color;
+            }
+        }
+
+        // records the color (if it has changed), then a drawing operation
+        // with the given code, and its position, which is translated
+        private void begin(int code, int x, int y) {
+            recordColor();
+            add(code);
+            add(x + transX);
+            add(y + transY);
+            operationCount++;
+        }
+
+        private void shape(int code, int x, int y, int w, int h) {
+            begin(code, x, y);
+            add(w);
+            add(h);
+        }
+
+        private void arc(int code, int x, int y, int w, int h, int a, int b) {
+            shape(code, x, y, w, h);
+            add(a);
+            add(b);
+        }
+
+        private void points(int code, int[] xs, int[] ys, int n) {
+            recordColor();
+
+            // keep a translated copy of the points
+            int[] px = new int[n];
+            int[] py = new int[n];
+            for (int i = 0; i < n; i++) {
+                px[i] = xs[i] + transX;
+                py[i] = ys[i] + transY;
+            }
+            int xIndex = indexOf(px);
+            indexOf(py);
+            add(code);
+            add(n);
+            add(xIndex);
+            operationCount++;
+        }
+
+        public void fillRect(int x, int y, int w, int h) {
+            shape(FILL_RECT, x, y, w, h);
+        }
+        public void fillOval(int x, int y, int w, int h) {
+            shape(FILL_OVAL, x, y, w, h);
+        }
+        public void drawOval(int x, int y, int w, int h) {
+            shape(DRAW_OVAL, x, y, w, h);
+        }
+        public void drawLine(int x1, int y1, int x2, int y2) {
+            shape(DRAW_LINE, x1, y1, x2 + transX, y2 + transY);
+        }
+        public void fillArc(int x, int y, int w, int h, int start, int arc) {
+            arc(FILL_ARC, x, y, w, h, start, arc);
+        }
+        public void drawArc(int x, int y, int w, int h, int start, int arc) {
+            arc(DRAW_ARC, x, y, w, h, start, arc);
+        }
+        public void fillRoundRect(int x, int y, int w, int h, int aw, int ah) {
+            arc(FILL_ROUND_RECT, x, y, w, h, aw, ah);
+        }
+        public void drawRoundRect(int x, int y, int w, int h, int aw, int ah) {
+            arc(DRAW_ROUND_RECT, x, y, w, h, aw, ah);
+        }
+        public void fillPolygon(int[] xs, int[] ys, int n) {
+            points(FILL_POLYGON, xs, ys, n);
+        }
+        public void drawPolygon(int[] xs, int[] ys, int n) {
+            points(DRAW_POLYGON, xs, ys, n);
+        }
+        public void drawPolyline(int[] xs, int[] ys, int n) {
+            points(DRAW_POLYLINE, xs, ys, n);
+        }
+        public void drawString(String str, int x, int y) {
+            if (font != recordedFont) {
+                add(SET_FONT);
+                add(indexOf(font));
+                recordedFont = font;
+            }
+            recordColor();
+            add(DRAW_STRING);
+            add(indexOf(str));
+            add(x + transX);
+            add(y + transY);
+            operationCount++;
+        }
+    }
+}
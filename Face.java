@@ -4,6 +4,8 @@
 
 // imports
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
 
 ////////////////////////////////////////////////////////
 // class Face - a face, which can draw itself
@@ -18,9 +20,25 @@ import java.awt.*;
 // A Face object provides the following public methods:
 //   - Face - the constructor
 //   - setLocation - moves the face to a different position
-//   - drawOn - draws the face on a graphics object
+//   - setFaceListener - sets what is told of the area to draw again when
+//                       the face moves
+//   - drawOn - draws the face on a graphics object, possibly at a scale
 //   - getWidth - tells the face's width
 //   - getHeight - tells the face's height
+//   - getX - tells the face's horizontal position
+//   - getY - tells the face's vertical position
+//   - getBounds - tells the rectangle that the drawn face occupies
+//   - contains - tells whether the drawn face covers a pixel
+//   - setSpriteCache - (static) has all faces drawn through a SpriteCache
+//   - setFaceAtlas - (static) has faces drawn from a FaceAtlas
+//   - setDisplayListsEnabled - (static) has all faces drawn by replaying
+//                              a recording of their drawing operations
+//   - getDetailLevel - tells how much of the face is drawn at its size,
+//                      or at a scale
+//   - setLevelOfDetailEnabled - (static) has small faces drawn with fewer
+//                               parts
+//   - setDetailThresholds - (static) sets the sizes at which parts are
+//                           left out
 //
 ////////////////////////////////////////////////////////
 public class Face {
@@ -33,6 +51,90 @@ public class Face {
     private int x; // position of head's left
     private int y; // position of head's top
 
+    // the nose and hair outlines before they are fitted to a face.  These
+    // are the same for every face, so they are built only once.  (FaceBatch
+    // uses them too.)
+    static final Polygon2 NOSE_SHAPE = makeNoseShape();
+    static final Polygon2 HAIR_SHAPE = CrescentCache.shared(50, 180);
+
+    // the cache through which all faces are drawn, or null if faces are
+    // to be drawn directly
+    private static SpriteCache spriteCache = null;
+
+    // the atlas from which faces of the classes and sizes in it are drawn,
+    // or null if there is none
+    private static FaceAtlas faceAtlas = null;
+
+    // whether faces are drawn by replaying recordings (see DisplayList)
+    private static boolean displayListsEnabled = false;
+
+    // the levels of detail: just the head; the head, eyes and mouth; and
+    // everything
+    public static final int DETAIL_HEAD = 0;
+    public static final int DETAIL_FEATURES = 1;
+    public static final int DETAIL_FULL = 2;
+
+    // where each part of a face is drawn, as percentages of the face's
+    // size: the left and top of the part's box, and its width and height.
+    // ("Left" and "right" are as the face is seen.)  FaceStyle draws
+    // faces from these too, so they must not be changed.
+    static final double[] HEAD_BOX = { 0, 0, 100, 100 };
+    static final double[] LEFT_EYE_WHITE_BOX = { 18, 38, 11, 11 };
+    static final double[] RIGHT_EYE_WHITE_BOX = { 74, 38, 11, 11 };
+    static final double[] LEFT_EYE_CENTER_BOX = { 20, 40, 8, 8 };
+    static final double[] RIGHT_EYE_CENTER_BOX = { 76, 40, 8, 8 };
+    static final double[] MOUTH_BOX = { 20, 80, 60, 5 };
+    static final double[] NOSE_BOX = { 40, 50, 20, 15 };
+    static final double[] HAIR_BOX = { 10, 0, 80, 20 };
+    static final double[] LEFT_EAR_BOX = { -10, 45, 12, 20 };
+    static final double[] RIGHT_EAR_BOX = { 98, 45, 12, 20 };
+
+    // the least level of detail at which each part is drawn
+    static final int HEAD_DETAIL = DETAIL_HEAD;
+    static final int EYES_DETAIL = DETAIL_FEATURES;
+    static final int MOUTH_DETAIL = DETAIL_FEATURES;
+    static final int NOSE_DETAIL = DETAIL_FULL;
+    static final int HAIR_DETAIL = DETAIL_FULL;
+    static final int EARS_DETAIL = DETAIL_FULL;
+
+    // whether small faces are drawn with less detail, and the sizes (of
+    // the smaller of a face's width and height) below which they are
+    private static boolean levelOfDetailEnabled = false;
+    private static int featureDetailSize = 8;
+    private static int fullDetailSize = 16;
+
+    // increased whenever the level-of-detail settings change, so that
+    // recordings made under the old settings are not used
+    private static volatile int detailSettingsVersion = 0;
+
+    // a one-pixel image for each thread, on which contains() has Java fill
+    // an oval or the hair to see whether it covers a pixel
+    private static final ThreadLocal<BufferedImage> hitPixel =
+        new ThreadLocal<BufferedImage>() {
+            protected BufferedImage initialValue() {
+                return new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+            }
+        };
+
+    // this face's recording, or null if it has not been recorded (or
+    // cannot be); 'recordable' becomes false if recording fails
+    private DisplayList displayList = null;
+    private int displayListVersion;
+    private boolean recordable = true;
+
+    // the spatial index that this face is in, if any; it is told when the
+    // face moves (see FaceGrid)
+    FaceGrid grid = null;
+
+    // what is told of the area to be drawn again when the face moves, if
+    // anything (see FaceListener)
+    private FaceListener listener = null;
+
+    // fitted shapes that have already been computed for this face, keyed by
+    // the name of the shape's recipe (e.g., "nose", "hair"); created when
+    // the face is first drawn
+    private HashMap<String, FittedShape> shapeCache = null;
+
     ////////////////////////////////////////////////////////
     // Face - face constructor
     //
@@ -74,7 +176,9 @@ public class Face {
     //   yVal - the vertical position of the topmost part of the head
     //
     // side-effects:
-    //   the location of the face is changed
+    //   the location of the face is changed.  If the face is in a FaceGrid,
+    //   the grid is updated.  If the face has a listener and has actually
+    //   moved, the listener is given the union of its old and new bounds.
     //
     // bugs/anomalies:
     //   the x and y position denote those of the head.  It is possible that
@@ -82,11 +186,60 @@ public class Face {
     //
     ////////////////////////////////////////////////////////
     public void setLocation(int xVal, int yVal) {
-        // change the position
+        FaceListener l = listener;
+        Rectangle oldBounds = null;
+        if (l != null && (xVal != x || yVal != y)) {
+            oldBounds = this.getBounds();
+        }
+
+        // change the position.  Cached shapes notice the move the next
+        // time they are drawn, and are refitted in place.
         x = xVal;
         y = yVal;
+
+        // keep the spatial index (if any) up to date
+        if (grid != null) {
+            grid.faceMoved(this);
+        }
+
+        // tell the listener (if any) what needs to be drawn again
+        if (oldBounds != null) {
+            Rectangle area = this.getBounds();
+            area.add(oldBounds);
+            l.faceChanged(this, area);
+        }
     }
 
+    ////////////////////////////////////////////////////////
+    // setFaceListener - sets what is told when the face moves
+    //
+    // calling sequence:
+    //   aFace.setFaceListener(aListener);
+    //
+    // parameters:
+    //   l - the listener, or null for none
+    //
+    // side-effects:
+    //   the listener replaces any earlier one; later calls to
+    //   'setLocation' that move the face tell it the area to draw again
+    //
+    // bugs/anomalies:
+    //   A face has only one listener, which is meant to be whatever shows
+    //   the face.
+    //
+    ////////////////////////////////////////////////////////
+    public void setFaceListener(FaceListener l) {
+        listener = l;
+    }
+
+    ////////////////////////////////////////////////////////
+    // getFaceListener - tells what is told when the face moves
+    //
+    // return value:
+    //   the listener, or null if there is none
+    ////////////////////////////////////////////////////////
+    public FaceListener getFaceListener() { return listener; }
+
     ////////////////////////////////////////////////////////
     // drawOn - draws the face
     //
@@ -112,10 +265,332 @@ public class Face {
     ////////////////////////////////////////////////////////
     public final void drawOn(Graphics g) {
         Color temp = g.getColor();
-        this.helpDrawOn(g);
+        SpriteCache cache = spriteCache;
+        FaceAtlas atlas = faceAtlas;
+        if (atlas != null && atlas.drawFace(this, g)) {
+            // drawn from the atlas
+        }
+        else if (cache != null) {
+            cache.drawFace(this, g);
+        }
+        else if (displayListsEnabled) {
+            DisplayList list = this.getDisplayList();
+            if (list != null) {
+                list.replay(g, x, y);
+            }
+            else {
+                this.helpDrawOn(g);
+            }
+        }
+        else {
+            this.helpDrawOn(g);
+        }
+        g.setColor(temp);
+    }
+
+    ////////////////////////////////////////////////////////
+    // drawOn - draws the face as it will be seen at some scale
+    //
+    // calling sequence:
+    //   aFace.drawOn(g, scale);
+    //
+    // parameters:
+    //   g - the graphics object on which to draw the face, whose transform
+    //       scales what is drawn by about 'scale'
+    //   scale - the number of pixels on the screen for each unit of the
+    //           face's size (e.g., 0.5 when zoomed out to half size)
+    //
+    // side-effects:
+    //   the face is drawn on the graphics object, leaving out the parts
+    //   that are too small to see at that scale (see getDetailLevel).  The
+    //   graphics object's color is unchanged.
+    //
+    // bugs/anomalies:
+    //   A sprite cache or display list is used only if the face is drawn
+    //   with the parts that 'drawOn(g)' would draw; otherwise, the face is
+    //   drawn directly, by Face's drawing of the parts (so a subclass that
+    //   overrides helpDrawOn should be drawn only with 'drawOn(g)').
+    //
+    ////////////////////////////////////////////////////////
+    public final void drawOn(Graphics g, double scale) {
+        int level = this.getDetailLevel(scale);
+        if (level == this.getDetailLevel()) {
+            this.drawOn(g);
+            return;
+        }
+        Color temp = g.getColor();
+        this.drawParts(g, level);
         g.setColor(temp);
     }
 
+    ////////////////////////////////////////////////////////
+    // setDisplayListsEnabled - causes all faces to be drawn by replaying a
+    //                          recording of their drawing operations
+    //
+    // calling sequence:
+    //   Face.setDisplayListsEnabled(enabled);
+    //
+    // parameters:
+    //   enabled - true to draw faces from recordings; false to draw them
+    //             directly
+    //
+    // side-effects:
+    //   when enabled, the first call to 'drawOn' for a face records its
+    //   drawing (see DisplayList); later calls replay the recording at the
+    //   face's current position, until the face's size changes
+    //
+    // bugs/anomalies:
+    //   A face whose drawing depends on anything other than its width and
+    //   height should not be drawn this way.  A sprite cache, if set, takes
+    //   priority.  A face that cannot be recorded is drawn directly.
+    //
+    ////////////////////////////////////////////////////////
+    public static void setDisplayListsEnabled(boolean enabled) {
+        displayListsEnabled = enabled;
+    }
+
+    ////////////////////////////////////////////////////////
+    // isDisplayListsEnabled - tells whether faces are drawn from recordings
+    ////////////////////////////////////////////////////////
+    public static boolean isDisplayListsEnabled() {
+        return displayListsEnabled;
+    }
+
+    ////////////////////////////////////////////////////////
+    // getDisplayList - gives the recording of this face's drawing, making
+    //                  it if necessary
+    //
+    // return-value:
+    //   the recording, or null if the face cannot be recorded
+    ////////////////////////////////////////////////////////
+    synchronized DisplayList getDisplayList() {
+        if (!recordable) {
+            return null;
+        }
+        int version = detailSettingsVersion;
+        if (displayList == null || displayList.getWidth() != width ||
+            displayList.getHeight() != height ||
+            displayListVersion != version) {
+            try {
+                displayList = DisplayList.record(this);
+                displayListVersion = version;
+            }
+            catch (UnsupportedOperationException e) {
+                // this face draws something that cannot be recorded
+                recordable = false;
+                displayList = null;
+            }
+        }
+        return displayList;
+    }
+
+    ////////////////////////////////////////////////////////
+    // setLevelOfDetailEnabled - causes small faces to be drawn with fewer
+    //                           parts
+    //
+    // calling sequence:
+    //   Face.setLevelOfDetailEnabled(enabled);
+    //
+    // parameters:
+    //   enabled - true to leave out the parts of small faces that would be
+    //             too small to see; false to draw every face in full
+    //
+    // side-effects:
+    //   from now on, each face is drawn at the level of detail that
+    //   'getDetailLevel' gives.  Any sprite cache is cleared, and display
+    //   lists are recorded again.
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public static void setLevelOfDetailEnabled(boolean enabled) {
+        levelOfDetailEnabled = enabled;
+        detailSettingsChanged();
+    }
+
+    ////////////////////////////////////////////////////////
+    // isLevelOfDetailEnabled - tells whether small faces are drawn with
+    //                          fewer parts
+    ////////////////////////////////////////////////////////
+    public static boolean isLevelOfDetailEnabled() {
+        return levelOfDetailEnabled;
+    }
+
+    ////////////////////////////////////////////////////////
+    // setDetailThresholds - sets the sizes at which faces lose detail
+    //
+    // calling sequence:
+    //   Face.setDetailThresholds(featureSize, fullSize);
+    //
+    // parameters:
+    //   featureSize - a face whose width or height is less than this many
+    //                 pixels is drawn as just its head (default 8)
+    //   fullSize - a face whose width or height is less than this (but not
+    //              less than 'featureSize') is drawn as its head, eyes and
+    //              mouth (default 16)
+    //
+    // side-effects:
+    //   the thresholds are changed for every class that does not override
+    //   'featureDetailSize' or 'fullDetailSize'.  Any sprite cache is
+    //   cleared, and display lists are recorded again.
+    //
+    // bugs/anomalies:
+    //   throws IllegalArgumentException if a size is negative, or if
+    //   'featureSize' is greater than 'fullSize'
+    //
+    ////////////////////////////////////////////////////////
+    public static void setDetailThresholds(int featureSize, int fullSize) {
+        if (featureSize < 0 || featureSize > fullSize) {
+            throw new IllegalArgumentException("bad detail thresholds: " +
+                                               featureSize + ", " + fullSize);
+        }
+        featureDetailSize = featureSize;
+        fullDetailSize = fullSize;
+        detailSettingsChanged();
+    }
+
+    ////////////////////////////////////////////////////////
+    // detailSettingsChanged - discards drawings made under the old
+    //                         level-of-detail settings
+    ////////////////////////////////////////////////////////
+    private static void detailSettingsChanged() {
+        detailSettingsVersion++;
+        SpriteCache cache = spriteCache;
+        if (cache != null) {
+            cache.clear();
+        }
+        FaceAtlas atlas = faceAtlas;
+        if (atlas != null) {
+            atlas.redraw();
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // getDetailLevel - tells how much of this face is drawn at its size
+    //
+    // return-value:
+    //   DETAIL_HEAD, DETAIL_FEATURES or DETAIL_FULL; always DETAIL_FULL if
+    //   level of detail is not enabled
+    ////////////////////////////////////////////////////////
+    public int getDetailLevel() {
+        if (!levelOfDetailEnabled) {
+            return DETAIL_FULL;
+        }
+        return this.getDetailLevel(1.0);
+    }
+
+    ////////////////////////////////////////////////////////
+    // getDetailLevel - tells how much of this face is drawn at a scale
+    //
+    // parameters:
+    //   scale - the number of pixels on the screen for each unit of the
+    //           face's size
+    //
+    // return-value:
+    //   DETAIL_HEAD, DETAIL_FEATURES or DETAIL_FULL, from the face's size
+    //   on the screen.  Unlike the level at the face's own size, this does
+    //   not depend on whether level of detail is enabled: a view that
+    //   scales faces asks for it explicitly.
+    ////////////////////////////////////////////////////////
+    public int getDetailLevel(double scale) {
+        double size = Math.min(width, height)*scale;
+        if (size < this.featureDetailSize()) {
+            return DETAIL_HEAD;
+        }
+        return size < this.fullDetailSize() ? DETAIL_FEATURES : DETAIL_FULL;
+    }
+
+    ////////////////////////////////////////////////////////
+    // defaultDetailLevel - tells the level of detail of a face of a class
+    //                      that keeps the default thresholds; for FaceBatch
+    ////////////////////////////////////////////////////////
+    static int defaultDetailLevel(int w, int h) {
+        if (!levelOfDetailEnabled) {
+            return DETAIL_FULL;
+        }
+        int size = Math.min(w, h);
+        if (size < featureDetailSize) {
+            return DETAIL_HEAD;
+        }
+        return size < fullDetailSize ? DETAIL_FEATURES : DETAIL_FULL;
+    }
+
+    ////////////////////////////////////////////////////////
+    // featureDetailSize/fullDetailSize - tell the detail thresholds (see
+    //   setDetailThresholds); a subclass whose features stay visible at
+    //   smaller (or larger) sizes may override these
+    ////////////////////////////////////////////////////////
+    protected int featureDetailSize() {
+        return featureDetailSize;
+    }
+    protected int fullDetailSize() {
+        return fullDetailSize;
+    }
+
+    ////////////////////////////////////////////////////////
+    // setSpriteCache - causes all faces to be drawn through a sprite cache
+    //
+    // calling sequence:
+    //   Face.setSpriteCache(aCache);
+    //
+    // parameters:
+    //   cache - the cache to use, or null to draw faces directly
+    //
+    // side-effects:
+    //   later calls to 'drawOn' copy a pre-drawn image of the face instead
+    //   of drawing the face part by part
+    //
+    // bugs/anomalies:
+    //   This assumes that what a face draws depends only on its class, width
+    //   and height.  A subclass for which that is not true should not be
+    //   used while a cache is set.
+    //
+    ////////////////////////////////////////////////////////
+    public static void setSpriteCache(SpriteCache cache) {
+        spriteCache = cache;
+    }
+
+    ////////////////////////////////////////////////////////
+    // getSpriteCache - tells the cache through which faces are drawn
+    //
+    // return value:
+    //   the cache, or null if faces are drawn directly
+    ////////////////////////////////////////////////////////
+    public static SpriteCache getSpriteCache() { return spriteCache; }
+
+    ////////////////////////////////////////////////////////
+    // setFaceAtlas - causes faces whose class and size are in an atlas to
+    //                be drawn from it
+    //
+    // calling sequence:
+    //   Face.setFaceAtlas(anAtlas);
+    //
+    // parameters:
+    //   atlas - the atlas to use, or null to use none
+    //
+    // side-effects:
+    //   later calls to 'drawOn' for a face whose class and size are in the
+    //   atlas copy the face's picture from it; other faces are drawn as
+    //   before (through the sprite cache, if one is set, and so on).  The
+    //   atlas is redrawn whenever the level-of-detail settings change.
+    //
+    // bugs/anomalies:
+    //   as for setSpriteCache
+    //
+    ////////////////////////////////////////////////////////
+    public static void setFaceAtlas(FaceAtlas atlas) {
+        faceAtlas = atlas;
+    }
+
+    ////////////////////////////////////////////////////////
+    // getFaceAtlas - tells the atlas from which faces are drawn
+    //
+    // return value:
+    //   the atlas, or null if there is none
+    ////////////////////////////////////////////////////////
+    public static FaceAtlas getFaceAtlas() { return faceAtlas; }
+
     ////////////////////////////////////////////////////////
     // getWidth - tells the face's width
     //
@@ -154,6 +629,195 @@ public class Face {
     ////////////////////////////////////////////////////////
     public int getHeight() { return height; }
 
+    ////////////////////////////////////////////////////////
+    // getX - tells the face's horizontal position
+    //
+    // calling sequence:
+    //   anInt = aFace.getX();
+    //
+    // return value:
+    //   the position of the leftmost part of the head
+    //
+    // side-effects:
+    //   none
+    //
+    // bugs/anomalies:
+    //   the ears may extend to the left of this position.
+    //
+    ////////////////////////////////////////////////////////
+    public int getX() { return x; }
+
+    ////////////////////////////////////////////////////////
+    // getY - tells the face's vertical position
+    //
+    // calling sequence:
+    //   anInt = aFace.getY();
+    //
+    // return value:
+    //   the position of the topmost part of the head
+    //
+    // side-effects:
+    //   none
+    //
+    // bugs/anomalies:
+    //   the hair, etc. of a subclass may extend above this position.
+    //
+    ////////////////////////////////////////////////////////
+    public int getY() { return y; }
+
+    ////////////////////////////////////////////////////////
+    // getBounds - tells the rectangle that the drawn face occupies
+    //
+    // calling sequence:
+    //   aRect = aFace.getBounds();
+    //
+    // return value:
+    //   the smallest rectangle that contains everything that 'drawOn'
+    //   draws, including the ears that stick out beyond the head
+    //
+    // side-effects:
+    //   creates a new object; otherwise, none
+    //
+    // bugs/anomalies:
+    //   A subclass that draws outside of the head or ears (e.g., tall hair)
+    //   must override this method.
+    //
+    ////////////////////////////////////////////////////////
+    public Rectangle getBounds() {
+        // the ears are the only parts that extend beyond the head
+        int left = Math.min(x, pixelX(LEFT_EAR_BOX[0]));
+        int right = Math.max(x + width, pixelX(RIGHT_EAR_BOX[0]) +
+                             distX(RIGHT_EAR_BOX[2]));
+        return new Rectangle(left, y, right - left, height);
+    }
+
+    ////////////////////////////////////////////////////////
+    // contains - tells whether the face covers a pixel
+    //
+    // calling sequence:
+    //   aBoolean = aFace.contains(px, py);
+    //
+    // parameters:
+    //   px - the pixel's horizontal position
+    //   py - the pixel's vertical position
+    //
+    // return value:
+    //   true if drawing the face would paint the pixel: if it is in the
+    //   head, or (when they are drawn at the face's level of detail) in an
+    //   ear or the hair.  The eyes, nose and mouth lie within the head.
+    //
+    // side-effects:
+    //   the fitted hair may be computed and remembered, as when drawing
+    //
+    // bugs/anomalies:
+    //   Java fills a shape slightly differently depending on where it is on
+    //   the drawing surface.  A pixel near the edge of the head, an ear or
+    //   the hair is tested by having Java fill that part on a one-pixel
+    //   image, with the pixel at the image's origin; an image that is drawn
+    //   on with another offset (e.g., a window's back buffer) may differ at
+    //   a few of those pixels.  A subclass that draws outside of the head,
+    //   ears and hair must override this method.
+    //
+    ////////////////////////////////////////////////////////
+    public boolean contains(int px, int py) {
+        if (px < pixelX(LEFT_EAR_BOX[0]) || py < y || py >= y + height) {
+            // above, below or to the left of everything
+            return false;
+        }
+        if (inOval(px, py, x, y, width, height)) {
+            return true;
+        }
+        int level = this.getDetailLevel();
+        if (level >= EARS_DETAIL &&
+            (inOval(px, py, LEFT_EAR_BOX) || inOval(px, py, RIGHT_EAR_BOX))) {
+            return true;
+        }
+        if (level < HAIR_DETAIL) {
+            return false;
+        }
+
+        Polygon2 hair = fitBox("hair", HAIR_SHAPE, HAIR_BOX);
+        Rectangle b = hair.getBounds();
+        if (px < b.x - 1 || px > b.x + b.width || py < b.y - 1 ||
+            py > b.y + b.height) {
+            return false;
+        }
+        Graphics g = pixelGraphics(px, py);
+        g.fillPolygon(hair);
+        return pixelPainted(g);
+    }
+
+    ////////////////////////////////////////////////////////
+    // inOval - tells whether a filled oval covers a pixel
+    //
+    // A pixel whose square (widened by half a pixel on every side) lies
+    // inside the ideal ellipse is covered, and one whose square (so
+    // widened) lies outside is not; Java's filled ovals stray from the
+    // ideal ellipse by less than that.  For the few pixels in between,
+    // Java is asked to fill the oval.
+    ////////////////////////////////////////////////////////
+    private static boolean inOval(int px, int py, int left, int top, int w,
+                                  int h) {
+        if (w <= 0 || h <= 0) {
+            return false;
+        }
+        double rx = w/2.0;
+        double ry = h/2.0;
+        double dx = Math.abs(px + 0.5 - (left + rx));
+        double dy = Math.abs(py + 0.5 - (top + ry));
+        double far = sq((dx + 1)/rx) + sq((dy + 1)/ry);
+        if (far <= 1) {
+            return true;
+        }
+        double near = sq(Math.max(dx - 1, 0)/rx) +
+            sq(Math.max(dy - 1, 0)/ry);
+        if (near > 1) {
+            return false;
+        }
+
+        Graphics g = pixelGraphics(px, py);
+        g.fillOval(left, top, w, h);
+        return pixelPainted(g);
+    }
+
+    ////////////////////////////////////////////////////////
+    // pixelGraphics - clears this thread's one-pixel image, and gives a
+    //                 graphics object that draws on it with a pixel at
+    //                 its origin
+    ////////////////////////////////////////////////////////
+    private static Graphics pixelGraphics(int px, int py) {
+        BufferedImage pixel = hitPixel.get();
+        pixel.setRGB(0, 0, 0);
+        Graphics g = pixel.getGraphics();
+        g.translate(-px, -py);
+        return g;
+    }
+
+    ////////////////////////////////////////////////////////
+    // pixelPainted - disposes of a graphics object from pixelGraphics, and
+    //                tells whether it painted the pixel
+    ////////////////////////////////////////////////////////
+    private static boolean pixelPainted(Graphics g) {
+        g.dispose();
+        return hitPixel.get().getRGB(0, 0) != 0;
+    }
+
+    ////////////////////////////////////////////////////////
+    // sq - squares a number
+    ////////////////////////////////////////////////////////
+    private static double sq(double d) {
+        return d*d;
+    }
+
+    ////////////////////////////////////////////////////////
+    // inOval - tells whether the oval filling one of the parts' boxes
+    //          covers a pixel
+    ////////////////////////////////////////////////////////
+    private boolean inOval(int px, int py, double[] box) {
+        return inOval(px, py, pixelX(box[0]), pixelY(box[1]), distX(box[2]),
+                      distY(box[3]));
+    }
+
     ////////////////////////////////////////////////////////
     // helpDrawOn - draws the face
     //
@@ -165,7 +829,8 @@ public class Face {
     //
     // side-effects:
     //   the face is drawn on the graphics object. The graphics object's
-    //   color is modified.
+    //   color is modified.  Parts too small to see are left out, if level
+    //   of detail is enabled (see getDetailLevel).
     //
     // bugs/anomalies:
     //   This method does not preserve the graphics object's color, because
@@ -174,15 +839,78 @@ public class Face {
     //
     ////////////////////////////////////////////////////////
     protected void helpDrawOn(Graphics g) {
+        this.drawParts(g, this.getDetailLevel());
+    }
+
+    ////////////////////////////////////////////////////////
+    // drawParts - draws the parts of the face that are drawn at a level of
+    //             detail; used by helpDrawOn, and by drawOn at a scale
+    ////////////////////////////////////////////////////////
+    private void drawParts(Graphics g, int level) {
+        if (RenderTimings.isEnabled()) {
+            timedHelpDrawOn(g, level, RenderTimings.forClass(getClass()));
+            return;
+        }
+
         // draw the head, first so that other features will be visible over it
         this.drawHead(g);
 
-        // draw the other features
-        this.drawEyes(g);
-        this.drawMouth(g);
-        this.drawNose(g);
-        this.drawHair(g);
-        this.drawEars(g);
+        // draw the other features, as far as the face is large enough
+        if (level >= EYES_DETAIL) {
+            this.drawEyes(g);
+        }
+        if (level >= MOUTH_DETAIL) {
+            this.drawMouth(g);
+        }
+        if (level >= NOSE_DETAIL) {
+            this.drawNose(g);
+        }
+        if (level >= HAIR_DETAIL) {
+            this.drawHair(g);
+        }
+        if (level >= EARS_DETAIL) {
+            this.drawEars(g);
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // timedHelpDrawOn - draws the face as helpDrawOn does, recording how
+    //                   long each part takes (see RenderTimings)
+    ////////////////////////////////////////////////////////
+    private void timedHelpDrawOn(Graphics g, int level,
+                                 RenderTimings.ClassTimings t) {
+        long t0 = System.nanoTime();
+        this.drawHead(g);
+        long t1 = System.nanoTime();
+        t.record(RenderTimings.HEAD, t1 - t0);
+        if (level >= EYES_DETAIL) {
+            this.drawEyes(g);
+            long t2 = System.nanoTime();
+            t.record(RenderTimings.EYES, t2 - t1);
+            t1 = t2;
+        }
+        if (level >= MOUTH_DETAIL) {
+            this.drawMouth(g);
+            long t2 = System.nanoTime();
+            t.record(RenderTimings.MOUTH, t2 - t1);
+            t1 = t2;
+        }
+        if (level >= NOSE_DETAIL) {
+            this.drawNose(g);
+            long t2 = System.nanoTime();
+            t.record(RenderTimings.NOSE, t2 - t1);
+            t1 = t2;
+        }
+        if (level >= HAIR_DETAIL) {
+            this.drawHair(g);
+            long t2 = System.nanoTime();
+            t.record(RenderTimings.HAIR, t2 - t1);
+            t1 = t2;
+        }
+        if (level >= EARS_DETAIL) {
+            this.drawEars(g);
+            t.record(RenderTimings.EARS, System.nanoTime() - t1);
+        }
     }
 
     ////////////////////////////////////////////////////////
@@ -260,8 +988,8 @@ public class Face {
         // 11% of those of the head.  The left eye should be similarly placed,
         // but on the other side.	
         g.setColor(Color.white);
-        g.fillOval(pixelX(18), pixelY(38), distX(11), distY(11));
-        g.fillOval(pixelX(74), pixelY(38), distX(11), distY(11));
+        fillOval(g, LEFT_EYE_WHITE_BOX);
+        fillOval(g, RIGHT_EYE_WHITE_BOX);
     }
 
     ////////////////////////////////////////////////////////
@@ -286,8 +1014,8 @@ public class Face {
         // draw the colored portion of the eyes.  They should be inside
         // the white portions, as drawn by drawEyeWhites.
         g.setColor(eyeColor());
-        g.fillOval(pixelX(20), pixelY(40), distX(8), distY(8));
-        g.fillOval(pixelX(76), pixelY(40), distX(8), distY(8));
+        fillOval(g, LEFT_EYE_CENTER_BOX);
+        fillOval(g, RIGHT_EYE_CENTER_BOX);
     }
 
     ////////////////////////////////////////////////////////
@@ -312,11 +1040,7 @@ public class Face {
         // create a triangular nose, fitting it inside a bounding-box that
         // is approximately in the middle of the face, and is 20% of the
         // face's width and 15% of its height
-        Polygon2 p = new Polygon2();
-        p.addPoint(100,0);
-        p.addPoint(200,200);
-        p.addPoint(0,200);
-        p = p.fitIn(pixelX(40), pixelY(50), distX(20), distY(15));
+        Polygon2 p = fitBox("nose", NOSE_SHAPE, NOSE_BOX);
 
         // draw the nose object as brown (dark orange)
         g.setColor(noseColor());
@@ -346,7 +1070,8 @@ public class Face {
         // is the appropriate one.  The mouth should be hear the bottom
         // of the face, and be a bit more than half of the face's width
         g.setColor(this.mouthColor());
-        g.fillRect(pixelX(20), pixelY(80), distX(60), distY(5));
+        g.fillRect(pixelX(MOUTH_BOX[0]), pixelY(MOUTH_BOX[1]),
+                   distX(MOUTH_BOX[2]), distY(MOUTH_BOX[3]));
     }
 
     ////////////////////////////////////////////////////////
@@ -370,9 +1095,7 @@ public class Face {
     protected void drawHair(Graphics g) {
         // Use the appropiate color. Then draw an upside down half circle to resemble hair        
         g.setColor(this.hairColor());
-        Polygon2 hair = new Polygon2(50);
-        hair = hair.rotateBy(180);
-        hair = hair.fitIn(pixelX(10),pixelY(0),distX(80),distY(20));
+        Polygon2 hair = fitBox("hair", HAIR_SHAPE, HAIR_BOX);
         g.fillPolygon(hair);
     }
 
@@ -398,8 +1121,26 @@ public class Face {
         g.setColor(headColor());
 
         // draw the ears as ovals that extend a bit beyond the head
-        g.fillOval(pixelX(-10), pixelY(45), distX(12), distY(20));
-        g.fillOval(pixelX(98), pixelY(45), distX(12), distY(20));
+        fillOval(g, LEFT_EAR_BOX);
+        fillOval(g, RIGHT_EAR_BOX);
+    }
+
+    ////////////////////////////////////////////////////////
+    // fillOval - fills the oval in one of the parts' boxes (e.g.,
+    //            LEFT_EAR_BOX), in the graphics object's current color
+    ////////////////////////////////////////////////////////
+    private void fillOval(Graphics g, double[] box) {
+        g.fillOval(pixelX(box[0]), pixelY(box[1]), distX(box[2]),
+                   distY(box[3]));
+    }
+
+    ////////////////////////////////////////////////////////
+    // fitBox - fits a shape inside one of the parts' boxes (e.g.,
+    //          HAIR_BOX), as fitCached does
+    ////////////////////////////////////////////////////////
+    private Polygon2 fitBox(String recipe, Polygon2 shape, double[] box) {
+        return fitCached(recipe, shape, pixelX(box[0]), pixelY(box[1]),
+                         distX(box[2]), distY(box[3]));
     }
 
     ////////////////////////////////////////////////////////
@@ -602,6 +1343,87 @@ public class Face {
         return (int)Math.round(yv*height/100.0);
     }
 
+    ////////////////////////////////////////////////////////
+    // fitCached - fits a shape inside a rectangle, reusing the result of
+    //             an earlier fit when possible
+    //
+    // calling sequence:
+    //   aPoly2 = aFace.fitCached(recipe, shape, left, top, w, h);
+    //
+    // parameters:
+    //   recipe - a name for the shape (e.g., "nose"); each distinct shape
+    //            that a face draws should use its own name
+    //   shape - the unfitted shape
+    //   left - the location of the left edge of the rectangle
+    //   top - the location of the top edge of the rectangle
+    //   w - the width of the rectangle
+    //   h - the height of the rectangle
+    //
+    // return-value:
+    //   the same result as 'shape.fitIn(left, top, w, h)'
+    //
+    // side-effects:
+    //   the fitted shape is remembered, so that drawing the face again
+    //   at the same location and size does not recompute it.  When the
+    //   rectangle does change, the remembered polygon is refitted in place,
+    //   so that no new objects are created.
+    //
+    // bugs/anomalies:
+    //   The returned polygon is shared with later calls, so the caller must
+    //   not modify it.  A given recipe name must always be used with the
+    //   same unfitted shape.  The method is synchronized so that several
+    //   threads may draw the same face at once (see TiledRenderer), as long
+    //   as the face is not moved while they do.
+    //
+    ////////////////////////////////////////////////////////
+    protected synchronized Polygon2 fitCached(String recipe, Polygon2 shape,
+                                 int left, int top, int w, int h) {
+        if (shapeCache == null) {
+            shapeCache = new HashMap<String, FittedShape>();
+        }
+        FittedShape fs = shapeCache.get(recipe);
+        if (fs == null) {
+            fs = new FittedShape();
+            fs.poly = new Polygon2();
+            shapeCache.put(recipe, fs);
+        }
+        else if (fs.left == left && fs.top == top &&
+                 fs.width == w && fs.height == h) {
+            return fs.poly;
+        }
+
+        // (re)compute the fitted shape, and remember what it was fitted to
+        PolygonTransform.fitIn(shape, left, top, w, h, fs.poly);
+        fs.left = left;
+        fs.top = top;
+        fs.width = w;
+        fs.height = h;
+        return fs.poly;
+    }
+
+    ////////////////////////////////////////////////////////
+    // makeNoseShape - creates the (unfitted) triangle used for the nose
+    ////////////////////////////////////////////////////////
+    private static Polygon2 makeNoseShape() {
+        Polygon2 p = new Polygon2();
+        p.addPoint(100,0);
+        p.addPoint(200,200);
+        p.addPoint(0,200);
+        return p;
+    }
+
+    ////////////////////////////////////////////////////////
+    // class FittedShape - a shape that has been fitted to a rectangle,
+    // along with the rectangle it was fitted to
+    ////////////////////////////////////////////////////////
+    private static class FittedShape {
+        int left;
+        int top;
+        int width;
+        int height;
+        Polygon2 poly;
+    }
+
     // NATE ADDED FUNCTION:
     protected Polygon2 fitCentered(Polygon2 shape, int centerX, int centerY, int width, int height)
     {
@@ -0,0 +1,316 @@
+////////////////////////////////////////////////////////
+// FaceAtlas.java - pre-drawn faces packed into one image
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+
+////////////////////////////////////////////////////////
+// class FaceAtlas - a single image holding a pre-drawn picture of each of a
+// fixed set of (class, width, height) combinations
+//
+// Like a SpriteCache, a FaceAtlas draws each face once and afterwards just
+// copies the picture to wherever the face is.  But where a SpriteCache
+// makes a separate image for each combination as it is first needed, and
+// may discard it later, an atlas draws all of the combinations it is given
+// when it is created, packing them side by side into one large image, and
+// keeps a table of where in that image each one is.  Drawing a face is then
+// a copy of part of that one image.  This suits programs that draw the
+// same few kinds of faces at the same few sizes over and over: the
+// pictures take up one block of memory instead of many small ones, and
+// Java2D has only one image to keep in (and copy from) video memory.
+//
+// To have all faces drawn through an atlas, use Face.setFaceAtlas; faces
+// whose class and size are not in the atlas are then drawn as usual.
+//
+// A FaceAtlas object provides the following public methods:
+//   - FaceAtlas - the constructors
+//   - contains - tells whether a class and size are in the atlas
+//   - drawFace - draws a face (a Face or a PlacedFace) from the atlas
+//   - getImage - gives the atlas's image
+//   - getFaceCount - tells the number of pictures in the atlas
+//   - redraw - draws the pictures again (e.g., after the level-of-detail
+//     settings change)
+//
+////////////////////////////////////////////////////////
+public class FaceAtlas {
+
+    // the number of transparent pixels left between pictures, so that
+    // copying a picture at a scale (which blends neighbouring pixels) does
+    // not pick up the edge of the next one
+    private static final int GAP = 1;
+
+    ///////////////////////////////
+    // instance variables
+    ///////////////////////////////
+
+    // the image into which all of the pictures are drawn
+    private BufferedImage image;
+
+    // where each picture is, by class, width and height
+    private HashMap<SpriteCache.Key, Cell> cells =
+        new HashMap<SpriteCache.Key, Cell>();
+
+    ////////////////////////////////////////////////////////
+    // FaceAtlas - constructor
+    //
+    // calling sequence:
+    //   anAtlas = new FaceAtlas(types, sizes);
+    //
+    // parameters:
+    //   types - the types of face to draw
+    //   sizes - the sizes (width and height) at which to draw each type
+    //
+    // side-effects:
+    //   every type of face is drawn at every size into a newly-created
+    //   image; pictures that would be identical (the same type and size
+    //   given twice) are drawn only once
+    //
+    // bugs/anomalies:
+    //   The pictures are drawn as the faces would be drawn under the
+    //   current level-of-detail settings (see Face.setLevelOfDetailEnabled);
+    //   if those settings change, call 'redraw'.  Faces are packed in rows
+    //   into an image about as wide as it is tall, which wastes some space
+    //   when their heights differ a great deal.  Throws
+    //   IllegalArgumentException if a width or height is not positive.
+    //
+    ////////////////////////////////////////////////////////
+    public FaceAtlas(FaceType[] types, Dimension[] sizes) {
+        // make a face of each type and size, and find the room it needs
+        ArrayList<Cell> list = new ArrayList<Cell>();
+        long area = 0;
+        int widest = 1;
+        for (FaceType type : types) {
+            for (Dimension d : sizes) {
+                if (d.width <= 0 || d.height <= 0) {
+                    throw new IllegalArgumentException("bad size: " +
+                                                       d.width + "x" +
+                                                       d.height);
+                }
+                SpriteCache.Key key = new SpriteCache.Key(type.getFaceClass(),
+                                                          d.width, d.height);
+                if (cells.containsKey(key)) {
+                    continue;
+                }
+                Face f = type.create(d.width, d.height);
+                Rectangle b = f.getBounds();
+                Cell cell = new Cell(f, Math.max(b.width, 1),
+                                     Math.max(b.height, 1), b.x - f.getX(),
+                                     b.y - f.getY());
+                cells.put(key, cell);
+                list.add(cell);
+                area += (long)(cell.width + GAP)*(cell.height + GAP);
+                widest = Math.max(widest, cell.width + GAP);
+            }
+        }
+
+        // place them in rows, tallest first, so that each row wastes as
+        // little height as it can
+        Collections.sort(list, new Comparator<Cell>() {
+            public int compare(Cell a, Cell b) {
+                return b.height != a.height ? b.height - a.height
+                    : b.width - a.width;
+            }
+        });
+        int atlasWidth = Math.max(widest, (int)Math.ceil(Math.sqrt(area)));
+        int rowX = 0;
+        int rowY = 0;
+        int rowHeight = 0;
+        for (Cell cell : list) {
+            if (rowX + cell.width > atlasWidth) {
+                rowX = 0;
+                rowY += rowHeight;
+                rowHeight = 0;
+            }
+            cell.sx = rowX;
+            cell.sy = rowY;
+            rowX += cell.width + GAP;
+            rowHeight = Math.max(rowHeight, cell.height + GAP);
+        }
+
+        image = new BufferedImage(atlasWidth, Math.max(rowY + rowHeight, 1),
+                                  BufferedImage.TYPE_INT_ARGB);
+        drawCells();
+    }
+
+    ////////////////////////////////////////////////////////
+    // FaceAtlas - constructor, for every type of face at some square sizes
+    //
+    // calling sequence:
+    //   anAtlas = new FaceAtlas(size1, size2, ...);
+    //
+    // parameters:
+    //   sizes - the widths (and heights) at which to draw each type
+    ////////////////////////////////////////////////////////
+    public FaceAtlas(int... sizes) {
+        this(FaceType.values(), squares(sizes));
+    }
+
+    ////////////////////////////////////////////////////////
+    // squares - makes a square Dimension of each size
+    ////////////////////////////////////////////////////////
+    private static Dimension[] squares(int[] sizes) {
+        Dimension[] result = new Dimension[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            result[i] = new Dimension(sizes[i], sizes[i]);
+        }
+        return result;
+    }
+
+    ////////////////////////////////////////////////////////
+    // contains - tells whether the atlas has a picture of faces of some
+    //            class and size
+    ////////////////////////////////////////////////////////
+    public boolean contains(Class<?> faceClass, int width, int height) {
+        return cells.containsKey(new SpriteCache.Key(faceClass, width,
+                                                     height));
+    }
+
+    ////////////////////////////////////////////////////////
+    // drawFace - draws a face by copying its picture from the atlas
+    //
+    // calling sequence:
+    //   drawn = anAtlas.drawFace(aFace, g);
+    //
+    // parameters:
+    //   f - the face to draw
+    //   g - the graphics object on which to draw the face
+    //
+    // return-value:
+    //   true if the face was drawn; false (and nothing is drawn) if the
+    //   atlas has no picture of the face's class and size
+    //
+    // side-effects:
+    //   the face is drawn on the graphics object
+    //
+    // bugs/anomalies:
+    //   as for SpriteCache.drawFace: the picture is drawn without the
+    //   graphics object's rendering hints, and a few pixels along the edges
+    //   of the nose and hair may differ from a face drawn directly.  A face
+    //   whose drawing depends on anything other than its class, width and
+    //   height should not be drawn this way.
+    //
+    ////////////////////////////////////////////////////////
+    public boolean drawFace(Face f, Graphics g) {
+        Cell cell = cells.get(new SpriteCache.Key(f.getClass(), f.getWidth(),
+                                                  f.getHeight()));
+        if (cell == null) {
+            return false;
+        }
+        cell.copy(image, g, f.getX(), f.getY());
+        return true;
+    }
+
+    ////////////////////////////////////////////////////////
+    // drawFace - draws a PlacedFace by copying its picture from the atlas
+    //
+    // calling sequence:
+    //   drawn = anAtlas.drawFace(aPlacedFace, g);
+    //
+    // parameters:
+    //   p - the face to draw
+    //   g - the graphics object on which to draw the face
+    //
+    // return-value:
+    //   true if the face was drawn; false (and nothing is drawn) if the
+    //   atlas has no picture of the face's style's class and size
+    //
+    // side-effects:
+    //   the face is drawn on the graphics object
+    //
+    // bugs/anomalies:
+    //   as for drawFace(Face, Graphics)
+    //
+    ////////////////////////////////////////////////////////
+    public boolean drawFace(PlacedFace p, Graphics g) {
+        Cell cell = cells.get(new SpriteCache.Key(
+            p.getStyle().getFaceClass(), p.getWidth(), p.getHeight()));
+        if (cell == null) {
+            return false;
+        }
+        cell.copy(image, g, p.getX(), p.getY());
+        return true;
+    }
+
+    ////////////////////////////////////////////////////////
+    // simple accessors
+    ////////////////////////////////////////////////////////
+    public BufferedImage getImage() { return image; }
+    public int getFaceCount() { return cells.size(); }
+
+    ////////////////////////////////////////////////////////
+    // redraw - draws every picture in the atlas again
+    //
+    // calling sequence:
+    //   anAtlas.redraw();
+    //
+    // side-effects:
+    //   each face is drawn into the atlas's image again, at the same
+    //   place, under the current level-of-detail settings
+    //
+    // bugs/anomalies:
+    //   A face being drawn from the atlas by another thread while it is
+    //   redrawn may be drawn partly old and partly new.
+    //
+    ////////////////////////////////////////////////////////
+    public synchronized void redraw() {
+        drawCells();
+    }
+
+    ////////////////////////////////////////////////////////
+    // drawCells - draws each face into its place in the image
+    ////////////////////////////////////////////////////////
+    private void drawCells() {
+        WritableRaster raster = image.getRaster();
+        for (Cell cell : cells.values()) {
+            // draw the face on its own, at the same position in the image
+            // as in a SpriteCache's sprite, and copy it into place; Java's
+            // polygon filling can differ slightly when a polygon is drawn
+            // elsewhere, so drawing straight into the atlas would not match
+            BufferedImage sprite = new BufferedImage(cell.width, cell.height,
+                                                     BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2 = sprite.createGraphics();
+            g2.translate(-cell.bx - cell.face.getX(),
+                         -cell.by - cell.face.getY());
+            cell.face.helpDrawOn(g2);
+            g2.dispose();
+            raster.setRect(cell.sx, cell.sy, sprite.getRaster());
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // class Cell - where one picture is in the atlas: its top-left corner
+    // (sx,sy) and size, the face that it is a picture of, and the offset
+    // (bx,by) of the face's bounds from its (x,y) position
+    ////////////////////////////////////////////////////////
+    private static class Cell {
+        private Face face;
+        private int width;
+        private int height;
+        private int bx;
+        private int by;
+        private int sx;
+        private int sy;
+
+        Cell(Face f, int w, int h, int x, int y) {
+            face = f;
+            width = w;
+            height = h;
+            bx = x;
+            by = y;
+        }
+
+        ////////////////////////////////////////////////////////
+        // copy - draws this picture from an atlas's image for a face at
+        //        (x,y)
+        ////////////////////////////////////////////////////////
+        void copy(BufferedImage atlas, Graphics g, int x, int y) {
+            int dx = x + bx;
+            int dy = y + by;
+            g.drawImage(atlas, dx, dy, dx + width, dy + height,
+                        sx, sy, sx + width, sy + height, null);
+        }
+    }
+}
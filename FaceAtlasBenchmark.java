@@ -0,0 +1,111 @@
+////////////////////////////////////////////////////////
+// FaceAtlasBenchmark.java - compares drawing faces from a FaceAtlas with
+// drawing them through a SpriteCache and directly
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+
+////////////////////////////////////////////////////////
+// class FaceAtlasBenchmark - builds an atlas of every type of face at a
+// few sizes, reports how long that takes and how large the atlas is,
+// checks that faces drawn from it look the same as faces drawn through a
+// SpriteCache, then times drawing the same faces directly, through a
+// SpriteCache, and from the atlas
+//
+// To run:
+//   java FaceAtlasBenchmark [faceCount]
+//
+////////////////////////////////////////////////////////
+public class FaceAtlasBenchmark {
+
+    private static final int CANVAS_SIZE = 1000;
+    private static final int ROUNDS = 3;
+    private static final int[] SIZES = { 16, 24, 32, 48, 64, 96 };
+
+    // //////////////////////////////////////////////////////
+    // main - runs the benchmark
+    // //////////////////////////////////////////////////////
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+
+        long t0 = System.nanoTime();
+        FaceAtlas atlas = new FaceAtlas(SIZES);
+        long t1 = System.nanoTime();
+        BufferedImage image = atlas.getImage();
+        System.out.printf("atlas of %d faces: %dx%d pixels (%d KB), " +
+                          "built in %.1f ms%n", atlas.getFaceCount(),
+                          image.getWidth(), image.getHeight(),
+                          4L*image.getWidth()*image.getHeight()/1024,
+                          (t1 - t0)/1e6);
+
+        Face[] faces = makeFaces(n);
+        SpriteCache cache = new SpriteCache(64L << 20);
+        BufferedImage direct = FaceBenchmarks.newCanvas(CANVAS_SIZE);
+        BufferedImage sprites = FaceBenchmarks.newCanvas(CANVAS_SIZE);
+        BufferedImage atlased = FaceBenchmarks.newCanvas(CANVAS_SIZE);
+        draw(faces, direct.getGraphics(), null, null);
+        draw(faces, sprites.getGraphics(), cache, null);
+        draw(faces, atlased.getGraphics(), null, atlas);
+        System.out.printf("pixels that differ: from SpriteCache %d, " +
+                          "from direct drawing %d%n",
+                          FaceBenchmarks.countDifferences(sprites, atlased),
+                          FaceBenchmarks.countDifferences(direct, atlased));
+
+        Graphics g = FaceBenchmarks.newCanvas(CANVAS_SIZE).getGraphics();
+        for (int round = 0; round < ROUNDS; round++) {
+            long s0 = System.nanoTime();
+            draw(faces, g, null, null);
+            long s1 = System.nanoTime();
+            draw(faces, g, cache, null);
+            long s2 = System.nanoTime();
+            draw(faces, g, null, atlas);
+            long s3 = System.nanoTime();
+            System.out.printf("%d faces: direct %.0f faces/s, SpriteCache " +
+                              "%.0f faces/s, FaceAtlas %.0f faces/s%n", n,
+                              n/((s1 - s0)/1e9), n/((s2 - s1)/1e9),
+                              n/((s3 - s2)/1e9));
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // makeFaces - makes faces of random types, at random sizes from SIZES,
+    //             at random places on the canvas
+    ////////////////////////////////////////////////////////
+    private static Face[] makeFaces(int n) {
+        Random rand = new Random(1);
+        FaceType[] types = FaceType.values();
+        Face[] faces = new Face[n];
+        for (int i = 0; i < n; i++) {
+            int size = SIZES[rand.nextInt(SIZES.length)];
+            faces[i] = types[rand.nextInt(types.length)].create(size, size);
+            faces[i].setLocation(rand.nextInt(CANVAS_SIZE - size),
+                                 rand.nextInt(CANVAS_SIZE - size));
+        }
+        return faces;
+    }
+
+    ////////////////////////////////////////////////////////
+    // draw - draws faces through a sprite cache, or from an atlas, or (if
+    //        both are null) directly
+    ////////////////////////////////////////////////////////
+    private static void draw(Face[] faces, Graphics g, SpriteCache cache,
+                             FaceAtlas atlas) {
+        SpriteCache oldCache = Face.getSpriteCache();
+        FaceAtlas oldAtlas = Face.getFaceAtlas();
+        Face.setSpriteCache(cache);
+        Face.setFaceAtlas(atlas);
+        try {
+            for (Face f : faces) {
+                f.drawOn(g);
+            }
+        }
+        finally {
+            Face.setSpriteCache(oldCache);
+            Face.setFaceAtlas(oldAtlas);
+        }
+    }
+}
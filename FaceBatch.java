@@ -0,0 +1,273 @@
+////////////////////////////////////////////////////////
+// FaceBatch.java - a large number of faces, stored compactly
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.*;
+
+////////////////////////////////////////////////////////
+// class FaceBatch - many faces, stored as arrays of numbers
+//
+// Each Face is a separate object.  When there are a million of them, the
+// object headers and references take up more memory than the faces' actual
+// data.  A FaceBatch instead keeps the x-positions of all of its faces in
+// one array, the y-positions in another, and so on, along with a FaceType
+// for each face.  Drawing the batch does not create an object per face.
+//
+// The faces are drawn exactly as Face.drawOn would draw them, by the
+// FaceStyle of each face's class.  (A class that changes how the parts of
+// a face are drawn, rather than just their colors, cannot be drawn from
+// the arrays alone; its style draws each face by creating a temporary Face
+// object.)
+//
+// A FaceBatch object provides the following public methods:
+//   - FaceBatch - the constructor
+//   - add - adds a face
+//   - setLocation - moves a face
+//   - size - tells the number of faces
+//   - getType/getX/getY/getWidth/getHeight - tell about a face
+//   - drawOn - draws the faces on a graphics object
+//   - bytesPerFace - (static) tells the memory used for each face
+//
+////////////////////////////////////////////////////////
+public class FaceBatch {
+
+    ///////////////////////////////
+    // instance variables
+    ///////////////////////////////
+
+    // the faces' data; only the first 'count' elements are used
+    private byte[] types;
+    private int[] xs;
+    private int[] ys;
+    private int[] widths;
+    private int[] heights;
+    private int count;
+
+    // a polygon used when drawing noses and hair; reused for every face
+    private Polygon scratch = new Polygon2();
+
+    // the face types, and their styles, indexed by ordinal
+    private static final FaceType[] TYPES = FaceType.values();
+    private static final FaceStyle[] STYLES = makeStyles();
+
+    ////////////////////////////////////////////////////////
+    // FaceBatch - constructor
+    //
+    // calling sequence:
+    //   aBatch = new FaceBatch(capacity);
+    //
+    // parameters:
+    //   capacity - the number of faces expected; the batch grows as
+    //              needed if more are added
+    //
+    // side-effects:
+    //   the (empty) batch is created
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public FaceBatch(int capacity) {
+        capacity = Math.max(capacity, 1);
+        types = new byte[capacity];
+        xs = new int[capacity];
+        ys = new int[capacity];
+        widths = new int[capacity];
+        heights = new int[capacity];
+    }
+
+    ////////////////////////////////////////////////////////
+    // add - adds a face to the batch
+    //
+    // calling sequence:
+    //   anInt = aBatch.add(type, x, y, w, h);
+    //
+    // parameters:
+    //   type - the kind of face
+    //   x - the position of the head's left
+    //   y - the position of the head's top
+    //   w - the face's width
+    //   h - the face's height
+    //
+    // return-value:
+    //   the index of the new face
+    //
+    // side-effects:
+    //   the face is added after (i.e., is drawn over) all the others
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public int add(FaceType type, int x, int y, int w, int h) {
+        if (count == xs.length) {
+            grow();
+        }
+        types[count] = (byte)type.ordinal();
+        xs[count] = x;
+        ys[count] = y;
+        widths[count] = w;
+        heights[count] = h;
+        return count++;
+    }
+
+    ////////////////////////////////////////////////////////
+    // add - adds a copy of a Face object to the batch
+    //
+    // calling sequence:
+    //   anInt = aBatch.add(aFace);
+    //
+    // parameters:
+    //   f - the face to copy
+    //
+    // return-value:
+    //   the index of the new face
+    //
+    // side-effects:
+    //   the face is added after (i.e., is drawn over) all the others
+    //
+    // bugs/anomalies:
+    //   throws IllegalArgumentException if the face's class is not one of
+    //   those in FaceType
+    //
+    ////////////////////////////////////////////////////////
+    public int add(Face f) {
+        FaceType type = FaceType.of(f);
+        if (type == null) {
+            throw new IllegalArgumentException("not a known face type: " +
+                                               f.getClass().getName());
+        }
+        return add(type, f.getX(), f.getY(), f.getWidth(), f.getHeight());
+    }
+
+    ////////////////////////////////////////////////////////
+    // setLocation - moves a face
+    //
+    // parameters:
+    //   i - the face's index
+    //   x - the new position of the head's left
+    //   y - the new position of the head's top
+    ////////////////////////////////////////////////////////
+    public void setLocation(int i, int x, int y) {
+        checkIndex(i);
+        xs[i] = x;
+        ys[i] = y;
+    }
+
+    ////////////////////////////////////////////////////////
+    // simple accessors
+    ////////////////////////////////////////////////////////
+    public int size() { return count; }
+    public FaceType getType(int i) {
+        checkIndex(i);
+        return TYPES[types[i]];
+    }
+    public int getX(int i) { checkIndex(i); return xs[i]; }
+    public int getY(int i) { checkIndex(i); return ys[i]; }
+    public int getWidth(int i) { checkIndex(i); return widths[i]; }
+    public int getHeight(int i) { checkIndex(i); return heights[i]; }
+
+    ////////////////////////////////////////////////////////
+    // bytesPerFace - tells the memory used for each face in a batch
+    //
+    // return-value:
+    //   the number of bytes of array storage per face (not counting any
+    //   unused capacity)
+    ////////////////////////////////////////////////////////
+    public static int bytesPerFace() {
+        return 1 + 4*4;
+    }
+
+    ////////////////////////////////////////////////////////
+    // drawOn - draws all of the faces
+    //
+    // calling sequence:
+    //   aBatch.drawOn(g);
+    //
+    // parameters:
+    //   g - the graphics object on which to draw the faces
+    //
+    // side-effects:
+    //   the faces are drawn in the order they were added.  The graphics
+    //   object's color is unchanged.
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public void drawOn(Graphics g) {
+        drawOn(g, null);
+    }
+
+    ////////////////////////////////////////////////////////
+    // drawOn - draws the faces in a given area
+    //
+    // calling sequence:
+    //   aBatch.drawOn(g, clip);
+    //
+    // parameters:
+    //   g - the graphics object on which to draw the faces
+    //   clip - the area of interest, or null for everything; faces that
+    //          lie entirely outside of it are skipped
+    //
+    // side-effects:
+    //   the faces are drawn in the order they were added.  The graphics
+    //   object's color is unchanged.
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public void drawOn(Graphics g, Rectangle clip) {
+        Color temp = g.getColor();
+        for (int i = 0; i < count; i++) {
+            int x = xs[i], y = ys[i], w = widths[i], h = heights[i];
+
+            // the same bounds as Face.getBounds: the ears stick out
+            if (clip != null) {
+                int left = FaceStyle.boundsLeft(x, w);
+                int right = FaceStyle.boundsRight(x, w);
+                if (right <= clip.x || left >= clip.x + clip.width ||
+                    y + h <= clip.y || y >= clip.y + clip.height) {
+                    continue;
+                }
+            }
+
+            STYLES[types[i]].draw(g, x, y, w, h, scratch);
+        }
+        g.setColor(temp);
+    }
+
+    ////////////////////////////////////////////////////////
+    // grow - doubles the capacity of the arrays
+    ////////////////////////////////////////////////////////
+    private void grow() {
+        int n = 2*xs.length;
+        types = java.util.Arrays.copyOf(types, n);
+        xs = java.util.Arrays.copyOf(xs, n);
+        ys = java.util.Arrays.copyOf(ys, n);
+        widths = java.util.Arrays.copyOf(widths, n);
+        heights = java.util.Arrays.copyOf(heights, n);
+    }
+
+    ////////////////////////////////////////////////////////
+    // checkIndex - makes sure that an index refers to a face
+    ////////////////////////////////////////////////////////
+    private void checkIndex(int i) {
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException("face " + i + " of " + count);
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // makeStyles - gets the style of each type of face
+    ////////////////////////////////////////////////////////
+    private static FaceStyle[] makeStyles() {
+        FaceStyle[] result = new FaceStyle[TYPES.length];
+        for (int t = 0; t < TYPES.length; t++) {
+            result[t] = FaceStyle.of(TYPES[t]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,209 @@
+////////////////////////////////////////////////////////
+// FaceBatchBenchmark.java - compares a FaceBatch and PlacedFaces with Face
+//                           objects
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+
+////////////////////////////////////////////////////////
+// class FaceBatchBenchmark - checks that a FaceBatch, and PlacedFaces,
+// draw the same pixels as the equivalent Face objects, then measures the
+// memory used by each (for a million faces by default) and the time taken
+// to draw them
+//
+// To run (the heap must hold a million Face objects):
+//   java -Xmx1g FaceBatchBenchmark [faceCount]
+//
+////////////////////////////////////////////////////////
+public class FaceBatchBenchmark {
+
+    private static final int CANVAS_SIZE = 1000;
+
+    // //////////////////////////////////////////////////////
+    // main - runs the benchmark
+    // //////////////////////////////////////////////////////
+    public static void main(String[] args) {
+        int n = 1000000;
+        if (args.length > 0) {
+            n = Integer.parseInt(args[0]);
+        }
+
+        checkSamePixels();
+        measureMemory(n);
+        measureDrawing(Math.min(n, 100000));
+    }
+
+    ////////////////////////////////////////////////////////
+    // checkSamePixels - draws random faces of every type both ways, and
+    //                   makes sure the images are identical
+    ////////////////////////////////////////////////////////
+    private static void checkSamePixels() {
+        Random rand = new Random(1);
+        FaceType[] types = FaceType.values();
+        Face[] faces = new Face[3000];
+        PlacedFace[] placed = new PlacedFace[faces.length];
+        FaceBatch batch = new FaceBatch(16);
+        for (int i = 0; i < faces.length; i++) {
+            faces[i] = types[rand.nextInt(types.length)].create(
+                1 + rand.nextInt(250), 1 + rand.nextInt(250));
+            faces[i].setLocation(rand.nextInt(CANVAS_SIZE) - 100,
+                                 rand.nextInt(CANVAS_SIZE) - 100);
+            placed[i] = new PlacedFace(faces[i]);
+            batch.add(faces[i]);
+            if (!placed[i].getBounds().equals(faces[i].getBounds())) {
+                throw new IllegalStateException("PlacedFace bounds differ");
+            }
+        }
+
+        BufferedImage expected = newCanvas();
+        Graphics g = expected.getGraphics();
+        for (int i = 0; i < faces.length; i++) {
+            faces[i].drawOn(g);
+        }
+        BufferedImage actual = newCanvas();
+        batch.drawOn(actual.getGraphics());
+        checkSame(expected, actual, "FaceBatch");
+
+        actual = newCanvas();
+        g = actual.getGraphics();
+        for (int i = 0; i < placed.length; i++) {
+            placed[i].drawOn(g);
+        }
+        checkSame(expected, actual, "PlacedFace");
+    }
+
+    ////////////////////////////////////////////////////////
+    // checkSame - reports the number of pixels that differ between two
+    //             images, and complains if there are any
+    ////////////////////////////////////////////////////////
+    private static void checkSame(BufferedImage expected,
+                                  BufferedImage actual, String what) {
+        int differ = 0;
+        for (int y = 0; y < CANVAS_SIZE; y++) {
+            for (int x = 0; x < CANVAS_SIZE; x++) {
+                if (expected.getRGB(x, y) != actual.getRGB(x, y)) {
+                    differ++;
+                }
+            }
+        }
+        System.out.println(what + " pixels that differ from Face.drawOn: " +
+                           differ);
+        if (differ != 0) {
+            throw new IllegalStateException(what + " draws differently");
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // measureMemory - reports the heap used per face, each way
+    ////////////////////////////////////////////////////////
+    private static void measureMemory(int n) {
+        Random rand = new Random(2);
+        FaceType[] types = FaceType.values();
+
+        long before = usedHeap();
+        Face[] faces = new Face[n];
+        for (int i = 0; i < n; i++) {
+            faces[i] = types[rand.nextInt(types.length)].create(50, 50);
+            faces[i].setLocation(rand.nextInt(100000), rand.nextInt(100000));
+        }
+        long faceBytes = usedHeap() - before;
+
+        // draw a few, to see what a Face keeps once it has been drawn
+        Graphics g = newCanvas().getGraphics();
+        int drawn = Math.min(n, 10000);
+        before = usedHeap();
+        for (int i = 0; i < drawn; i++) {
+            faces[i].drawOn(g);
+        }
+        long drawnBytes = usedHeap() - before;
+
+        before = usedHeap();
+        PlacedFace[] placed = new PlacedFace[n];
+        for (int i = 0; i < n; i++) {
+            placed[i] = new PlacedFace(faces[i]);
+        }
+        long placedBytes = usedHeap() - before;
+
+        before = usedHeap();
+        FaceBatch batch = new FaceBatch(n);
+        for (int i = 0; i < n; i++) {
+            batch.add(faces[i]);
+        }
+        long batchBytes = usedHeap() - before;
+
+        System.out.printf("%d faces: Face objects %.1f bytes/face " +
+                          "(%.1f more once drawn), PlacedFace %.1f " +
+                          "bytes/face,%n  FaceBatch %.1f bytes/face " +
+                          "(%d of array data)%n",
+                          n, (double)faceBytes/n, (double)drawnBytes/drawn,
+                          (double)placedBytes/n, (double)batchBytes/n,
+                          FaceBatch.bytesPerFace());
+
+        // keep them all alive until they have been measured
+        if (faces[n - 1] == null || placed[n - 1] == null ||
+            batch.size() != n) {
+            throw new IllegalStateException();
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // measureDrawing - reports the time taken to draw the faces each way
+    ////////////////////////////////////////////////////////
+    private static void measureDrawing(int n) {
+        Random rand = new Random(3);
+        FaceType[] types = FaceType.values();
+        Face[] faces = new Face[n];
+        PlacedFace[] placed = new PlacedFace[n];
+        FaceBatch batch = new FaceBatch(n);
+        for (int i = 0; i < n; i++) {
+            faces[i] = types[rand.nextInt(types.length)].create(20, 20);
+            faces[i].setLocation(rand.nextInt(CANVAS_SIZE),
+                                 rand.nextInt(CANVAS_SIZE));
+            placed[i] = new PlacedFace(faces[i]);
+            batch.add(faces[i]);
+        }
+        Graphics g = newCanvas().getGraphics();
+        for (int round = 0; round < 3; round++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                faces[i].drawOn(g);
+            }
+            long t1 = System.nanoTime();
+            batch.drawOn(g);
+            long t2 = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                placed[i].drawOn(g);
+            }
+            long t3 = System.nanoTime();
+            System.out.printf("draw %d faces: Face objects %.1f ms, " +
+                              "FaceBatch %.1f ms, PlacedFace %.1f ms%n", n,
+                              (t1 - t0)/1e6, (t2 - t1)/1e6, (t3 - t2)/1e6);
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // newCanvas - creates a white image to draw on
+    ////////////////////////////////////////////////////////
+    private static BufferedImage newCanvas() {
+        BufferedImage image = new BufferedImage(CANVAS_SIZE, CANVAS_SIZE,
+                                                BufferedImage.TYPE_INT_ARGB);
+        Graphics g = image.getGraphics();
+        g.setColor(Color.white);
+        g.fillRect(0, 0, CANVAS_SIZE, CANVAS_SIZE);
+        return image;
+    }
+
+    ////////////////////////////////////////////////////////
+    // usedHeap - tells the heap in use, after collecting garbage
+    ////////////////////////////////////////////////////////
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,586 @@
+////////////////////////////////////////////////////////
+// FaceBenchmarks.java - micro-benchmarks for Face and Polygon2
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.*;
+import java.awt.image.*;
+import java.lang.management.*;
+import java.util.*;
+
+////////////////////////////////////////////////////////
+// class FaceBenchmarks - times the basic operations that drawing faces
+// depends on, and measures how much memory each one allocates
+//
+// The benchmarks are:
+//   - drawOn for each type of face (see FaceType)
+//   - new Polygon2(crescentPercent), alone and rotated
+//   - Polygon2.fitIn, rotateBy and scaleBy
+//   - CrescentCache.get and PolygonTransform.rotateBy, which replace
+//     new Polygon2(crescentPercent) and rotateBy with table lookups
+//   - PolygonTransform.fitIn and rotateBy one polygon at a time, and in
+//     batches (per polygon)
+//   - Face.pixelX and Face.distX
+//   - drawing a label with Graphics.drawString and with FaceLabel.drawOn
+//
+// Each benchmark is warmed up, then run for several timed iterations.  For
+// each one, the program reports the average time per operation and the
+// number of bytes allocated per operation (measured with the JVM's
+// per-thread allocation counter, as a GC profiler would).  A change to Face
+// or Polygon2 can be judged by running this before and after.
+//
+// A faster replacement is only useful if it gives the same results, so
+// before timing anything the program checks that it does:
+//   - CrescentCache gives exactly the points of Polygon2, for every
+//     half-percent at every whole angle (and some fractional ones)
+//   - FaceStyle draws exactly the pixels of Face.drawOn, for every type of
+//     face at every level of detail
+//   - the batch versions of PolygonTransform.fitIn and rotateBy give
+//     exactly the points of the single versions
+//
+// To run:
+//   java FaceBenchmarks [nameFilter]
+//
+// where 'nameFilter', if given, runs only the benchmarks whose names
+// contain it (e.g., "drawOn").
+//
+// To see instead how long each part of each type of face takes to draw
+// (see RenderTimings):
+//   java FaceBenchmarks -parts [count]
+//
+// The other benchmark programs (e.g., TiledRendererBenchmark), which
+// check that a faster way of drawing gives the same image, use this
+// class's newCanvas and countDifferences to do so.
+//
+////////////////////////////////////////////////////////
+public class FaceBenchmarks {
+
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURED_ITERATIONS = 5;
+    private static final long ITERATION_NANOS = 200000000L;
+
+    // the size of the images on which faces are drawn to be compared
+    private static final int CHECK_SIZE = 150;
+
+    // results are added into this, so that the JIT cannot skip the work
+    private static volatile long sink;
+
+    // //////////////////////////////////////////////////////
+    // main - runs the benchmarks
+    // //////////////////////////////////////////////////////
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        if (args.length > 0 && args[0].equals("-parts")) {
+            timeParts(args.length > 1 ? Integer.parseInt(args[1]) : 20000);
+            return;
+        }
+        String filter = args.length > 0 ? args[0] : "";
+
+        checkCrescents();
+        checkFaceStyles();
+        checkBatchTransforms();
+
+        ArrayList<Benchmark> benchmarks = new ArrayList<Benchmark>();
+        benchmarks.addAll(drawOnBenchmarks());
+        addPolygonBenchmarks(benchmarks);
+        addCoordinateBenchmarks(benchmarks);
+        addLabelBenchmarks(benchmarks);
+
+        System.out.printf("%-32s %14s %14s%n", "benchmark", "ns/op", "B/op");
+        for (int i = 0; i < benchmarks.size(); i++) {
+            Benchmark b = benchmarks.get(i);
+            if (b.name.contains(filter)) {
+                measure(b);
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // drawOnBenchmarks - makes a benchmark drawing each type of face
+    ////////////////////////////////////////////////////////
+    private static ArrayList<DrawOn> drawOnBenchmarks() {
+        ArrayList<DrawOn> list = new ArrayList<DrawOn>();
+        FaceType[] types = FaceType.values();
+        for (int i = 0; i < types.length; i++) {
+            list.add(new DrawOn(types[i]));
+        }
+        return list;
+    }
+
+    ////////////////////////////////////////////////////////
+    // timeParts - draws each type of face 'count' times with RenderTimings
+    //             on, and prints how long each part took
+    ////////////////////////////////////////////////////////
+    private static void timeParts(int count) {
+        ArrayList<DrawOn> list = drawOnBenchmarks();
+        RenderTimings.reset();
+        RenderTimings.setEnabled(true);
+        for (int i = 0; i < list.size(); i++) {
+            sink += list.get(i).run(count);
+        }
+        RenderTimings.setEnabled(false);
+        RenderTimings.report(System.out);
+    }
+
+    ////////////////////////////////////////////////////////
+    // checkBatchTransforms - makes sure that the batch versions of
+    //                        PolygonTransform.fitIn and rotateBy give the
+    //                        same points as the single versions
+    ////////////////////////////////////////////////////////
+    private static void checkBatchTransforms() {
+        int count = 10000;
+        Random rand = new Random(1);
+        Polygon[] shapes = { Face.HAIR_SHAPE, Face.NOSE_SHAPE,
+                             CrescentCache.get(5), CrescentCache.get(95, 37) };
+        int[] lefts = new int[count];
+        int[] tops = new int[count];
+        int[] widths = new int[count];
+        int[] heights = new int[count];
+        double[] degrees = new double[count];
+        for (int k = 0; k < count; k++) {
+            lefts[k] = rand.nextInt(2000) - 500;
+            tops[k] = rand.nextInt(2000) - 500;
+            widths[k] = 1 + rand.nextInt(400);
+            heights[k] = 1 + rand.nextInt(400);
+            degrees[k] = k % 3 == 0 ? rand.nextDouble()*720 - 360
+                : rand.nextInt(360);
+        }
+
+        Polygon single = new Polygon();
+        for (int s = 0; s < shapes.length; s++) {
+            int n = shapes[s].npoints;
+            int[] xs = new int[count*n];
+            int[] ys = new int[count*n];
+            PolygonTransform.fitIn(shapes[s], count, lefts, tops, widths,
+                                   heights, xs, ys);
+            for (int k = 0; k < count; k++) {
+                PolygonTransform.fitIn(shapes[s], lefts[k], tops[k],
+                                       widths[k], heights[k], single);
+                checkPoints(single, xs, ys, k*n, "fitIn");
+            }
+            PolygonTransform.rotateBy(shapes[s], count, degrees, xs, ys);
+            for (int k = 0; k < count; k++) {
+                PolygonTransform.rotateBy(shapes[s], degrees[k], single);
+                checkPoints(single, xs, ys, k*n, "rotateBy");
+            }
+        }
+        System.out.println(shapes.length*count + " polygons identical " +
+                           "fitted and rotated singly and in batches");
+    }
+
+    ////////////////////////////////////////////////////////
+    // checkPoints - complains if a polygon's points differ from those at a
+    //               given offset in a pair of flat arrays
+    ////////////////////////////////////////////////////////
+    private static void checkPoints(Polygon expected, int[] xs, int[] ys,
+                                    int offset, String what) {
+        for (int i = 0; i < expected.npoints; i++) {
+            if (expected.xpoints[i] != xs[offset + i] ||
+                expected.ypoints[i] != ys[offset + i]) {
+                throw new IllegalStateException("batch " + what +
+                                                " differs at point " + i);
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // checkCrescents - makes sure that CrescentCache's crescents are
+    //                  identical to Polygon2's
+    ////////////////////////////////////////////////////////
+    private static void checkCrescents() {
+        int checked = 0;
+        for (int p = 0; p <= 200; p++) {
+            double percent = p/2.0;
+            Polygon2 crescent = new Polygon2(percent);
+            for (int d = -90; d <= 450; d++) {
+                double degrees = d % 7 == 0 ? d + 0.25 : d;
+                Polygon2 expected = crescent.rotateBy(degrees);
+                Polygon2 actual = CrescentCache.get(percent, degrees);
+                boolean same = expected.npoints == actual.npoints;
+                for (int i = 0; same && i < expected.npoints; i++) {
+                    same = expected.xpoints[i] == actual.xpoints[i] &&
+                        expected.ypoints[i] == actual.ypoints[i];
+                }
+                if (!same) {
+                    throw new IllegalStateException(
+                        "crescent " + percent + " at " + degrees +
+                        " degrees differs from Polygon2's");
+                }
+                checked++;
+            }
+        }
+        System.out.println(checked + " crescents identical to Polygon2's");
+    }
+
+    ////////////////////////////////////////////////////////
+    // checkFaceStyles - makes sure that each type's FaceStyle draws the
+    //                   same pixels as Face.drawOn, at every size from 1
+    //                   to 100 pixels wide, so at every level of detail
+    ////////////////////////////////////////////////////////
+    private static void checkFaceStyles() {
+        boolean wasEnabled = Face.isLevelOfDetailEnabled();
+        Face.setLevelOfDetailEnabled(true);
+        try {
+            Random rand = new Random(4);
+            FaceType[] types = FaceType.values();
+            int checked = 0;
+            for (int t = 0; t < types.length; t++) {
+                FaceStyle style = FaceStyle.of(types[t]);
+                boolean[] seen = new boolean[Face.DETAIL_FULL + 1];
+                for (int w = 1; w <= 100; w++) {
+                    Face f = types[t].create(w, w/2 + rand.nextInt(w/2 + 20));
+                    f.setLocation(15 + rand.nextInt(5), rand.nextInt(5));
+                    BufferedImage expected = newCanvas(CHECK_SIZE);
+                    BufferedImage actual = newCanvas(CHECK_SIZE);
+                    f.drawOn(expected.getGraphics());
+                    style.draw(actual.getGraphics(), f.getX(), f.getY(),
+                               f.getWidth(), f.getHeight(), null);
+                    if (countDifferences(expected, actual) != 0) {
+                        throw new IllegalStateException(
+                            "FaceStyle draws a " + f.getWidth() + "x" +
+                            f.getHeight() + " " + types[t] + " face " +
+                            "differently from Face.drawOn");
+                    }
+                    seen[f.getDetailLevel()] = true;
+                    checked++;
+                }
+                for (int level = 0; level < seen.length; level++) {
+                    if (!seen[level]) {
+                        throw new IllegalStateException(
+                            "no " + types[t] + " face was drawn at detail " +
+                            "level " + level);
+                    }
+                }
+            }
+            System.out.println(checked + " faces drawn identically by " +
+                               "FaceStyle, at every level of detail");
+        }
+        finally {
+            Face.setLevelOfDetailEnabled(wasEnabled);
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // measure - warms up a benchmark, then times it and reports the results
+    ////////////////////////////////////////////////////////
+    private static void measure(Benchmark b) {
+        // find a number of operations that takes about one iteration's time
+        int ops = 1;
+        while (true) {
+            long t0 = System.nanoTime();
+            sink += b.run(ops);
+            if (System.nanoTime() - t0 > ITERATION_NANOS/10 || ops > 1 << 28) {
+                break;
+            }
+            ops *= 2;
+        }
+        ops *= 10;
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink += b.run(ops);
+        }
+
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        long me = Thread.currentThread().getId();
+        double[] nanosPerOp = new double[MEASURED_ITERATIONS];
+        long allocated = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            long a0 = threads.getThreadAllocatedBytes(me);
+            long t0 = System.nanoTime();
+            sink += b.run(ops);
+            long t1 = System.nanoTime();
+            allocated += threads.getThreadAllocatedBytes(me) - a0;
+            nanosPerOp[i] = (double)(t1 - t0)/ops;
+        }
+
+        double mean = 0;
+        for (int i = 0; i < nanosPerOp.length; i++) {
+            mean += nanosPerOp[i]/nanosPerOp.length;
+        }
+        double variance = 0;
+        for (int i = 0; i < nanosPerOp.length; i++) {
+            variance += (nanosPerOp[i] - mean)*(nanosPerOp[i] - mean);
+        }
+        double error = Math.sqrt(variance/(nanosPerOp.length - 1));
+        System.out.printf("%-32s %8.1f +-%5.1f %14.1f%n", b.name, mean, error,
+                          (double)allocated/ops/MEASURED_ITERATIONS);
+    }
+
+    ////////////////////////////////////////////////////////
+    // addPolygonBenchmarks - the Polygon2 construction and transforms
+    ////////////////////////////////////////////////////////
+    private static void addPolygonBenchmarks(ArrayList<Benchmark> list) {
+        final Polygon2 crescent = new Polygon2(50);
+
+        list.add(new Benchmark("Polygon2(50)") {
+            long run(int ops) {
+                long sum = 0;
+                for (int i = 0; i < ops; i++) {
+                    sum += new Polygon2(50).npoints;
+                }
+                return sum;
+            }
+        });
+        list.add(new Benchmark("Polygon2.fitIn") {
+            long run(int ops) {
+                long sum = 0;
+                for (int i = 0; i < ops; i++) {
+                    sum += crescent.fitIn(i & 63, 10, 160, 40).xpoints[3];
+                }
+                return sum;
+            }
+        });
+        list.add(new Benchmark("Polygon2.rotateBy") {
+            long run(int ops) {
+                long sum = 0;
+                for (int i = 0; i < ops; i++) {
+                    sum += crescent.rotateBy(i % 360).xpoints[3];
+                }
+                return sum;
+            }
+        });
+        list.add(new Benchmark("Polygon2(50).rotateBy(180)") {
+            long run(int ops) {
+                long sum = 0;
+                for (int i = 0; i < ops; i++) {
+                    sum += new Polygon2(50).rotateBy(180).xpoints[3];
+                }
+                return sum;
+            }
+        });
+        list.add(new Benchmark("CrescentCache.get(50, 180)") {
+            long run(int ops) {
+                long sum = 0;
+                for (int i = 0; i < ops; i++) {
+                    sum += CrescentCache.get(50, 180).npoints;
+                }
+                return sum;
+            }
+        });
+        list.add(new Benchmark("PolygonTransform.rotateBy") {
+            long run(int ops) {
+                Polygon rotated = new Polygon2();
+                long sum = 0;
+                for (int i = 0; i < ops; i++) {
+                    PolygonTransform.rotateBy(crescent, i % 360, rotated);
+                    sum += rotated.xpoints[3];
+                }
+                return sum;
+            }
+        });
+        addBatchBenchmarks(list);
+        list.add(new Benchmark("Polygon2.scaleBy") {
+            long run(int ops) {
+                long sum = 0;
+                for (int i = 0; i < ops; i++) {
+                    sum += crescent.scaleBy(0.5 + (i & 7)/8.0).xpoints[3];
+                }
+                return sum;
+            }
+        });
+    }
+
+    ////////////////////////////////////////////////////////
+    // addBatchBenchmarks - fitting and rotating the hair of many faces,
+    //                      one at a time and in batches; each operation is
+    //                      one polygon
+    ////////////////////////////////////////////////////////
+    private static void addBatchBenchmarks(ArrayList<Benchmark> list) {
+        final int batch = 1000;
+        final Polygon hair = Face.HAIR_SHAPE;
+        final int[] lefts = new int[batch];
+        final int[] tops = new int[batch];
+        final int[] widths = new int[batch];
+        final int[] heights = new int[batch];
+        final double[] degrees = new double[batch];
+        Random rand = new Random(5);
+        for (int k = 0; k < batch; k++) {
+            lefts[k] = rand.nextInt(2000);
+            tops[k] = rand.nextInt(2000);
+            widths[k] = 1 + rand.nextInt(400);
+            heights[k] = 1 + rand.nextInt(400);
+            degrees[k] = rand.nextInt(360);
+        }
+        final int[] xs = new int[batch*hair.npoints];
+        final int[] ys = new int[batch*hair.npoints];
+
+        list.add(new Benchmark("PolygonTransform.fitIn") {
+            long run(int ops) {
+                Polygon fitted = new Polygon2();
+                long sum = 0;
+                for (int i = 0; i < ops; i++) {
+                    int k = i % batch;
+                    PolygonTransform.fitIn(hair, lefts[k], tops[k], widths[k],
+                                           heights[k], fitted);
+                    sum += fitted.xpoints[3];
+                }
+                return sum;
+            }
+        });
+        list.add(new Benchmark("PolygonTransform.fitIn batch") {
+            long run(int ops) {
+                long sum = 0;
+                for (int done = 0; done < ops; done += batch) {
+                    int count = Math.min(batch, ops - done);
+                    PolygonTransform.fitIn(hair, count, lefts, tops, widths,
+                                           heights, xs, ys);
+                    sum += xs[3];
+                }
+                return sum;
+            }
+        });
+        list.add(new Benchmark("PolygonTransform.rotateBy batch") {
+            long run(int ops) {
+                long sum = 0;
+                for (int done = 0; done < ops; done += batch) {
+                    int count = Math.min(batch, ops - done);
+                    PolygonTransform.rotateBy(hair, count, degrees, xs, ys);
+                    sum += xs[3];
+                }
+                return sum;
+            }
+        });
+    }
+
+    ////////////////////////////////////////////////////////
+    // addCoordinateBenchmarks - the Face coordinate helpers
+    ////////////////////////////////////////////////////////
+    private static void addCoordinateBenchmarks(ArrayList<Benchmark> list) {
+        final Face face = new Face(200, 200);
+        face.setLocation(30, 40);
+
+        list.add(new Benchmark("Face.pixelX") {
+            long run(int ops) {
+                long sum = 0;
+                for (int i = 0; i < ops; i++) {
+                    sum += face.pixelX(i & 127);
+                }
+                return sum;
+            }
+        });
+        list.add(new Benchmark("Face.distX") {
+            long run(int ops) {
+                long sum = 0;
+                for (int i = 0; i < ops; i++) {
+                    sum += face.distX(i & 127);
+                }
+                return sum;
+            }
+        });
+    }
+
+    ////////////////////////////////////////////////////////
+    // addLabelBenchmarks - drawing text, laid out each time and not
+    ////////////////////////////////////////////////////////
+    private static void addLabelBenchmarks(ArrayList<Benchmark> list) {
+        BufferedImage image = new BufferedImage(300, 100,
+                                                BufferedImage.TYPE_INT_ARGB);
+        final Graphics g = image.getGraphics();
+        final FaceLabel label = new FaceLabel("SIMPSON", 20, 50);
+
+        list.add(new Benchmark("Graphics.drawString") {
+            long run(int ops) {
+                for (int i = 0; i < ops; i++) {
+                    g.setColor(label.getColor());
+                    g.setFont(label.getFont());
+                    g.drawString(label.getText(), label.getX(), label.getY());
+                }
+                return ops;
+            }
+        });
+        list.add(new Benchmark("FaceLabel.drawOn") {
+            long run(int ops) {
+                for (int i = 0; i < ops; i++) {
+                    label.drawOn(g);
+                }
+                return ops;
+            }
+        });
+    }
+
+    ////////////////////////////////////////////////////////
+    // newCanvas - creates a transparent square image to draw on
+    //
+    // calling sequence:
+    //   anImage = FaceBenchmarks.newCanvas(size);
+    //
+    // parameters:
+    //   size - the image's width and height
+    //
+    // return-value:
+    //   a new TYPE_INT_ARGB image, all of whose pixels are 0
+    ////////////////////////////////////////////////////////
+    static BufferedImage newCanvas(int size) {
+        return new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    ////////////////////////////////////////////////////////
+    // countDifferences - tells the number of pixels that differ between two
+    //                    images
+    //
+    // calling sequence:
+    //   aLong = FaceBenchmarks.countDifferences(expected, actual);
+    //
+    // parameters:
+    //   a - an image made by newCanvas (or another TYPE_INT image)
+    //   b - another such image, of the same size
+    //
+    // return-value:
+    //   the number of pixels whose values are not the same in both
+    //
+    // bugs/anomalies:
+    //   The images' sizes are not checked.
+    //
+    ////////////////////////////////////////////////////////
+    static long countDifferences(BufferedImage a, BufferedImage b) {
+        int[] pa = ((DataBufferInt)a.getRaster().getDataBuffer()).getData();
+        int[] pb = ((DataBufferInt)b.getRaster().getDataBuffer()).getData();
+        long differ = 0;
+        for (int i = 0; i < pa.length; i++) {
+            if (pa[i] != pb[i]) {
+                differ++;
+            }
+        }
+        return differ;
+    }
+
+    ////////////////////////////////////////////////////////
+    // class Benchmark - a named operation to be timed
+    ////////////////////////////////////////////////////////
+    private abstract static class Benchmark {
+        String name;
+
+        Benchmark(String name) {
+            this.name = name;
+        }
+
+        // performs the operation 'ops' times, returning some value computed
+        // from the results
+        abstract long run(int ops);
+    }
+
+    ////////////////////////////////////////////////////////
+    // class DrawOn - times drawing one type of face on an image
+    ////////////////////////////////////////////////////////
+    private static class DrawOn extends Benchmark {
+        private Face face;
+        private BufferedImage image;
+        private Graphics g;
+
+        DrawOn(FaceType type) {
+            super("drawOn " + type.getFaceClass().getName());
+            face = type.create(200, 200);
+            face.setLocation(50, 50);
+            image = new BufferedImage(300, 300, BufferedImage.TYPE_INT_ARGB);
+            g = image.getGraphics();
+        }
+
+        long run(int ops) {
+            for (int i = 0; i < ops; i++) {
+                face.drawOn(g);
+            }
+            return image.getRGB(150, 150);
+        }
+    }
+}
@@ -5,6 +5,15 @@
 // imports
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 //////////////////////////////////////////////////////
 // class FaceFrame - draws some faces on the screen
@@ -19,12 +28,33 @@ public class FaceFrame extends JFrame {
     private static final int X_LABEL_OFFSET = 20;
     private static final int Y_LABEL_OFFSET = 20;
 
+    // speed of the faces when animated, in pixels per second
+    private static final int MAX_SPEED = 300;
+
+    // the color of the outline drawn around the face under the mouse
+    private static final Color HOVER_COLOR = new Color(0, 120, 215);
+
     // //////////////////////////////////////////////////////
-    // main - creates and displays the frame
+    // main - creates and displays the frame; "java FaceFrame animate [fps]"
+    //        animates it, with active rendering; "java FaceFrame wander"
+    //        nudges one face at a time, repainting only where it moves;
+    //        "java FaceFrame tiled" draws the faces with a TiledRenderer
     // //////////////////////////////////////////////////////
     public static void main(String[] args) {
         FaceFrame f = new FaceFrame();        
         f.setVisible(true);
+        if (args.length > 0 && args[0].equals("animate")) {
+            f.setActiveRendering(true);
+            if (args.length > 1) {
+                f.animationCanvas.setTargetFps(Integer.parseInt(args[1]));
+            }
+        }
+        else if (args.length > 0 && args[0].equals("wander")) {
+            f.setWandering(true);
+        }
+        else if (args.length > 0 && args[0].equals("tiled")) {
+            f.setTiledRendering(true);
+        }
     }
 
     /////////////////////////
@@ -37,6 +67,43 @@ public class FaceFrame extends JFrame {
     // The labels for the faces
     private FaceLabel[] labels;
 
+    // An index of the faces, so that painting can find the ones that need
+    // to be redrawn without looking at all of them
+    private FaceGrid grid;
+
+    // A list of faces to draw; reused by each call to 'paint'
+    private ArrayList<Face> toDraw = new ArrayList<Face>();
+
+    // When tiled rendering is on, the renderer that draws the faces in
+    // parallel, and the image it draws them into; otherwise, null
+    private TiledRenderer tiledRenderer = null;
+    private BufferedImage tiledImage = null;
+
+    // When active rendering is on, the canvas that animates the faces, and
+    // the faces' positions before it started; otherwise, null
+    private AnimationCanvas animationCanvas = null;
+    private Point[] restingPlaces = null;
+
+    // When wandering is on, the timer that nudges the faces; otherwise,
+    // null
+    private javax.swing.Timer wanderTimer = null;
+
+    // The face under the mouse, which is outlined; null if there is none
+    private Face hovered = null;
+
+    // The part of the window that faces have moved in since it was last
+    // repainted; the faces report their moves to it
+    private DirtyRegion changed = new DirtyRegion(new Runnable() {
+            public void run() {
+                // repaint once whatever is moving the faces is done
+                SwingUtilities.invokeLater(new Runnable() {
+                        public void run() {
+                            repaintChanged();
+                        }
+                    });
+            }
+        });
+
     ////////////////////////////////////////////////////////
     // constructor
     ////////////////////////////////////////////////////////
@@ -50,7 +117,8 @@ public class FaceFrame extends JFrame {
     // init - initializes the display
     //
     // side-effects:
-    //   creates the faces to be displayed; sets the background color
+    //   creates the faces to be displayed, which report their moves so that
+    //   only the area they move in is repainted; sets the background color
     //
     // bugs/anomalies:
     //   none known.
@@ -95,6 +163,204 @@ public class FaceFrame extends JFrame {
         faces[6] = new BobbyFace(FACE_SIZE,FACE_SIZE);
         faces[6].setLocation(810, Y_COORD_ROW_2);
         labels[6] = new FaceLabel("BOBBY", 810 + faces[6].getWidth()/2 - X_LABEL_OFFSET, Y_COORD_ROW_2 + faces[6].getHeight() + Y_LABEL_OFFSET);
+
+        // index the faces, in the order in which they are to be painted
+        grid = new FaceGrid(new Rectangle(0, 0, getWidth(), getHeight()),
+                            FACE_SIZE + FACE_SIZE/2);
+        for (int i = 0; i < faces.length; i++) {
+            grid.add(faces[i]);
+        }
+        setFaceListeners(changed);
+
+        // outline whichever face the mouse is over
+        Hover hover = new Hover();
+        addMouseListener(hover);
+        addMouseMotionListener(hover);
+    }
+
+    ////////////////////////////////////////////////////////
+    // faceAt - tells which face is drawn at a point in the window
+    //
+    // parameters:
+    //   x - the point's horizontal position
+    //   y - the point's vertical position
+    //
+    // return value:
+    //   the face on top at the point, going by the faces' actual shapes
+    //   (see Face.contains), or null if there is none
+    //
+    // bugs/anomalies:
+    //   none known.
+    //
+    ////////////////////////////////////////////////////////
+    public Face faceAt(int x, int y) {
+        return grid.faceAt(x, y);
+    }
+
+    ////////////////////////////////////////////////////////
+    // setFaceListeners - sets the listener of every face
+    ////////////////////////////////////////////////////////
+    private void setFaceListeners(FaceListener l) {
+        for (int i = 0; i < faces.length; i++) {
+            faces[i].setFaceListener(l);
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // repaintChanged - repaints the part of the window in which faces have
+    //                  moved, with a single request
+    //
+    // side-effects:
+    //   the dirty region is emptied, and the smallest rectangle covering
+    //   the old and new places of every face moved since the last call is
+    //   repainted.  Called on the event-dispatch thread after faces move.
+    ////////////////////////////////////////////////////////
+    private void repaintChanged() {
+        Rectangle r = changed.take();
+        if (r != null) {
+            repaint(r.x, r.y, r.width, r.height);
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // setHovered - changes which face is outlined as being under the mouse
+    //
+    // parameters:
+    //   f - the face to outline, or null for none
+    //
+    // side-effects:
+    //   the areas of the old and new faces are repainted
+    ////////////////////////////////////////////////////////
+    private void setHovered(Face f) {
+        if (f == hovered) {
+            return;
+        }
+        if (hovered != null) {
+            Rectangle b = hovered.getBounds();
+            repaint(b.x, b.y, b.width, b.height);
+        }
+        hovered = f;
+        if (f != null) {
+            Rectangle b = f.getBounds();
+            repaint(b.x, b.y, b.width, b.height);
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // setTiledRendering - turns tiled (multi-threaded) rendering on or off
+    //
+    // parameters:
+    //   tiled - whether the faces should be drawn by a TiledRenderer
+    //
+    // side-effects:
+    //   when on, 'paint' has the faces drawn into an image by the threads of
+    //   the common ForkJoinPool, then copies the image to the window.  The
+    //   window is repainted.
+    //
+    // bugs/anomalies:
+    //   none known.
+    //
+    ////////////////////////////////////////////////////////
+    public void setTiledRendering(boolean tiled) {
+        if (tiled) {
+            tiledRenderer = new TiledRenderer(ForkJoinPool.commonPool(),
+                                              FACE_SIZE + FACE_SIZE/2);
+        }
+        else {
+            tiledRenderer = null;
+            tiledImage = null;
+        }
+        repaint();
+    }
+
+    ////////////////////////////////////////////////////////
+    // setActiveRendering - turns animation with active rendering on or off
+    //
+    // parameters:
+    //   active - whether the faces should bounce around the window
+    //
+    // side-effects:
+    //   when on, the window's contents are replaced by an AnimationCanvas
+    //   whose thread moves the faces and draws them (without their labels)
+    //   many times a second.  When turned off, the animation is stopped and
+    //   the faces are put back where they were.
+    //
+    // bugs/anomalies:
+    //   The window must be visible when this is turned on.
+    //
+    ////////////////////////////////////////////////////////
+    public void setActiveRendering(boolean active) {
+        if (active == (animationCanvas != null)) {
+            return;
+        }
+        if (active) {
+            restingPlaces = new Point[faces.length];
+            for (int i = 0; i < faces.length; i++) {
+                restingPlaces[i] = new Point(faces[i].getX(), faces[i].getY());
+            }
+            // the canvas draws every frame in full, so moves need not be
+            // reported while it runs
+            setFaceListeners(null);
+            animationCanvas = new AnimationCanvas(Arrays.asList(faces),
+                                                  new Bouncer(), 120);
+            getContentPane().add(animationCanvas);
+            validate();
+            animationCanvas.start();
+        }
+        else {
+            animationCanvas.stop();
+            getContentPane().remove(animationCanvas);
+            animationCanvas = null;
+            for (int i = 0; i < faces.length; i++) {
+                faces[i].setLocation(restingPlaces[i].x, restingPlaces[i].y);
+            }
+            setFaceListeners(changed);
+            restingPlaces = null;
+            validate();
+            repaint();
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // setWandering - turns wandering on or off
+    //
+    // parameters:
+    //   wander - whether the faces should wander around the window
+    //
+    // side-effects:
+    //   when on, sixty times a second one face, chosen at random, is moved
+    //   a few pixels.  The faces report their moves, so each move repaints
+    //   only the area the face moved in, not the whole window.
+    //
+    // bugs/anomalies:
+    //   The faces are not put back when wandering is turned off.
+    //
+    ////////////////////////////////////////////////////////
+    public void setWandering(boolean wander) {
+        if (wander == (wanderTimer != null)) {
+            return;
+        }
+        if (wander) {
+            final Random rand = new Random();
+            wanderTimer = new javax.swing.Timer(1000/60,
+                                                new ActionListener() {
+                    public void actionPerformed(ActionEvent e) {
+                        Face f = faces[rand.nextInt(faces.length)];
+                        int x = f.getX() + rand.nextInt(9) - 4;
+                        int y = f.getY() + rand.nextInt(9) - 4;
+                        x = Math.max(0, Math.min(x, getWidth() -
+                                                 f.getWidth()));
+                        y = Math.max(0, Math.min(y, getHeight() -
+                                                 f.getHeight()));
+                        f.setLocation(x, y);
+                    }
+                });
+            wanderTimer.start();
+        }
+        else {
+            wanderTimer.stop();
+            wanderTimer = null;
+        }
     }
 
     ////////////////////////////////////////////////////////
@@ -105,7 +371,11 @@ public class FaceFrame extends JFrame {
     //
     // side-effects:
     //   draws faces on the graphics object.  This method
-    //   leaves the graphics object's color unchanged.
+    //   leaves the graphics object's color unchanged.  Faces and labels
+    //   that lie entirely outside of the graphics object's clip (i.e., the
+    //   part of the window that needs repainting) are skipped.  The faces
+    //   are drawn first, then the outline of the face under the mouse (if
+    //   any), then the labels.
     //
     // bugs/anomalies:
     //   none known.
@@ -113,13 +383,111 @@ public class FaceFrame extends JFrame {
     ////////////////////////////////////////////////////////
     public void paint(Graphics g) {  
         super.paint(g);
+        if (animationCanvas != null) {
+            // the canvas draws the faces itself
+            return;
+        }
 
-        // draw the faces
-        for (int i = 0; i < faces.length; i++) {
-            faces[i].drawOn(g);
-            if (labels[i] != null) {
+        // the area to be repainted; null means the whole window
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+
+        if (tiledRenderer != null) {
+            // have the faces drawn in parallel, then copy them to the window
+            if (tiledImage == null || tiledImage.getWidth() != getWidth() ||
+                tiledImage.getHeight() != getHeight()) {
+                tiledImage = new BufferedImage(getWidth(), getHeight(),
+                                               BufferedImage.TYPE_INT_ARGB);
+            }
+            tiledRenderer.render(grid, tiledImage, clip, null);
+            g.drawImage(tiledImage, clip.x, clip.y, clip.x + clip.width,
+                        clip.y + clip.height, clip.x, clip.y,
+                        clip.x + clip.width, clip.y + clip.height, null);
+        }
+        else {
+            // draw the faces that the grid says are in the area
+            toDraw.clear();
+            grid.query(clip, toDraw);
+            for (int i = 0; i < toDraw.size(); i++) {
+                toDraw.get(i).drawOn(g);
+            }
+        }
+
+        // outline the face under the mouse
+        if (hovered != null) {
+            Rectangle b = hovered.getBounds();
+            if (clip.intersects(b)) {
+                Color temp = g.getColor();
+                g.setColor(HOVER_COLOR);
+                g.drawRect(b.x, b.y, b.width - 1, b.height - 1);
+                g.setColor(temp);
+            }
+        }
+
+        // draw the labels
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i] != null && clip.intersects(labels[i].getBounds(g))) {
                 labels[i].drawOn(g);
             }
         }
     }
+
+    ////////////////////////////////////////////////////////
+    // class Hover - keeps track of the face under the mouse
+    ////////////////////////////////////////////////////////
+    private class Hover extends MouseAdapter {
+        public void mouseMoved(MouseEvent e) {
+            setHovered(animationCanvas == null ? faceAt(e.getX(), e.getY())
+                       : null);
+        }
+
+        public void mouseExited(MouseEvent e) {
+            setHovered(null);
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // class Bouncer - moves the faces in straight lines, bouncing them off
+    // the edges of the animation canvas
+    ////////////////////////////////////////////////////////
+    private class Bouncer implements AnimationCanvas.Animation {
+        // each face's exact position and velocity
+        private double[] xs = new double[faces.length];
+        private double[] ys = new double[faces.length];
+        private double[] dxs = new double[faces.length];
+        private double[] dys = new double[faces.length];
+
+        Bouncer() {
+            Random rand = new Random();
+            for (int i = 0; i < faces.length; i++) {
+                xs[i] = faces[i].getX();
+                ys[i] = faces[i].getY();
+                dxs[i] = (2*rand.nextDouble() - 1)*MAX_SPEED;
+                dys[i] = (2*rand.nextDouble() - 1)*MAX_SPEED;
+            }
+        }
+
+        public void update(double seconds) {
+            int w = animationCanvas.getWidth();
+            int h = animationCanvas.getHeight();
+            for (int i = 0; i < faces.length; i++) {
+                xs[i] += dxs[i]*seconds;
+                ys[i] += dys[i]*seconds;
+                double maxX = w - faces[i].getWidth();
+                double maxY = h - faces[i].getHeight();
+                if (xs[i] < 0 || xs[i] > maxX) {
+                    dxs[i] = -dxs[i];
+                    xs[i] = Math.max(0, Math.min(xs[i], maxX));
+                }
+                if (ys[i] < 0 || ys[i] > maxY) {
+                    dys[i] = -dys[i];
+                    ys[i] = Math.max(0, Math.min(ys[i], maxY));
+                }
+                faces[i].setLocation((int)Math.round(xs[i]),
+                                     (int)Math.round(ys[i]));
+            }
+        }
+    }
 }
@@ -0,0 +1,390 @@
+////////////////////////////////////////////////////////
+// FaceGrid.java - finds faces quickly by location
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.*;
+import java.util.*;
+
+////////////////////////////////////////////////////////
+// class FaceGrid - a spatial index of faces
+//
+// A FaceGrid divides an area into square cells, and remembers which cells
+// each face's bounding box (see Face.getBounds) overlaps.  To find the faces
+// in a rectangle, only the faces in the cells that the rectangle overlaps
+// need to be looked at, rather than every face.
+//
+// When a face that is in a grid is moved with setLocation, the grid is
+// updated automatically.  A face may be in only one grid at a time.
+//
+// Faces outside of the grid's area are still handled correctly; they are
+// kept in the cells along the area's edges, so queries there are slower.
+//
+// A FaceGrid object provides the following public methods:
+//   - FaceGrid - the constructor
+//   - add - adds a face
+//   - remove - removes a face
+//   - size - tells the number of faces
+//   - query - finds the faces whose bounds intersect a rectangle
+//   - facesAt - finds the faces whose bounds contain a point
+//   - faceAt - finds the face drawn on top at a point
+//
+// The first two queries give their faces in the order in which they were
+// added, which is taken to be the order in which they are painted.
+//
+////////////////////////////////////////////////////////
+public class FaceGrid {
+
+    ///////////////////////////////
+    // instance variables
+    ///////////////////////////////
+
+    // the top-left of the area, and its size in cells
+    private int originX;
+    private int originY;
+    private int cols;
+    private int rows;
+
+    // the width and height of each cell
+    private int cellSize;
+
+    // the entries in each cell, row by row
+    private ArrayList<ArrayList<Entry>> cells;
+
+    // the entry for each face in the grid
+    private IdentityHashMap<Face, Entry> entries =
+        new IdentityHashMap<Face, Entry>();
+
+    // the paint-order number to give the next face that is added
+    private long nextOrder = 0;
+
+    // scratch list used while answering queries
+    private ArrayList<Entry> found = new ArrayList<Entry>();
+
+    // compares entries by paint order
+    private static final Comparator<Entry> PAINT_ORDER =
+        new Comparator<Entry>() {
+            public int compare(Entry a, Entry b) {
+                return Long.compare(a.order, b.order);
+            }
+        };
+
+    ////////////////////////////////////////////////////////
+    // FaceGrid - constructor
+    //
+    // calling sequence:
+    //   aGrid = new FaceGrid(area, cellSize);
+    //
+    // parameters:
+    //   area - the area in which the faces are expected to be
+    //   cellSize - the width and height of each cell.  This should be about
+    //              the size of a typical face, or of a typical query.
+    //
+    // side-effects:
+    //   the (empty) grid is created
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public FaceGrid(Rectangle area, int cellSize) {
+        this.cellSize = Math.max(cellSize, 1);
+        originX = area.x;
+        originY = area.y;
+        cols = Math.max((area.width + this.cellSize - 1)/this.cellSize, 1);
+        rows = Math.max((area.height + this.cellSize - 1)/this.cellSize, 1);
+        cells = new ArrayList<ArrayList<Entry>>(cols*rows);
+        for (int i = 0; i < cols*rows; i++) {
+            cells.add(new ArrayList<Entry>());
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // add - adds a face to the grid
+    //
+    // calling sequence:
+    //   aGrid.add(aFace);
+    //
+    // parameters:
+    //   f - the face to add
+    //
+    // side-effects:
+    //   the face is added; it comes after (i.e., is painted over) all of the
+    //   faces that were added before it.  Adding a face that is already in
+    //   this grid does nothing.
+    //
+    // bugs/anomalies:
+    //   throws IllegalStateException if the face is in a different grid
+    //
+    ////////////////////////////////////////////////////////
+    public void add(Face f) {
+        if (f.grid == this) {
+            return;
+        }
+        if (f.grid != null) {
+            throw new IllegalStateException("face is already in another grid");
+        }
+        Entry e = new Entry(f, nextOrder++);
+        e.bounds = f.getBounds();
+        entries.put(f, e);
+        f.grid = this;
+        insert(e);
+    }
+
+    ////////////////////////////////////////////////////////
+    // remove - removes a face from the grid
+    //
+    // calling sequence:
+    //   aGrid.remove(aFace);
+    //
+    // parameters:
+    //   f - the face to remove
+    //
+    // side-effects:
+    //   the face is removed, if it was in the grid
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public void remove(Face f) {
+        Entry e = entries.remove(f);
+        if (e != null) {
+            delete(e);
+            f.grid = null;
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // size - tells the number of faces in the grid
+    ////////////////////////////////////////////////////////
+    public int size() { return entries.size(); }
+
+    ////////////////////////////////////////////////////////
+    // query - finds the faces whose bounds intersect a rectangle
+    //
+    // calling sequence:
+    //   aGrid.query(r, result);
+    //
+    // parameters:
+    //   r - the rectangle
+    //   result - the list to which the faces are added
+    //
+    // side-effects:
+    //   every face whose bounds intersect 'r' is added to 'result' (once),
+    //   in paint order
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public void query(Rectangle r, java.util.List<Face> result) {
+        if (r.width <= 0 || r.height <= 0) {
+            return;
+        }
+        int c0 = cellX(r.x);
+        int c1 = cellX(r.x + r.width - 1);
+        int r0 = cellY(r.y);
+        int r1 = cellY(r.y + r.height - 1);
+        found.clear();
+        for (int row = r0; row <= r1; row++) {
+            for (int col = c0; col <= c1; col++) {
+                ArrayList<Entry> cell = cells.get(row*cols + col);
+                for (int i = 0; i < cell.size(); i++) {
+                    Entry e = cell.get(i);
+
+                    // an entry may be in several of the cells; only report
+                    // it from the first cell that it and 'r' share
+                    if (col == Math.max(c0, e.col0) &&
+                        row == Math.max(r0, e.row0) &&
+                        r.intersects(e.bounds)) {
+                        found.add(e);
+                    }
+                }
+            }
+        }
+        addInPaintOrder(result);
+    }
+
+    ////////////////////////////////////////////////////////
+    // facesAt - finds the faces whose bounds contain a point
+    //
+    // calling sequence:
+    //   aGrid.facesAt(px, py, result);
+    //
+    // parameters:
+    //   px - the point's horizontal position
+    //   py - the point's vertical position
+    //   result - the list to which the faces are added
+    //
+    // side-effects:
+    //   every face whose bounds contain the point is added to 'result', in
+    //   paint order, so that the face drawn on top is the last one added
+    //
+    // bugs/anomalies:
+    //   This looks only at bounding boxes.  The point may be in a corner of
+    //   the box that the face does not actually cover.
+    //
+    ////////////////////////////////////////////////////////
+    public void facesAt(int px, int py, java.util.List<Face> result) {
+        ArrayList<Entry> cell = cells.get(cellY(py)*cols + cellX(px));
+        found.clear();
+        for (int i = 0; i < cell.size(); i++) {
+            Entry e = cell.get(i);
+            if (e.bounds.contains(px, py)) {
+                found.add(e);
+            }
+        }
+        addInPaintOrder(result);
+    }
+
+    ////////////////////////////////////////////////////////
+    // faceAt - finds the face that is drawn at a point
+    //
+    // calling sequence:
+    //   aFace = aGrid.faceAt(px, py);
+    //
+    // parameters:
+    //   px - the pixel's horizontal position
+    //   py - the pixel's vertical position
+    //
+    // return value:
+    //   the face painted last (i.e., on top) of those that cover the pixel
+    //   (see Face.contains), or null if none does
+    //
+    // side-effects:
+    //   a face whose shape is tested may fit its hair, as when it is drawn
+    //
+    // bugs/anomalies:
+    //   Only the faces whose bounds contain the point are tested, and a
+    //   face's shape is tested only if it would be on top of every face
+    //   found so far, so most faces are never tested at all.
+    //
+    ////////////////////////////////////////////////////////
+    public Face faceAt(int px, int py) {
+        ArrayList<Entry> cell = cells.get(cellY(py)*cols + cellX(px));
+        Entry top = null;
+        for (int i = 0; i < cell.size(); i++) {
+            Entry e = cell.get(i);
+            if ((top == null || e.order > top.order) &&
+                e.bounds.contains(px, py) && e.face.contains(px, py)) {
+                top = e;
+            }
+        }
+        return top == null ? null : top.face;
+    }
+
+    ////////////////////////////////////////////////////////
+    // faceMoved - updates the grid after one of its faces has moved
+    //
+    // parameters:
+    //   f - the face that moved
+    //
+    // side-effects:
+    //   the face's entry is moved to the cells for its new bounds
+    //
+    // bugs/anomalies:
+    //   This is called by Face.setLocation; it should not be called
+    //   otherwise.
+    //
+    ////////////////////////////////////////////////////////
+    void faceMoved(Face f) {
+        Entry e = entries.get(f);
+        Rectangle b = f.getBounds();
+        if (cellX(b.x) == e.col0 && cellY(b.y) == e.row0 &&
+            lastCellX(b) == e.col1 && lastCellY(b) == e.row1) {
+            // still in the same cells, so only the bounds change
+            e.bounds = b;
+            return;
+        }
+        delete(e);
+        e.bounds = b;
+        insert(e);
+    }
+
+    ////////////////////////////////////////////////////////
+    // insert - puts an entry into the cells that its bounds overlap
+    ////////////////////////////////////////////////////////
+    private void insert(Entry e) {
+        e.col0 = cellX(e.bounds.x);
+        e.row0 = cellY(e.bounds.y);
+        e.col1 = lastCellX(e.bounds);
+        e.row1 = lastCellY(e.bounds);
+        for (int row = e.row0; row <= e.row1; row++) {
+            for (int col = e.col0; col <= e.col1; col++) {
+                cells.get(row*cols + col).add(e);
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // delete - takes an entry out of the cells it is in
+    ////////////////////////////////////////////////////////
+    private void delete(Entry e) {
+        for (int row = e.row0; row <= e.row1; row++) {
+            for (int col = e.col0; col <= e.col1; col++) {
+                ArrayList<Entry> cell = cells.get(row*cols + col);
+
+                // swap the last entry into the removed one's place; the
+                // order of the entries within a cell does not matter
+                int i = cell.indexOf(e);
+                cell.set(i, cell.get(cell.size() - 1));
+                cell.remove(cell.size() - 1);
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // addInPaintOrder - adds the faces of the found entries to a list,
+    //                   sorted by paint order
+    ////////////////////////////////////////////////////////
+    private void addInPaintOrder(java.util.List<Face> result) {
+        Collections.sort(found, PAINT_ORDER);
+        for (int i = 0; i < found.size(); i++) {
+            result.add(found.get(i).face);
+        }
+        found.clear();
+    }
+
+    ////////////////////////////////////////////////////////
+    // cellX/cellY - tell the column/row of the cell holding a position;
+    //               positions outside of the area go to the edge cells
+    ////////////////////////////////////////////////////////
+    private int cellX(int px) {
+        int c = Math.floorDiv(px - originX, cellSize);
+        return Math.min(Math.max(c, 0), cols - 1);
+    }
+
+    private int cellY(int py) {
+        int r = Math.floorDiv(py - originY, cellSize);
+        return Math.min(Math.max(r, 0), rows - 1);
+    }
+
+    ////////////////////////////////////////////////////////
+    // lastCellX/lastCellY - tell the column/row of the cell holding the
+    //                       right/bottom edge of a rectangle
+    ////////////////////////////////////////////////////////
+    private int lastCellX(Rectangle b) {
+        return cellX(b.x + Math.max(b.width, 1) - 1);
+    }
+
+    private int lastCellY(Rectangle b) {
+        return cellY(b.y + Math.max(b.height, 1) - 1);
+    }
+
+    ////////////////////////////////////////////////////////
+    // class Entry - a face in the grid, with its bounds, its range of
+    // cells, and its paint order
+    ////////////////////////////////////////////////////////
+    private static class Entry {
+        Face face;
+        long order;
+        Rectangle bounds;
+        int col0, row0, col1, row1;
+
+        Entry(Face f, long o) {
+            face = f;
+            order = o;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+////////////////////////////////////////////////////////
+// FaceGridBenchmark.java - compares FaceGrid queries with a linear scan
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.*;
+import java.util.*;
+
+////////////////////////////////////////////////////////
+// class FaceGridBenchmark - times finding the faces in a window-sized
+// rectangle, and at a point, with and without a FaceGrid
+//
+// For each face count, the faces are scattered over an area sized so that
+// the density stays about the same as in FaceFrame.  The linear scan is
+// what FaceFrame.paint did before the grid: look at every face's bounds.
+// Each grid result is checked against the linear scan's result.
+//
+// To run:
+//   java FaceGridBenchmark [faceCount ...]
+//
+////////////////////////////////////////////////////////
+public class FaceGridBenchmark {
+
+    private static final int FACE_SIZE = 100;
+    private static final int VIEW_WIDTH = 1100;
+    private static final int VIEW_HEIGHT = 1050;
+    private static final int QUERIES = 2000;
+
+    // //////////////////////////////////////////////////////
+    // main - runs the benchmark
+    // //////////////////////////////////////////////////////
+    public static void main(String[] args) {
+        int[] counts = { 1000, 10000, 50000, 100000, 200000 };
+        if (args.length > 0) {
+            counts = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                counts[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        System.out.println("    faces   linear-range(us)   grid-range(us)" +
+                           "   linear-point(us)   grid-point(us)");
+        for (int i = 0; i < counts.length; i++) {
+            run(counts[i]);
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // run - times the queries for one face count
+    ////////////////////////////////////////////////////////
+    private static void run(int n) {
+        Random rand = new Random(n);
+
+        // about one face per 200x200 pixels, like FaceFrame
+        int side = (int)Math.sqrt((double)n*200*200);
+        Face[] faces = new Face[n];
+        FaceGrid grid = new FaceGrid(new Rectangle(0, 0, side, side),
+                                     2*FACE_SIZE);
+        for (int i = 0; i < n; i++) {
+            faces[i] = new Face(FACE_SIZE, FACE_SIZE);
+            grid.add(faces[i]);
+            faces[i].setLocation(rand.nextInt(side), rand.nextInt(side));
+        }
+
+        // the same queries are used for both methods
+        Rectangle[] views = new Rectangle[QUERIES];
+        Point[] points = new Point[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            views[i] = new Rectangle(rand.nextInt(side), rand.nextInt(side),
+                                     VIEW_WIDTH, VIEW_HEIGHT);
+            points[i] = new Point(rand.nextInt(side), rand.nextInt(side));
+        }
+
+        ArrayList<Face> expected = new ArrayList<Face>();
+        ArrayList<Face> actual = new ArrayList<Face>();
+
+        // check the grid's answers (and warm up the code)
+        for (int i = 0; i < QUERIES; i++) {
+            expected.clear();
+            actual.clear();
+            linearQuery(faces, views[i], expected);
+            grid.query(views[i], actual);
+            check(expected, actual, "range");
+            expected.clear();
+            actual.clear();
+            linearPoint(faces, points[i], expected);
+            grid.facesAt(points[i].x, points[i].y, actual);
+            check(expected, actual, "point");
+        }
+
+        // time each method
+        long t0 = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            expected.clear();
+            linearQuery(faces, views[i], expected);
+        }
+        long t1 = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            actual.clear();
+            grid.query(views[i], actual);
+        }
+        long t2 = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            expected.clear();
+            linearPoint(faces, points[i], expected);
+        }
+        long t3 = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            actual.clear();
+            grid.facesAt(points[i].x, points[i].y, actual);
+        }
+        long t4 = System.nanoTime();
+
+        System.out.printf("%9d %18.1f %16.1f %18.1f %16.2f%n", n,
+                          (t1 - t0)/1000.0/QUERIES, (t2 - t1)/1000.0/QUERIES,
+                          (t3 - t2)/1000.0/QUERIES, (t4 - t3)/1000.0/QUERIES);
+    }
+
+    ////////////////////////////////////////////////////////
+    // linearQuery/linearPoint - find faces by looking at every one
+    ////////////////////////////////////////////////////////
+    private static void linearQuery(Face[] faces, Rectangle r,
+                                    java.util.List<Face> result) {
+        for (int i = 0; i < faces.length; i++) {
+            if (r.intersects(faces[i].getBounds())) {
+                result.add(faces[i]);
+            }
+        }
+    }
+
+    private static void linearPoint(Face[] faces, Point p,
+                                    java.util.List<Face> result) {
+        for (int i = 0; i < faces.length; i++) {
+            if (faces[i].getBounds().contains(p)) {
+                result.add(faces[i]);
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // check - makes sure that two query results are the same
+    ////////////////////////////////////////////////////////
+    private static void check(java.util.List<Face> expected,
+                              java.util.List<Face> actual, String what) {
+        if (!expected.equals(actual)) {
+            throw new IllegalStateException(what + " query gave " +
+                                            actual.size() + " faces; expected " +
+                                            expected.size());
+        }
+    }
+}
@@ -0,0 +1,172 @@
+////////////////////////////////////////////////////////
+// FaceHitBenchmark.java - checks and times finding the face under a point
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+
+////////////////////////////////////////////////////////
+// class FaceHitBenchmark - checks FaceGrid.faceAt against what is actually
+// painted, then times it against a linear scan of every face
+//
+// For the check, each face whose bounds contain a point is drawn on its
+// own into a one-pixel image; the face that the point is in is the last
+// one (in paint order) that paints that pixel, and faceAt must agree at
+// every point.  For the timings, the faces are scattered as in
+// FaceGridBenchmark (about one per 200x200 pixels); the linear scan tests
+// every face's bounds, and the shape of each face whose bounds contain
+// the point.
+//
+// To run:
+//   java FaceHitBenchmark [faceCount ...]
+//
+////////////////////////////////////////////////////////
+public class FaceHitBenchmark {
+
+    private static final int FACE_SIZE = 100;
+    private static final int CHECKS = 20000;
+    private static final int QUERIES = 20000;
+
+    // //////////////////////////////////////////////////////
+    // main - runs the benchmark
+    // //////////////////////////////////////////////////////
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int[] counts = { 1000, 10000, 100000 };
+        if (args.length > 0) {
+            counts = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                counts[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        check();
+        System.out.println("    faces    linear(queries/s)" +
+                           "      grid(queries/s)");
+        for (int i = 0; i < counts.length; i++) {
+            run(counts[i]);
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // check - compares faceAt with what is painted, for crowded faces of
+    //         every type and of many sizes
+    ////////////////////////////////////////////////////////
+    private static void check() {
+        Random rand = new Random(1);
+        FaceType[] types = FaceType.values();
+        int side = 1000;
+        FaceGrid grid = new FaceGrid(new Rectangle(0, 0, side, side), 200);
+        for (int i = 0; i < 300; i++) {
+            Face f = types[rand.nextInt(types.length)].create(
+                5 + rand.nextInt(200), 5 + rand.nextInt(200));
+            f.setLocation(rand.nextInt(side) - 50, rand.nextInt(side) - 50);
+            grid.add(f);
+        }
+
+        BufferedImage pixel = new BufferedImage(1, 1,
+                                                BufferedImage.TYPE_INT_ARGB);
+        ArrayList<Face> candidates = new ArrayList<Face>();
+        int differ = 0;
+        int hits = 0;
+        for (int i = 0; i < CHECKS; i++) {
+            int px = rand.nextInt(side);
+            int py = rand.nextInt(side);
+            candidates.clear();
+            grid.facesAt(px, py, candidates);
+            Face expected = null;
+            for (Face f : candidates) {
+                pixel.setRGB(0, 0, 0);
+                Graphics g = pixel.getGraphics();
+                g.translate(-px, -py);
+                f.drawOn(g);
+                g.dispose();
+                if (pixel.getRGB(0, 0) != 0) {
+                    expected = f;
+                }
+            }
+            if (expected != null) {
+                hits++;
+            }
+            if (grid.faceAt(px, py) != expected) {
+                differ++;
+            }
+        }
+        System.out.printf("%d points (%d on a face): faceAt differs from " +
+                          "the painted pixels at %d%n", CHECKS, hits, differ);
+        if (differ != 0) {
+            throw new IllegalStateException("faceAt differs from the " +
+                                            "painted pixels");
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // run - times the queries for one face count
+    ////////////////////////////////////////////////////////
+    private static void run(int n) {
+        Random rand = new Random(n);
+        int side = (int)Math.sqrt((double)n*200*200);
+        Face[] faces = new Face[n];
+        FaceGrid grid = new FaceGrid(new Rectangle(0, 0, side, side),
+                                     2*FACE_SIZE);
+        for (int i = 0; i < n; i++) {
+            faces[i] = new Face(FACE_SIZE, FACE_SIZE);
+            grid.add(faces[i]);
+            faces[i].setLocation(rand.nextInt(side), rand.nextInt(side));
+        }
+        int[] xs = new int[QUERIES];
+        int[] ys = new int[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            xs[i] = rand.nextInt(side);
+            ys[i] = rand.nextInt(side);
+        }
+
+        // check the grid's answers (and warm up the code); the linear scan
+        // is slow, so it is given fewer queries
+        int linearQueries = Math.max(QUERIES*1000/n, 10);
+        for (int i = 0; i < linearQueries; i++) {
+            if (linearFaceAt(faces, xs[i], ys[i]) !=
+                grid.faceAt(xs[i], ys[i])) {
+                throw new IllegalStateException("faceAt gave the wrong face");
+            }
+        }
+        int found = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            if (grid.faceAt(xs[i], ys[i]) != null) {
+                found++;
+            }
+        }
+        long t0 = System.nanoTime();
+        for (int i = 0; i < linearQueries; i++) {
+            if (linearFaceAt(faces, xs[i], ys[i]) != null) {
+                found++;
+            }
+        }
+        long t1 = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            if (grid.faceAt(xs[i], ys[i]) != null) {
+                found++;
+            }
+        }
+        long t2 = System.nanoTime();
+        System.out.printf("%9d %20.0f %20.0f%n", n,
+                          linearQueries/((t1 - t0)/1e9),
+                          QUERIES/((t2 - t1)/1e9));
+    }
+
+    ////////////////////////////////////////////////////////
+    // linearFaceAt - finds the face on top at a point by looking at every
+    //                face
+    ////////////////////////////////////////////////////////
+    private static Face linearFaceAt(Face[] faces, int px, int py) {
+        for (int i = faces.length - 1; i >= 0; i--) {
+            if (faces[i].getBounds().contains(px, py) &&
+                faces[i].contains(px, py)) {
+                return faces[i];
+            }
+        }
+        return null;
+    }
+}
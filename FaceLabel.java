@@ -4,12 +4,23 @@
 
 // imports
 import java.awt.*;
+import java.awt.font.*;
 
 ////////////////////////////////////////////////////////
 // class FaceLabel - a label that can be drawn on an applet
 //
 // A FaceLabel contains a string, position, font and color. The drawOn method
-// can be used to draw it on a Graphics object.
+// can be used to draw it on a Graphics object; the getBounds method tells
+// the area that drawOn would cover.  The getText, getX, getY, getFont and
+// getColor methods tell what the label holds.
+//
+// A label does not change, so it lays out its text (as a GlyphVector) the
+// first time it is drawn, and draws the same glyphs each time after that,
+// rather than having drawString lay the text out again on every paint.
+// The layout, and the bounds, are made again only if the label is drawn
+// with different font-rendering settings (e.g., antialiasing, or a scaled
+// transform).  Text that needs complex layout (e.g., right-to-left or
+// combining characters) is always drawn with drawString.
 ////////////////////////////////////////////////////////
 public class FaceLabel
 {
@@ -24,6 +35,14 @@ public class FaceLabel
     // the text
     private String myString;
 
+    // whether the text must be drawn with drawString, which handles
+    // complex layout, rather than from a GlyphVector
+    private boolean needsLayout;
+
+    // the text laid out for the settings with which it was last drawn or
+    // measured; null until then
+    private volatile Layout layout = null;
+
     ////////////////////////////////////////////////////////
     // FaceLabel - constructor
     //
@@ -55,6 +74,9 @@ public class FaceLabel
         // initialize the font and color
         myFont = font;
         myColor = color;
+
+        needsLayout = str == null || font.hasLayoutAttributes() ||
+            Font.textRequiresLayout(str.toCharArray(), 0, str.length());
     }
 
     ////////////////////////////////////////////////////////
@@ -69,7 +91,8 @@ public class FaceLabel
     //   y - the y-position for the labe
     //
     // side-effects:
-    //   the label object is created.  A default font and color are used
+    //   the label object is created.  A default font and color are used;
+    //   the font is shared with other labels (see FontPool)
     //
     // bugs/anomalies:
     //   none known
@@ -77,11 +100,20 @@ public class FaceLabel
     ////////////////////////////////////////////////////////
     public FaceLabel(String str, int xx, int yy) {
         // invoke the main constructor, filling in a default font and label
-        this(str, xx, yy, new Font("TimesRoman", Font.BOLD, 14), Color.RED);
+        this(str, xx, yy, FontPool.get("TimesRoman", Font.BOLD, 14), Color.RED);
     }
     
     
 
+    ////////////////////////////////////////////////////////
+    // simple accessors
+    ////////////////////////////////////////////////////////
+    public String getText() { return myString; }
+    public int getX() { return x; }
+    public int getY() { return y; }
+    public Font getFont() { return myFont; }
+    public Color getColor() { return myColor; }
+
     ////////////////////////////////////////////////////////
     // drawOn - draws the label on a graphics object
     //
@@ -92,7 +124,9 @@ public class FaceLabel
     //   g - the Graphics object on which to draw the label
     //
     // side-effects:
-    //   the label object is drawn on the graphics object
+    //   the label object is drawn on the graphics object, whose color and
+    //   font are set to the label's.  If the text has not been laid out for
+    //   the graphics object's font-rendering settings, it is.
     //
     // bugs/anomalies:
     //   none known
@@ -103,6 +137,95 @@ public class FaceLabel
         // set the color and font, then draw the string
         g.setColor(myColor);
         g.setFont(myFont);
-        g.drawString(myString, x, y);
+        if (needsLayout || !(g instanceof Graphics2D)) {
+            g.drawString(myString, x, y);
+        }
+        else {
+            // the same glyphs, in the same places, as drawString would draw
+            Graphics2D g2 = (Graphics2D)g;
+            g2.drawGlyphVector(layoutFor(g2).glyphs, x, y);
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // getBounds - tells the area that the label covers when drawn
+    //
+    // calling sequence:
+    //   aRect = aFaceLabel.getBounds(g);
+    //
+    // parameters:
+    //   g - the Graphics object on which the label would be drawn; its
+    //       font-rendering settings (e.g., antialiasing) affect the result
+    //
+    // return-value:
+    //   the smallest rectangle containing both the text's line (from the
+    //   top of its ascent to the bottom of its descent) and every pixel of
+    //   its glyphs, some of which may overhang the line's ends
+    //
+    // side-effects:
+    //   creates a new Rectangle.  If the text has not been laid out for the
+    //   graphics object's font-rendering settings, it is.
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public Rectangle getBounds(Graphics g) {
+        if (g instanceof Graphics2D) {
+            return new Rectangle(layoutFor((Graphics2D)g).bounds);
+        }
+        return measure(g);
+    }
+
+    ////////////////////////////////////////////////////////
+    // measure - works out the area that the label covers when drawn
+    ////////////////////////////////////////////////////////
+    private Rectangle measure(Graphics g) {
+        // the line that the text occupies, according to the font's metrics
+        FontMetrics fm = g.getFontMetrics(myFont);
+        Rectangle r = new Rectangle(x, y - fm.getAscent(),
+                                    fm.stringWidth(myString),
+                                    fm.getAscent() + fm.getDescent());
+
+        // add any pixels that the glyphs themselves cover outside of that
+        if (g instanceof Graphics2D) {
+            FontRenderContext frc = ((Graphics2D)g).getFontRenderContext();
+            frc = new FontRenderContext(null, frc.getAntiAliasingHint(),
+                                        frc.getFractionalMetricsHint());
+            GlyphVector gv = myFont.createGlyphVector(frc, myString);
+            r.add(gv.getPixelBounds(frc, x, y));
+        }
+        return r;
+    }
+
+    ////////////////////////////////////////////////////////
+    // layoutFor - gives the text laid out for a graphics object's
+    //             font-rendering settings, laying it out if need be
+    ////////////////////////////////////////////////////////
+    private Layout layoutFor(Graphics2D g) {
+        FontRenderContext frc = g.getFontRenderContext();
+        Layout l = layout;
+        if (l == null || !l.frc.equals(frc)) {
+            l = new Layout(frc, needsLayout ? null :
+                           myFont.createGlyphVector(frc, myString), measure(g));
+            layout = l;
+        }
+        return l;
+    }
+
+    ////////////////////////////////////////////////////////
+    // class Layout - the text's glyphs and bounds for some font-rendering
+    // settings
+    ////////////////////////////////////////////////////////
+    private static class Layout {
+        FontRenderContext frc;
+        GlyphVector glyphs;
+        Rectangle bounds;
+
+        Layout(FontRenderContext frc, GlyphVector glyphs, Rectangle bounds) {
+            this.frc = frc;
+            this.glyphs = glyphs;
+            this.bounds = bounds;
+        }
     }
 }
@@ -0,0 +1,24 @@
+////////////////////////////////////////////////////////
+// FaceListener.java - is told when a face changes
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.Rectangle;
+
+////////////////////////////////////////////////////////
+// interface FaceListener - something (typically whatever shows the face)
+// that needs to know when a face changes how it looks on the screen
+//
+// A face has at most one listener, set with Face.setFaceListener.  When
+// the face is moved, the listener is given the area that must be drawn
+// again: the union of where the face was and where it now is.  See
+// DirtyRegion, which collects such areas so that they can be repainted
+// all at once.
+//
+////////////////////////////////////////////////////////
+public interface FaceListener {
+    // tells that a face has changed; 'area' (which the listener may keep)
+    // covers everything that looks different.  Called on whichever thread
+    // changed the face.
+    void faceChanged(Face f, Rectangle area);
+}
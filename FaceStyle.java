@@ -0,0 +1,389 @@
+////////////////////////////////////////////////////////
+// FaceStyle.java - the look of a class of faces, shared by all of them
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.*;
+import java.lang.reflect.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+////////////////////////////////////////////////////////
+// class FaceStyle - what every face of a class has in common: its colors,
+// and where its parts are
+//
+// A Face object holds its own position and size, and gets its look from
+// its class (through methods such as headColor).  But everything about how
+// a face looks, apart from where it is and how big, is the same for every
+// face of the class.  A FaceStyle holds that part once (it is a
+// "flyweight"): the colors of the class's faces, read from the class's
+// color methods, and the positions and sizes of the parts of a face, as
+// percentages of the face's size.  Any number of faces can then share one
+// style, each face being just the style and four numbers (see PlacedFace
+// and FaceBatch).
+//
+// There is one style for each class of face, made the first time it is
+// asked for; styles never change.  A style draws a face exactly as
+// Face.drawOn would draw a face of its class, including leaving out parts
+// of small faces (see Face.setLevelOfDetailEnabled): the parts are placed
+// by the same boxes, and left out at the same levels, that Face uses
+// (e.g., Face.HAIR_BOX and Face.HAIR_DETAIL).  FaceBenchmarks checks this.
+//
+// A class that changes how the parts of a face are drawn (rather than just
+// their colors), or which parts are drawn, cannot be described by colors
+// alone.  Its style is an adapter: it draws each face by making a Face
+// object of the class, and having it draw itself.
+//
+// A FaceStyle object provides the following public methods:
+//   - of - (static) gives the style of a class or type of face
+//   - getFaceClass - tells the class whose look this is
+//   - isAdapter - tells whether faces are drawn through Face objects
+//   - getHeadColor/getEyeColor/getMouthColor/getNoseColor/getHairColor -
+//     tell the colors
+//   - draw - draws a face of this style
+//   - getBounds - tells the rectangle that a face of this style occupies
+//   - createFace - makes a Face object of this style's class
+//
+////////////////////////////////////////////////////////
+public class FaceStyle {
+
+    // the kinds of part
+    private static final int OVAL = 0;
+    private static final int RECT = 1;
+    private static final int POLYGON = 2;
+
+    // the colors of the parts, as indexes into a style's colors
+    private static final int HEAD = 0;
+    private static final int WHITE = 1;
+    private static final int EYE = 2;
+    private static final int MOUTH = 3;
+    private static final int NOSE = 4;
+    private static final int HAIR = 5;
+
+    // the parts of a face, in the order in which Face.helpDrawOn draws
+    // them, with where Face draws each and the least detail at which it
+    // does.  The head's box is the face's own position and size.
+    private static final Part[] PARTS = {
+        new Part(OVAL, HEAD, Face.HEAD_BOX, Face.HEAD_DETAIL, null),
+        new Part(OVAL, WHITE, Face.LEFT_EYE_WHITE_BOX, Face.EYES_DETAIL,
+                 null),
+        new Part(OVAL, WHITE, Face.RIGHT_EYE_WHITE_BOX, Face.EYES_DETAIL,
+                 null),
+        new Part(OVAL, EYE, Face.LEFT_EYE_CENTER_BOX, Face.EYES_DETAIL, null),
+        new Part(OVAL, EYE, Face.RIGHT_EYE_CENTER_BOX, Face.EYES_DETAIL,
+                 null),
+        new Part(RECT, MOUTH, Face.MOUTH_BOX, Face.MOUTH_DETAIL, null),
+        new Part(POLYGON, NOSE, Face.NOSE_BOX, Face.NOSE_DETAIL,
+                 Face.NOSE_SHAPE),
+        new Part(POLYGON, HAIR, Face.HAIR_BOX, Face.HAIR_DETAIL,
+                 Face.HAIR_SHAPE),
+        new Part(OVAL, HEAD, Face.LEFT_EAR_BOX, Face.EARS_DETAIL, null),
+        new Part(OVAL, HEAD, Face.RIGHT_EAR_BOX, Face.EARS_DETAIL, null),
+    };
+
+    // the methods that a class must not override to be drawn from its
+    // style's colors: those that draw parts, and those that choose which
+    // parts are drawn
+    private static final String[] DRAWING_METHODS = {
+        "helpDrawOn", "drawEyes", "drawEyeWhites", "drawEyeCenters",
+        "drawNose", "drawMouth", "drawHair", "drawEars"
+    };
+    private static final String[] SIZING_METHODS = {
+        "getDetailLevel", "featureDetailSize", "fullDetailSize", "getBounds"
+    };
+
+    // the style of each class, made when first needed
+    private static final ConcurrentHashMap<Class<?>, FaceStyle> styles =
+        new ConcurrentHashMap<Class<?>, FaceStyle>();
+
+    ///////////////////////////////
+    // instance variables
+    ///////////////////////////////
+
+    // the class of face, and its constructor (from width and height)
+    private Class<? extends Face> faceClass;
+    private Constructor<? extends Face> constructor;
+
+    // the colors, indexed by HEAD, WHITE, etc.
+    private Color[] colors;
+
+    // whether faces must be drawn through Face objects
+    private boolean adapter;
+
+    ////////////////////////////////////////////////////////
+    // FaceStyle - constructor; used only by 'makeStyle'
+    ////////////////////////////////////////////////////////
+    private FaceStyle(Class<? extends Face> c) {
+        faceClass = c;
+        try {
+            constructor = c.getConstructor(int.class, int.class);
+        }
+        catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(
+                c.getName() + " has no public (width, height) constructor");
+        }
+        Face f = newFace(100, 100);
+        colors = new Color[] {
+            f.headColor(), Color.white, f.eyeColor(), f.mouthColor(),
+            f.noseColor(), f.hairColor()
+        };
+        adapter = overridesDrawing(c);
+    }
+
+    ////////////////////////////////////////////////////////
+    // of - gives the style of a class of face
+    //
+    // calling sequence:
+    //   aStyle = FaceStyle.of(HomerFace.class);
+    //
+    // parameters:
+    //   c - the class of face
+    //
+    // return-value:
+    //   the class's style; the same object each time
+    //
+    // side-effects:
+    //   the first time a class's style is asked for, it is made, and a
+    //   face of the class is created to read its colors
+    //
+    // bugs/anomalies:
+    //   throws IllegalArgumentException if the class has no public
+    //   constructor taking a width and height.  A class's colors must not
+    //   depend on anything but its class.
+    //
+    ////////////////////////////////////////////////////////
+    public static FaceStyle of(Class<? extends Face> c) {
+        FaceStyle s = styles.get(c);
+        return s != null ? s : makeStyle(c);
+    }
+
+    ////////////////////////////////////////////////////////
+    // of - gives the style of a type of face
+    ////////////////////////////////////////////////////////
+    public static FaceStyle of(FaceType type) {
+        return of(type.getFaceClass());
+    }
+
+    ////////////////////////////////////////////////////////
+    // makeStyle - makes the style of a class, unless another thread just
+    //             has
+    ////////////////////////////////////////////////////////
+    private static synchronized FaceStyle makeStyle(Class<? extends Face> c) {
+        FaceStyle s = styles.get(c);
+        if (s == null) {
+            s = new FaceStyle(c);
+            styles.put(c, s);
+        }
+        return s;
+    }
+
+    ////////////////////////////////////////////////////////
+    // overridesDrawing - tells whether a class (or a superclass below
+    //                    Face) overrides any method that draws the parts,
+    //                    or chooses which are drawn
+    ////////////////////////////////////////////////////////
+    private static boolean overridesDrawing(Class<?> c) {
+        for (; c != Face.class; c = c.getSuperclass()) {
+            for (int m = 0; m < DRAWING_METHODS.length; m++) {
+                if (declares(c, DRAWING_METHODS[m], Graphics.class)) {
+                    return true;
+                }
+            }
+            for (int m = 0; m < SIZING_METHODS.length; m++) {
+                if (declares(c, SIZING_METHODS[m])) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    ////////////////////////////////////////////////////////
+    // declares - tells whether a class itself declares a method
+    ////////////////////////////////////////////////////////
+    private static boolean declares(Class<?> c, String name,
+                                    Class<?>... parameters) {
+        try {
+            c.getDeclaredMethod(name, parameters);
+            return true;
+        }
+        catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // simple accessors
+    ////////////////////////////////////////////////////////
+    public Class<? extends Face> getFaceClass() { return faceClass; }
+    public boolean isAdapter() { return adapter; }
+    public Color getHeadColor() { return colors[HEAD]; }
+    public Color getEyeColor() { return colors[EYE]; }
+    public Color getMouthColor() { return colors[MOUTH]; }
+    public Color getNoseColor() { return colors[NOSE]; }
+    public Color getHairColor() { return colors[HAIR]; }
+
+    ////////////////////////////////////////////////////////
+    // draw - draws a face of this style
+    //
+    // calling sequence:
+    //   aStyle.draw(g, x, y, w, h, scratch);
+    //
+    // parameters:
+    //   g - the graphics object on which to draw the face
+    //   x - the position of the head's left
+    //   y - the position of the head's top
+    //   w - the face's width
+    //   h - the face's height
+    //   scratch - a polygon to reuse for the nose and hair, or null to
+    //             make one
+    //
+    // side-effects:
+    //   the face is drawn exactly as Face.drawOn would draw a face of the
+    //   style's class, with that position and size.  The graphics object's
+    //   color is modified; the points of 'scratch' are replaced.
+    //
+    // bugs/anomalies:
+    //   An adapter style makes a Face object to draw each face.  Any
+    //   sprite cache or display lists (see Face) are not used, except by
+    //   an adapter style's Face objects.
+    //
+    ////////////////////////////////////////////////////////
+    public void draw(Graphics g, int x, int y, int w, int h, Polygon scratch) {
+        if (adapter) {
+            Face f = newFace(w, h);
+            f.setLocation(x, y);
+            f.drawOn(g);
+            return;
+        }
+
+        int level = Face.defaultDetailLevel(w, h);
+        for (int i = 0; i < PARTS.length; i++) {
+            Part p = PARTS[i];
+            if (p.level > level) {
+                continue;
+            }
+            g.setColor(colors[p.color]);
+            int left = px(x, w, p.left);
+            int top = px(y, h, p.top);
+            int pw = dist(w, p.width);
+            int ph = dist(h, p.height);
+            if (p.kind == OVAL) {
+                g.fillOval(left, top, pw, ph);
+            }
+            else if (p.kind == RECT) {
+                g.fillRect(left, top, pw, ph);
+            }
+            else {
+                if (scratch == null) {
+                    scratch = new Polygon();
+                }
+                PolygonTransform.fitIn(p.outline, left, top, pw, ph, scratch);
+                g.fillPolygon(scratch);
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // getBounds - tells the rectangle that a face of this style, with a
+    //             given position and size, occupies when drawn (see
+    //             Face.getBounds)
+    ////////////////////////////////////////////////////////
+    public Rectangle getBounds(int x, int y, int w, int h) {
+        if (adapter) {
+            Face f = newFace(w, h);
+            f.setLocation(x, y);
+            return f.getBounds();
+        }
+        int left = boundsLeft(x, w);
+        return new Rectangle(left, y, boundsRight(x, w) - left, h);
+    }
+
+    ////////////////////////////////////////////////////////
+    // boundsLeft/boundsRight - tell where the bounds of a face that is not
+    //                          drawn through an adapter start and end; the
+    //                          ears are the only parts that extend beyond
+    //                          the head
+    ////////////////////////////////////////////////////////
+    static int boundsLeft(int x, int w) {
+        return Math.min(x, px(x, w, Face.LEFT_EAR_BOX[0]));
+    }
+
+    static int boundsRight(int x, int w) {
+        return Math.max(x + w, px(x, w, Face.RIGHT_EAR_BOX[0]) +
+                        dist(w, Face.RIGHT_EAR_BOX[2]));
+    }
+
+    ////////////////////////////////////////////////////////
+    // createFace - makes a Face object of this style's class
+    //
+    // parameters:
+    //   w - the face's width
+    //   h - the face's height
+    //
+    // return-value:
+    //   the new face, at (0,0)
+    ////////////////////////////////////////////////////////
+    public Face createFace(int w, int h) {
+        return newFace(w, h);
+    }
+
+    ////////////////////////////////////////////////////////
+    // newFace - calls the class's constructor
+    ////////////////////////////////////////////////////////
+    private Face newFace(int w, int h) {
+        try {
+            return constructor.newInstance(w, h);
+        }
+        catch (InvocationTargetException e) {
+            throw new IllegalStateException("cannot create " +
+                                            faceClass.getName(),
+                                            e.getCause());
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("cannot create " +
+                                            faceClass.getName(), e);
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // px - the same computation as Face.pixelX and Face.pixelY
+    ////////////////////////////////////////////////////////
+    static int px(int pos, int size, double percent) {
+        return (int)Math.round(pos + percent*size/100.0);
+    }
+
+    ////////////////////////////////////////////////////////
+    // dist - the same computation as Face.distX and Face.distY
+    ////////////////////////////////////////////////////////
+    static int dist(int size, double percent) {
+        return (int)Math.round(percent*size/100.0);
+    }
+
+    ////////////////////////////////////////////////////////
+    // class Part - one part of a face: its kind, its color, where it is
+    // and how big (as percentages of the face's size, from one of Face's
+    // part boxes), the least detail at which it is drawn and, for a
+    // polygon, its unfitted outline
+    ////////////////////////////////////////////////////////
+    private static class Part {
+        int kind;
+        int color;
+        double left;
+        double top;
+        double width;
+        double height;
+        int level;
+        Polygon2 outline;
+
+        Part(int kind, int color, double[] box, int level, Polygon2 outline) {
+            this.kind = kind;
+            this.color = color;
+            this.left = box[0];
+            this.top = box[1];
+            this.width = box[2];
+            this.height = box[3];
+            this.level = level;
+            this.outline = outline;
+        }
+    }
+}
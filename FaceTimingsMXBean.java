@@ -0,0 +1,27 @@
+////////////////////////////////////////////////////////
+// FaceTimingsMXBean.java - the management interface of a class's timings
+////////////////////////////////////////////////////////
+
+////////////////////////////////////////////////////////
+// interface FaceTimingsMXBean - how long each part of one class of face
+// takes to draw, as seen by JConsole or any other JMX client
+//
+// Each part's timing is a PartTiming: the number of calls, and the mean,
+// median, 99th percentile and maximum time per call.  See RenderTimings.
+//
+////////////////////////////////////////////////////////
+public interface FaceTimingsMXBean {
+    // the name of the class of face
+    String getFaceClass();
+
+    // the timings of the parts drawn by helpDrawOn
+    PartTiming getHead();
+    PartTiming getEyes();
+    PartTiming getMouth();
+    PartTiming getNose();
+    PartTiming getHair();
+    PartTiming getEars();
+
+    // sets all of the counts to zero
+    void reset();
+}
@@ -0,0 +1,135 @@
+////////////////////////////////////////////////////////
+// FaceType.java - the kinds of face that can be drawn
+////////////////////////////////////////////////////////
+
+////////////////////////////////////////////////////////
+// enum FaceType - one value for each of the Face classes
+//
+// This lets a kind of face be stored as a small number (e.g., in a
+// FaceBatch or a file) or named by a string (e.g., on a command line),
+// and turned back into a Face object when needed.
+//
+// A FaceType provides the following public methods:
+//   - create - creates a face of this type
+//   - getFaceClass - tells the class of the faces it creates
+//   - of - (static) tells the type of a face
+//   - forName - (static) finds a type from its name
+//
+////////////////////////////////////////////////////////
+public enum FaceType {
+    FACE(Face.class),
+    SIMPSON(SimpsonFace.class),
+    HILL(HillFace.class),
+    HOMER(HomerFace.class),
+    MARGE(MargeFace.class),
+    HANK(HankFace.class),
+    BOBBY(BobbyFace.class);
+
+    // the class of the faces of this type
+    private Class<? extends Face> faceClass;
+
+    ////////////////////////////////////////////////////////
+    // FaceType - constructor
+    ////////////////////////////////////////////////////////
+    private FaceType(Class<? extends Face> c) {
+        faceClass = c;
+    }
+
+    ////////////////////////////////////////////////////////
+    // create - creates a face of this type
+    //
+    // calling sequence:
+    //   aFace = aFaceType.create(w, h);
+    //
+    // parameters:
+    //   w - the face's width
+    //   h - the face's height
+    //
+    // return-value:
+    //   the new face, located at (0,0)
+    //
+    // side-effects:
+    //   creates a new object; otherwise, none
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public Face create(int w, int h) {
+        switch (this) {
+        case SIMPSON: return new SimpsonFace(w, h);
+        case HILL: return new HillFace(w, h);
+        case HOMER: return new HomerFace(w, h);
+        case MARGE: return new MargeFace(w, h);
+        case HANK: return new HankFace(w, h);
+        case BOBBY: return new BobbyFace(w, h);
+        default: return new Face(w, h);
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // getFaceClass - tells the class of the faces of this type
+    ////////////////////////////////////////////////////////
+    public Class<? extends Face> getFaceClass() { return faceClass; }
+
+    ////////////////////////////////////////////////////////
+    // of - tells the type of a face
+    //
+    // calling sequence:
+    //   aFaceType = FaceType.of(aFace);
+    //
+    // parameters:
+    //   f - the face
+    //
+    // return-value:
+    //   the type whose class is exactly that of the face, or null if the
+    //   face is of some other class
+    //
+    // side-effects:
+    //   none
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public static FaceType of(Face f) {
+        FaceType[] types = values();
+        for (int i = 0; i < types.length; i++) {
+            if (types[i].faceClass == f.getClass()) {
+                return types[i];
+            }
+        }
+        return null;
+    }
+
+    ////////////////////////////////////////////////////////
+    // forName - finds a type from its name
+    //
+    // calling sequence:
+    //   aFaceType = FaceType.forName(str);
+    //
+    // parameters:
+    //   str - either the type's name (e.g., "homer") or its class's name
+    //         (e.g., "HomerFace"), in any mix of upper- and lower-case
+    //
+    // return-value:
+    //   the type with that name, or null if there is none
+    //
+    // side-effects:
+    //   none
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public static FaceType forName(String str) {
+        FaceType[] types = values();
+        for (int i = 0; i < types.length; i++) {
+            if (types[i].name().equalsIgnoreCase(str) ||
+                types[i].faceClass.getName().equalsIgnoreCase(str)) {
+                return types[i];
+            }
+        }
+        return null;
+    }
+}
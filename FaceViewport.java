@@ -0,0 +1,526 @@
+////////////////////////////////////////////////////////
+// FaceViewport.java - a zoomable, scrollable view of many faces
+////////////////////////////////////////////////////////
+
+// imports
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.awt.image.*;
+import java.util.ArrayList;
+import java.util.Random;
+
+////////////////////////////////////////////////////////
+// class FaceViewport - a component that shows part of a large canvas of
+// faces, which the user can zoom (with the mouse wheel) and pan (by
+// dragging)
+//
+// The faces are placed on the canvas with Face.setLocation, in canvas
+// coordinates, and kept in a FaceGrid.  To draw, the viewport works out
+// which part of the canvas it shows, asks the grid for the faces there (so
+// faces outside of the view cost nothing), and draws them through a
+// transform that scales the canvas and moves it into the view.
+//
+// How much of each face is drawn depends on its size on the screen, not on
+// the canvas (see Face.getDetailLevel): zoomed out, faces lose their noses,
+// hair and ears, then their eyes and mouths.  A face that would be only a
+// few pixels across is drawn as a rectangle the color of its head, put
+// straight into the image's pixels, which is much quicker than drawing a
+// tiny oval through the transform.
+//
+// The view is drawn into an image, which is then copied to the screen.
+// When the view is panned, the part of the image that is still in view is
+// moved (as JViewport's "blit" scrolling does), and only the strips that
+// come into view are drawn, so panning costs little however many faces
+// are shown.  The view is kept a whole number of pixels from the canvas's
+// origin, so the strips line up exactly with what was moved.  Zooming
+// draws the whole view again.
+//
+// To try it:
+//   java FaceViewport [faces]
+// or, without a display, to time drawing while panning and zooming:
+//   java FaceViewport bench [faces]
+//
+// A FaceViewport object provides the following public methods:
+//   - FaceViewport - the constructor
+//   - getScale - tells the zoom (pixels on the screen per canvas unit)
+//   - zoomAt - zooms in or out, keeping a point on the screen still
+//   - panBy - moves the view
+//   - setView - shows a given part of the canvas at a given zoom
+//   - getVisibleArea - tells the part of the canvas that is shown
+//   - toCanvas - converts a point on the screen to the canvas
+//   - facesChanged - has the view drawn again after faces have changed
+//   - getFacesDrawn/getLastPaintTime - tell about the last paint
+//
+////////////////////////////////////////////////////////
+public class FaceViewport extends JComponent {
+
+    // JComponent is Serializable; a FaceViewport is never serialized
+    private static final long serialVersionUID = 1L;
+
+    // the most that the view can be zoomed in
+    private static final double MAX_SCALE = 16;
+
+    // how much one click of the mouse wheel zooms
+    private static final double WHEEL_ZOOM = 1.15;
+
+    // a face smaller than this many pixels on the screen is drawn as a
+    // rectangle
+    private static final int MIN_DRAWN_SIZE = 4;
+
+    ///////////////////////////////
+    // instance variables
+    ///////////////////////////////
+
+    // the faces, and the area of the canvas that they are on
+    private FaceGrid grid;
+    private Rectangle canvas;
+
+    // the zoom, and the position (in pixels at that zoom) of the view's
+    // top-left corner from the canvas's origin; so a point (x, y) of the
+    // canvas is at (x*scale - offsetX, y*scale - offsetY) in the view
+    private double scale = 1;
+    private int offsetX;
+    private int offsetY;
+
+    // the image of the view, its pixels, and the zoom and offsets with
+    // which it was drawn; 'drawn' is false if it must be drawn again
+    private BufferedImage image = null;
+    private int[] pixels;
+    private double imageScale;
+    private int imageOffsetX;
+    private int imageOffsetY;
+    private boolean drawn = false;
+
+    // the faces to draw; reused by each paint
+    private ArrayList<Face> toDraw = new ArrayList<Face>();
+
+    // about the last paint: the faces drawn, and how long it took
+    private int facesDrawn = 0;
+    private long lastPaintNanos = 0;
+
+    // //////////////////////////////////////////////////////
+    // main - shows a canvas of random faces, or times drawing one
+    // //////////////////////////////////////////////////////
+    public static void main(String[] args) {
+        boolean bench = args.length > 0 && args[0].equals("bench");
+        int arg = bench ? 1 : 0;
+        int count = args.length > arg ? Integer.parseInt(args[arg]) : 100000;
+        if (bench) {
+            System.setProperty("java.awt.headless", "true");
+        }
+
+        // spread the faces over a square canvas, about 80 pixels apart
+        int side = (int)Math.sqrt((double)count*80*80);
+        Rectangle area = new Rectangle(0, 0, side, side);
+        FaceGrid grid = new FaceGrid(area, 128);
+        Random rand = new Random(42);
+        FaceType[] types = FaceType.values();
+        for (int i = 0; i < count; i++) {
+            int size = 20 + rand.nextInt(60);
+            Face f = types[rand.nextInt(types.length)].create(size, size);
+            f.setLocation(rand.nextInt(side - size), rand.nextInt(side - size));
+            grid.add(f);
+        }
+
+        FaceViewport view = new FaceViewport(grid, area);
+        view.setPreferredSize(new Dimension(1100, 1000));
+        if (bench) {
+            benchmark(view, count);
+            return;
+        }
+
+        JFrame frame = new JFrame(count + " faces - wheel to zoom, " +
+                                  "drag to pan");
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.getContentPane().add(view);
+        frame.pack();
+        frame.setVisible(true);
+    }
+
+    ////////////////////////////////////////////////////////
+    // benchmark - paints the view into an image while panning across the
+    //             canvas at several zooms, and reports the frame times
+    ////////////////////////////////////////////////////////
+    private static void benchmark(FaceViewport view, int count) {
+        view.setSize(view.getPreferredSize());
+        BufferedImage screen = new BufferedImage(view.getWidth(),
+                                                 view.getHeight(),
+                                                 BufferedImage.TYPE_INT_RGB);
+        Graphics g = screen.getGraphics();
+        int frames = 120;
+        double[] scales = { 2, 1, 0.5, 0.25, 0.1, view.minScale() };
+        System.out.printf("%d faces, view %dx%d, panning 17 right and 11 " +
+                          "down per frame%n", count, view.getWidth(),
+                          view.getHeight());
+        for (int round = 0; round < 2; round++) {
+            for (int s = 0; s < scales.length; s++) {
+                // the first frame at a zoom draws the whole view
+                view.setView(0, 0, scales[s]);
+                long t0 = System.nanoTime();
+                view.paintComponent(g);
+                long full = System.nanoTime() - t0;
+                int fullFaces = view.getFacesDrawn();
+
+                long total = 0, worst = 0;
+                for (int i = 0; i < frames; i++) {
+                    view.panBy(17, 11);
+                    t0 = System.nanoTime();
+                    view.paintComponent(g);
+                    long t = System.nanoTime() - t0;
+                    total += t;
+                    worst = Math.max(worst, t);
+                }
+                if (round == 1) {
+                    System.out.printf("scale %5.3f: zoom %6.1f ms (%6d " +
+                                      "faces); pan mean %5.2f ms, worst " +
+                                      "%5.2f ms%n", scales[s], full/1e6,
+                                      fullFaces, total/1e6/frames,
+                                      worst/1e6);
+                }
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // FaceViewport - constructor
+    //
+    // calling sequence:
+    //   aViewport = new FaceViewport(grid, canvas);
+    //
+    // parameters:
+    //   grid - the faces to show, placed in canvas coordinates
+    //   canvas - the area of the canvas that the faces are on; the view
+    //            can be panned over this, but not beyond it
+    //
+    // side-effects:
+    //   the viewport is created, showing the canvas's top-left corner at
+    //   full size.  It listens to its own mouse events.
+    //
+    // bugs/anomalies:
+    //   Faces must be moved (and added to or removed from the grid) only on
+    //   the event-dispatch thread, followed by a call to 'facesChanged'.
+    //
+    ////////////////////////////////////////////////////////
+    public FaceViewport(FaceGrid grid, Rectangle canvas) {
+        this.grid = grid;
+        this.canvas = new Rectangle(canvas);
+        offsetX = canvas.x;
+        offsetY = canvas.y;
+        setBackground(Color.white);
+        setOpaque(true);
+
+        MouseHandler handler = new MouseHandler();
+        addMouseListener(handler);
+        addMouseMotionListener(handler);
+        addMouseWheelListener(handler);
+    }
+
+    ////////////////////////////////////////////////////////
+    // simple accessors
+    ////////////////////////////////////////////////////////
+    public double getScale() { return scale; }
+    public int getFacesDrawn() { return facesDrawn; }
+
+    ////////////////////////////////////////////////////////
+    // getLastPaintTime - tells how long the last paint took, in
+    //                    milliseconds
+    ////////////////////////////////////////////////////////
+    public double getLastPaintTime() {
+        return lastPaintNanos/1e6;
+    }
+
+    ////////////////////////////////////////////////////////
+    // facesChanged - has the view drawn again, after faces have been
+    //                moved, added or removed
+    ////////////////////////////////////////////////////////
+    public void facesChanged() {
+        drawn = false;
+        repaint();
+    }
+
+    ////////////////////////////////////////////////////////
+    // zoomAt - zooms the view in or out
+    //
+    // calling sequence:
+    //   aViewport.zoomAt(factor, px, py);
+    //
+    // parameters:
+    //   factor - how much to multiply the scale by (more than 1 zooms in)
+    //   px - the horizontal position, in the view, of the point to keep
+    //        still
+    //   py - the vertical position of that point
+    //
+    // side-effects:
+    //   the view is zoomed, and repainted.  The point of the canvas under
+    //   (px, py) stays there (to the nearest pixel), unless that would show
+    //   beyond the canvas.
+    //
+    // bugs/anomalies:
+    //   The view cannot be zoomed out further than shows the whole canvas,
+    //   nor in further than 16 times.
+    //
+    ////////////////////////////////////////////////////////
+    public void zoomAt(double factor, int px, int py) {
+        double cx = (px + offsetX)/scale;
+        double cy = (py + offsetY)/scale;
+        double s = Math.max(minScale(), Math.min(scale*factor, MAX_SCALE));
+        setView(cx - px/s, cy - py/s, s);
+    }
+
+    ////////////////////////////////////////////////////////
+    // panBy - moves the view
+    //
+    // parameters:
+    //   dx - the number of pixels on the screen to move the view right
+    //   dy - the number of pixels to move it down
+    //
+    // side-effects:
+    //   the view is moved (but not beyond the canvas), and repainted
+    ////////////////////////////////////////////////////////
+    public void panBy(int dx, int dy) {
+        moveTo(offsetX + dx, offsetY + dy);
+    }
+
+    ////////////////////////////////////////////////////////
+    // setView - shows a given part of the canvas
+    //
+    // calling sequence:
+    //   aViewport.setView(x, y, scale);
+    //
+    // parameters:
+    //   x - the horizontal position, on the canvas, to show at the view's
+    //       left edge
+    //   y - the vertical position to show at the view's top edge
+    //   newScale - the number of pixels on the screen per unit of the
+    //              canvas
+    //
+    // side-effects:
+    //   the view is changed, and repainted.  It is moved to the nearest
+    //   whole pixel and, if it would show beyond the canvas, back inside
+    //   it; if the canvas is smaller than the view, the canvas is centered.
+    //
+    // bugs/anomalies:
+    //   throws IllegalArgumentException if 'newScale' is not positive
+    //
+    ////////////////////////////////////////////////////////
+    public void setView(double x, double y, double newScale) {
+        if (!(newScale > 0)) {
+            throw new IllegalArgumentException("bad scale: " + newScale);
+        }
+        scale = newScale;
+        moveTo((int)Math.round(x*scale), (int)Math.round(y*scale));
+    }
+
+    ////////////////////////////////////////////////////////
+    // moveTo - sets the offsets, keeping the view within the canvas
+    ////////////////////////////////////////////////////////
+    private void moveTo(int ox, int oy) {
+        offsetX = clamp(ox, canvas.x, canvas.width, getWidth());
+        offsetY = clamp(oy, canvas.y, canvas.height, getHeight());
+        repaint();
+    }
+
+    ////////////////////////////////////////////////////////
+    // clamp - keeps one side of the view within the canvas, or centers it
+    //         if the canvas is smaller
+    ////////////////////////////////////////////////////////
+    private int clamp(int offset, int start, int length, int shown) {
+        int first = (int)Math.floor(start*scale);
+        int last = (int)Math.ceil((start + length)*scale);
+        if (shown >= last - first) {
+            return first - (shown - (last - first))/2;
+        }
+        return Math.max(first, Math.min(offset, last - shown));
+    }
+
+    ////////////////////////////////////////////////////////
+    // minScale - tells the scale at which the whole canvas fits the view
+    ////////////////////////////////////////////////////////
+    private double minScale() {
+        if (getWidth() <= 0 || getHeight() <= 0) {
+            return 1;
+        }
+        return Math.min(1, Math.min((double)getWidth()/canvas.width,
+                                    (double)getHeight()/canvas.height));
+    }
+
+    ////////////////////////////////////////////////////////
+    // getVisibleArea - tells the part of the canvas that the view shows
+    //
+    // return-value:
+    //   the smallest rectangle, in canvas coordinates, that covers the
+    //   view
+    ////////////////////////////////////////////////////////
+    public Rectangle getVisibleArea() {
+        return toCanvas(new Rectangle(0, 0, getWidth(), getHeight()));
+    }
+
+    ////////////////////////////////////////////////////////
+    // toCanvas - converts a point in the view to the canvas
+    ////////////////////////////////////////////////////////
+    public Point toCanvas(int px, int py) {
+        return new Point((int)Math.floor((px + offsetX)/scale),
+                         (int)Math.floor((py + offsetY)/scale));
+    }
+
+    ////////////////////////////////////////////////////////
+    // toCanvas - converts a rectangle in the view to the smallest
+    //            rectangle on the canvas that covers it
+    ////////////////////////////////////////////////////////
+    private Rectangle toCanvas(Rectangle r) {
+        int left = (int)Math.floor((r.x + offsetX)/scale);
+        int top = (int)Math.floor((r.y + offsetY)/scale);
+        int right = (int)Math.ceil((r.x + r.width + offsetX)/scale);
+        int bottom = (int)Math.ceil((r.y + r.height + offsetY)/scale);
+        return new Rectangle(left, top, right - left, bottom - top);
+    }
+
+    ////////////////////////////////////////////////////////
+    // paintComponent - paints the view
+    //
+    // parameters:
+    //   g - the Graphics object
+    //
+    // side-effects:
+    //   the image of the view is brought up to date (see the class's
+    //   comments), then copied to the graphics object
+    //
+    // bugs/anomalies:
+    //   Java's polygon filling is not exactly the same at every position,
+    //   so after panning, a few pixels along the edges of noses and hair
+    //   may differ from those of the view drawn afresh.
+    //
+    ////////////////////////////////////////////////////////
+    protected void paintComponent(Graphics g) {
+        long start = System.nanoTime();
+        facesDrawn = 0;
+        int w = getWidth();
+        int h = getHeight();
+        if (w <= 0 || h <= 0) {
+            return;
+        }
+        if (image == null || image.getWidth() != w || image.getHeight() != h) {
+            image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            pixels = ((DataBufferInt)image.getRaster().getDataBuffer())
+                .getData();
+            drawn = false;
+        }
+
+        int dx = offsetX - imageOffsetX;
+        int dy = offsetY - imageOffsetY;
+        if (!drawn || imageScale != scale || Math.abs(dx) >= w ||
+            Math.abs(dy) >= h) {
+            drawArea(new Rectangle(0, 0, w, h));
+        }
+        else if (dx != 0 || dy != 0) {
+            // move what is still in view, then draw what has come into it
+            Graphics ig = image.getGraphics();
+            ig.copyArea(0, 0, w, h, -dx, -dy);
+            ig.dispose();
+            if (dx != 0) {
+                drawArea(new Rectangle(dx > 0 ? w - dx : 0, 0,
+                                       Math.abs(dx), h));
+            }
+            if (dy != 0) {
+                drawArea(new Rectangle(0, dy > 0 ? h - dy : 0, w,
+                                       Math.abs(dy)));
+            }
+        }
+        drawn = true;
+        imageScale = scale;
+        imageOffsetX = offsetX;
+        imageOffsetY = offsetY;
+
+        g.drawImage(image, 0, 0, null);
+        lastPaintNanos = System.nanoTime() - start;
+    }
+
+    ////////////////////////////////////////////////////////
+    // drawArea - draws the background and faces in part of the image
+    ////////////////////////////////////////////////////////
+    private void drawArea(Rectangle area) {
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setClip(area);
+            g.setColor(getBackground());
+            g.fill(area);
+
+            // faces are drawn through a transform from the canvas to the
+            // view
+            g.translate(-offsetX, -offsetY);
+            g.scale(scale, scale);
+
+            toDraw.clear();
+            grid.query(toCanvas(area), toDraw);
+            for (int i = 0; i < toDraw.size(); i++) {
+                Face f = toDraw.get(i);
+                if (Math.min(f.getWidth(), f.getHeight())*scale <
+                    MIN_DRAWN_SIZE) {
+                    drawDot(f, area);
+                }
+                else {
+                    f.drawOn(g, scale);
+                }
+            }
+            facesDrawn += toDraw.size();
+            toDraw.clear();
+        }
+        finally {
+            g.dispose();
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // drawDot - draws a tiny face as a rectangle the color of its head,
+    //           straight into the image's pixels
+    ////////////////////////////////////////////////////////
+    private void drawDot(Face f, Rectangle area) {
+        int left = Math.max((int)Math.floor(f.getX()*scale) - offsetX,
+                            area.x);
+        int top = Math.max((int)Math.floor(f.getY()*scale) - offsetY,
+                           area.y);
+        int right = Math.min((int)Math.ceil((f.getX() + f.getWidth())*scale) -
+                             offsetX, area.x + area.width);
+        int bottom = Math.min((int)Math.ceil((f.getY() + f.getHeight())*
+                                             scale) - offsetY,
+                              area.y + area.height);
+        int rgb = f.headColor().getRGB();
+        int w = image.getWidth();
+        for (int y = top; y < bottom; y++) {
+            for (int x = left; x < right; x++) {
+                pixels[y*w + x] = rgb;
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // class MouseHandler - zooms with the wheel, and pans with drags
+    ////////////////////////////////////////////////////////
+    private class MouseHandler extends MouseAdapter {
+        // where the mouse was at the last drag event, or null
+        private Point last = null;
+
+        public void mousePressed(MouseEvent e) {
+            last = e.getPoint();
+        }
+
+        public void mouseReleased(MouseEvent e) {
+            last = null;
+        }
+
+        public void mouseDragged(MouseEvent e) {
+            if (last != null) {
+                // move the canvas with the mouse
+                panBy(last.x - e.getX(), last.y - e.getY());
+                last = e.getPoint();
+            }
+        }
+
+        public void mouseWheelMoved(MouseWheelEvent e) {
+            // wheel away from the user zooms in
+            zoomAt(Math.pow(WHEEL_ZOOM, -e.getPreciseWheelRotation()),
+                   e.getX(), e.getY());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+////////////////////////////////////////////////////////
+// FontPool.java - shared Font objects
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+////////////////////////////////////////////////////////
+// class FontPool - gives one shared Font for each name, style and size
+//
+// A Font is immutable, so all of the labels (say) that use 14-point bold
+// TimesRoman can share one Font object rather than each making its own.
+// Sharing also lets the text-drawing code reuse what it has worked out
+// about the font, which it keys on the Font object.
+//
+// The FontPool class provides the following public methods:
+//   - get - (static) gives the shared Font for a name, style and size
+//   - size - (static) tells the number of Fonts in the pool
+//
+////////////////////////////////////////////////////////
+public class FontPool {
+
+    // the fonts made so far, by name, style and size (e.g., "Dialog/1/14")
+    private static final ConcurrentHashMap<String, Font> fonts =
+        new ConcurrentHashMap<String, Font>();
+
+    ////////////////////////////////////////////////////////
+    // FontPool - constructor; not used, since all methods are static
+    ////////////////////////////////////////////////////////
+    private FontPool() {
+    }
+
+    ////////////////////////////////////////////////////////
+    // get - gives the shared Font for a name, style and size
+    //
+    // calling sequence:
+    //   aFont = FontPool.get(name, style, size);
+    //
+    // parameters:
+    //   name - the font's name (as for the Font constructor)
+    //   style - the font's style: Font.PLAIN, Font.BOLD, etc.
+    //   size - the font's point size
+    //
+    // return-value:
+    //   a Font equal to 'new Font(name, style, size)'; the same object is
+    //   given each time for the same name, style and size
+    //
+    // side-effects:
+    //   the Font is made and added to the pool, if it is not already there
+    //
+    // bugs/anomalies:
+    //   Fonts are never removed from the pool, so it should be used for
+    //   the few fonts that a program uses over and over, not for fonts
+    //   chosen at random.
+    //
+    ////////////////////////////////////////////////////////
+    public static Font get(String name, int style, int size) {
+        String key = name + "/" + style + "/" + size;
+        Font f = fonts.get(key);
+        if (f == null) {
+            f = new Font(name, style, size);
+            Font other = fonts.putIfAbsent(key, f);
+            if (other != null) {
+                f = other;
+            }
+        }
+        return f;
+    }
+
+    ////////////////////////////////////////////////////////
+    // size - tells the number of Fonts in the pool
+    ////////////////////////////////////////////////////////
+    public static int size() {
+        return fonts.size();
+    }
+}
@@ -0,0 +1,247 @@
+////////////////////////////////////////////////////////
+// HeadlessRenderer.java - writes faces to image files, without a display
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.*;
+import java.awt.image.*;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.imageio.ImageIO;
+
+////////////////////////////////////////////////////////
+// class HeadlessRenderer - a command-line program that draws faces into
+// PNG files
+//
+// For each requested size, the program draws the given number of images of
+// the given type of face.  Each image is just large enough to hold the face
+// (including its ears), and is transparent around it.  The images are drawn
+// and written by a pool of worker threads.  When done, the program reports
+// the number of images written per second.
+//
+// The program runs with java.awt.headless=true, so it needs no display.
+//
+// To run:
+//   java HeadlessRenderer type sizes count [outputDir [threads]]
+//
+// where
+//   type - a face type: Face, SimpsonFace, HomerFace, MargeFace, HillFace,
+//          HankFace or BobbyFace (or just "homer", etc.)
+//   sizes - a comma-separated list of sizes, each either WIDTHxHEIGHT or a
+//           single number for a square face (e.g., 64,128x96,200)
+//   count - the number of images to write for each size
+//   outputDir - where to write the files (default: the current directory)
+//   threads - the number of worker threads (default: one per processor)
+//
+// The files are named TYPE-WIDTHxHEIGHT-N.png (e.g., homer-128x128-0.png).
+//
+////////////////////////////////////////////////////////
+public class HeadlessRenderer {
+
+    // //////////////////////////////////////////////////////
+    // main - parses the arguments and writes the images
+    // //////////////////////////////////////////////////////
+    public static void main(String[] args) throws Exception {
+        // this must be set before any other AWT class is used
+        System.setProperty("java.awt.headless", "true");
+
+        if (args.length < 3) {
+            usage("too few arguments");
+        }
+        FaceType type = FaceType.forName(args[0]);
+        if (type == null) {
+            usage("unknown face type: " + args[0]);
+        }
+        Dimension[] sizes = parseSizes(args[1]);
+        int count = parseCount(args[2], "count");
+        File dir = new File(args.length > 3 ? args[3] : ".");
+        int threads = args.length > 4 ? parseCount(args[4], "thread count")
+            : Runtime.getRuntime().availableProcessors();
+        if (threads == 0) {
+            usage("bad thread count: 0");
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            usage("cannot create directory " + dir);
+        }
+
+        // queue up one task per image
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayList<Future<?>> results = new ArrayList<Future<?>>();
+        long start = System.nanoTime();
+        for (int s = 0; s < sizes.length; s++) {
+            for (int i = 0; i < count; i++) {
+                String name = type.name().toLowerCase() + "-" +
+                    sizes[s].width + "x" + sizes[s].height + "-" + i + ".png";
+                results.add(pool.submit(new WriteImage(type, sizes[s],
+                                                       new File(dir, name))));
+            }
+        }
+
+        // wait for them all; on the first failure, cancel the rest and
+        // stop.  The pool's threads would otherwise keep the program
+        // running, so it is shut down either way.
+        try {
+            for (int i = 0; i < results.size(); i++) {
+                results.get(i).get();
+            }
+        }
+        catch (ExecutionException e) {
+            System.err.println("failed: " + e.getCause());
+            System.exit(1);
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - start)/1e9;
+
+        System.out.printf("wrote %d images in %.2f s (%.1f images/s, " +
+                          "%d threads)%n", results.size(), seconds,
+                          results.size()/seconds, threads);
+    }
+
+    ////////////////////////////////////////////////////////
+    // render - draws a face into an image that just holds it
+    //
+    // calling sequence:
+    //   anImage = HeadlessRenderer.render(type, w, h);
+    //
+    // parameters:
+    //   type - the type of face
+    //   w - the face's width
+    //   h - the face's height
+    //
+    // return-value:
+    //   a new image, transparent except for the face
+    //
+    // side-effects:
+    //   creates new objects; otherwise, none
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public static BufferedImage render(FaceType type, int w, int h) {
+        return render(type, w, h, false);
+    }
+
+    ////////////////////////////////////////////////////////
+    // render - draws a face into an image that just holds it, either
+    //          through Java2D or with a RasterGraphics
+    //
+    // calling sequence:
+    //   anImage = HeadlessRenderer.render(type, w, h, software);
+    //
+    // parameters:
+    //   type - the type of face
+    //   w - the face's width
+    //   h - the face's height
+    //   software - true to fill the shapes with a RasterGraphics, which
+    //              writes the image's pixels directly; false to draw
+    //              through the image's own Graphics object
+    //
+    // return-value:
+    //   a new image, transparent except for the face
+    //
+    // side-effects:
+    //   creates new objects; otherwise, none
+    //
+    // bugs/anomalies:
+    //   A few pixels along the edges of the ovals drawn by a RasterGraphics
+    //   may differ from Java2D's (see RasterGraphics).
+    //
+    ////////////////////////////////////////////////////////
+    public static BufferedImage render(FaceType type, int w, int h,
+                                       boolean software) {
+        Face f = type.create(w, h);
+
+        // move the face so that its bounds start at (0,0)
+        Rectangle b = f.getBounds();
+        f.setLocation(-b.x, -b.y);
+
+        BufferedImage image = new BufferedImage(Math.max(b.width, 1),
+                                                Math.max(b.height, 1),
+                                                BufferedImage.TYPE_INT_ARGB);
+        Graphics g = software ? new RasterGraphics(image)
+            : image.getGraphics();
+        f.drawOn(g);
+        g.dispose();
+        return image;
+    }
+
+    ////////////////////////////////////////////////////////
+    // parseSizes - turns "64,128x96" into an array of sizes
+    ////////////////////////////////////////////////////////
+    private static Dimension[] parseSizes(String str) {
+        String[] parts = str.split(",");
+        Dimension[] sizes = new Dimension[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            String[] wh = parts[i].trim().toLowerCase().split("x", -1);
+            int w = 0;
+            int h = 0;
+            try {
+                w = Integer.parseInt(wh[0]);
+                h = wh.length > 1 ? Integer.parseInt(wh[1]) : w;
+            }
+            catch (NumberFormatException e) {
+                usage("bad size: " + parts[i]);
+            }
+            if (w <= 0 || h <= 0 || wh.length > 2) {
+                usage("bad size: " + parts[i]);
+            }
+            sizes[i] = new Dimension(w, h);
+        }
+        return sizes;
+    }
+
+    ////////////////////////////////////////////////////////
+    // parseCount - turns a string into a number that is not negative;
+    // 'what' names the argument in the message if the string is not one
+    ////////////////////////////////////////////////////////
+    private static int parseCount(String str, String what) {
+        int n = -1;
+        try {
+            n = Integer.parseInt(str.trim());
+        }
+        catch (NumberFormatException e) {
+            // reported below
+        }
+        if (n < 0) {
+            usage("bad " + what + ": " + str);
+        }
+        return n;
+    }
+
+    ////////////////////////////////////////////////////////
+    // usage - reports a problem with the arguments, and exits
+    ////////////////////////////////////////////////////////
+    private static void usage(String problem) {
+        System.err.println(problem);
+        System.err.println("usage: java HeadlessRenderer type sizes count " +
+                           "[outputDir [threads]]");
+        System.exit(1);
+    }
+
+    ////////////////////////////////////////////////////////
+    // class WriteImage - a task that draws one face and writes it to a file
+    ////////////////////////////////////////////////////////
+    private static class WriteImage implements Callable<Void> {
+        private FaceType type;
+        private Dimension size;
+        private File file;
+
+        WriteImage(FaceType type, Dimension size, File file) {
+            this.type = type;
+            this.size = size;
+            this.file = file;
+        }
+
+        public Void call() throws IOException {
+            BufferedImage image = render(type, size.width, size.height);
+            if (!ImageIO.write(image, "png", file)) {
+                throw new IOException("no PNG writer available");
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+////////////////////////////////////////////////////////
+// LruCache.java - a cache with a memory budget
+////////////////////////////////////////////////////////
+
+// imports
+import java.util.*;
+
+////////////////////////////////////////////////////////
+// class LruCache - a cache whose entries are limited by their total size
+//
+// Each entry has a size in bytes, as reported by the (abstract) 'sizeOf'
+// method.  When adding an entry would put the total over the cache's
+// budget, the least-recently-used entries are removed until it fits.
+// The cache counts hits, misses and evictions.
+//
+// An LruCache object provides the following public methods:
+//   - LruCache - the constructor
+//   - get - looks up an entry, counting a hit or a miss
+//   - put - adds an entry, evicting others if necessary
+//   - clear - removes all entries
+//   - setMaxBytes/getMaxBytes - changes/tells the memory budget
+//   - getBytes - tells the total size of the current entries
+//   - size - tells the number of entries
+//   - getHits/getMisses/getEvictions - tell the counters
+//
+// All of the methods are synchronized, so one cache may be shared between
+// threads.
+//
+////////////////////////////////////////////////////////
+public abstract class LruCache<K, V> {
+
+    ///////////////////////////////
+    // instance variables
+    ///////////////////////////////
+
+    // the entries, least-recently-used first
+    private LinkedHashMap<K, V> map = new LinkedHashMap<K, V>(16, 0.75f, true);
+
+    // the memory budget, and the amount currently used
+    private long maxBytes;
+    private long bytes;
+
+    // the counters
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    ////////////////////////////////////////////////////////
+    // LruCache - constructor
+    //
+    // calling sequence:
+    //   aCache = new SomeCache(maxBytes);
+    //
+    // parameters:
+    //   maxBytes - the memory budget, in bytes
+    //
+    // side-effects:
+    //   the (empty) cache is created
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public LruCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    ////////////////////////////////////////////////////////
+    // sizeOf - tells how many bytes an entry's value uses
+    //
+    // calling sequence:
+    //   aLong = aCache.sizeOf(value);
+    //
+    // parameters:
+    //   value - the value
+    //
+    // return-value:
+    //   the (approximate) number of bytes used by the value
+    //
+    // bugs/anomalies:
+    //   The size of a value must not change while it is in the cache.
+    //
+    ////////////////////////////////////////////////////////
+    protected abstract long sizeOf(V value);
+
+    ////////////////////////////////////////////////////////
+    // get - looks up an entry
+    //
+    // calling sequence:
+    //   aValue = aCache.get(key);
+    //
+    // parameters:
+    //   key - the key to look up
+    //
+    // return-value:
+    //   the entry's value, or null if there is none
+    //
+    // side-effects:
+    //   counts a hit or a miss; a hit makes the entry the most-recently-used
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public synchronized V get(K key) {
+        V value = map.get(key);
+        if (value == null) {
+            misses++;
+        }
+        else {
+            hits++;
+        }
+        return value;
+    }
+
+    ////////////////////////////////////////////////////////
+    // put - adds an entry
+    //
+    // calling sequence:
+    //   aCache.put(key, value);
+    //
+    // parameters:
+    //   key - the entry's key
+    //   value - the entry's value
+    //
+    // side-effects:
+    //   the entry is added, replacing any existing entry with the same key.
+    //   Least-recently-used entries are evicted until the total fits in
+    //   the budget.
+    //
+    // bugs/anomalies:
+    //   A value that is larger than the whole budget is not stored.
+    //
+    ////////////////////////////////////////////////////////
+    public synchronized void put(K key, V value) {
+        long size = sizeOf(value);
+        V old = map.remove(key);
+        if (old != null) {
+            bytes -= sizeOf(old);
+        }
+        if (size > maxBytes) {
+            return;
+        }
+        map.put(key, value);
+        bytes += size;
+        trim();
+    }
+
+    ////////////////////////////////////////////////////////
+    // clear - removes all entries
+    //
+    // side-effects:
+    //   the cache is emptied.  The counters are unchanged.
+    ////////////////////////////////////////////////////////
+    public synchronized void clear() {
+        map.clear();
+        bytes = 0;
+    }
+
+    ////////////////////////////////////////////////////////
+    // setMaxBytes - changes the memory budget
+    //
+    // side-effects:
+    //   entries are evicted if they no longer fit
+    ////////////////////////////////////////////////////////
+    public synchronized void setMaxBytes(long max) {
+        maxBytes = max;
+        trim();
+    }
+
+    ////////////////////////////////////////////////////////
+    // simple accessors
+    ////////////////////////////////////////////////////////
+    public synchronized long getMaxBytes() { return maxBytes; }
+    public synchronized long getBytes() { return bytes; }
+    public synchronized int size() { return map.size(); }
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+
+    ////////////////////////////////////////////////////////
+    // trim - evicts least-recently-used entries until the total size is
+    //        within the budget
+    ////////////////////////////////////////////////////////
+    private void trim() {
+        Iterator<V> it = map.values().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            bytes -= sizeOf(it.next());
+            it.remove();
+            evictions++;
+        }
+    }
+}
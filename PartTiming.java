@@ -0,0 +1,84 @@
+////////////////////////////////////////////////////////
+// PartTiming.java - how long drawing one part of a face takes
+////////////////////////////////////////////////////////
+
+// imports
+import java.beans.ConstructorProperties;
+
+////////////////////////////////////////////////////////
+// class PartTiming - a summary of the times taken to draw one part (e.g.,
+// the hair) of one class of face
+//
+// A PartTiming does not change once made; see RenderTimings for how they
+// are collected.  The median and 99th percentile come from a histogram
+// whose buckets are a quarter of a power of two wide, so they may be up to
+// 25% too high.
+//
+////////////////////////////////////////////////////////
+public class PartTiming {
+
+    ///////////////////////////////
+    // instance variables
+    ///////////////////////////////
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+    private long medianNanos;
+    private long p99Nanos;
+
+    ////////////////////////////////////////////////////////
+    // PartTiming - constructor
+    //
+    // calling sequence:
+    //   aTiming = new PartTiming(count, total, max, median, p99);
+    //
+    // parameters:
+    //   count - the number of times the part was drawn
+    //   totalNanos - the total time taken, in nanoseconds
+    //   maxNanos - the longest time taken
+    //   medianNanos - the median time taken
+    //   p99Nanos - the 99th percentile of the time taken
+    //
+    // side-effects:
+    //   the object is created
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    @ConstructorProperties({"count", "totalNanos", "maxNanos", "medianNanos",
+                            "p99Nanos"})
+    public PartTiming(long count, long totalNanos, long maxNanos,
+                      long medianNanos, long p99Nanos) {
+        this.count = count;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+        this.medianNanos = medianNanos;
+        this.p99Nanos = p99Nanos;
+    }
+
+    ////////////////////////////////////////////////////////
+    // simple accessors
+    ////////////////////////////////////////////////////////
+    public long getCount() { return count; }
+    public long getTotalNanos() { return totalNanos; }
+    public long getMaxNanos() { return maxNanos; }
+    public long getMedianNanos() { return medianNanos; }
+    public long getP99Nanos() { return p99Nanos; }
+
+    ////////////////////////////////////////////////////////
+    // getMeanNanos - tells the average time taken, in nanoseconds
+    ////////////////////////////////////////////////////////
+    public double getMeanNanos() {
+        return count == 0 ? 0 : (double)totalNanos/count;
+    }
+
+    ////////////////////////////////////////////////////////
+    // toString - gives the summary as a line of text
+    ////////////////////////////////////////////////////////
+    public String toString() {
+        return String.format("%10d calls  mean %8.0f  p50 %8d  p99 %8d  " +
+                             "max %10d ns", count, getMeanNanos(),
+                             medianNanos, p99Nanos, maxNanos);
+    }
+}
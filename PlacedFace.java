@@ -0,0 +1,165 @@
+////////////////////////////////////////////////////////
+// PlacedFace.java - a face that is just a style and a place
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.*;
+
+////////////////////////////////////////////////////////
+// class PlacedFace - a face made of a shared FaceStyle, a position and a
+// size
+//
+// A Face object keeps, besides its position and size, the things it needs
+// to draw itself quickly (its fitted nose and hair, a display list, etc.),
+// which take up several hundred bytes once it has been drawn.  A
+// PlacedFace keeps only a reference to its class's FaceStyle and four
+// numbers; the style does the drawing, exactly as Face.drawOn would.  It
+// is meant for programs with many faces that do not need the Face class's
+// other features.
+//
+// A PlacedFace object provides the following public methods:
+//   - PlacedFace - the constructors
+//   - setLocation - moves the face
+//   - getStyle/getX/getY/getWidth/getHeight - tell about the face
+//   - getBounds - tells the rectangle that the face occupies
+//   - drawOn - draws the face on a graphics object
+//   - toFace - makes an equivalent Face object
+//
+////////////////////////////////////////////////////////
+public class PlacedFace {
+
+    ///////////////////////////////
+    // instance variables
+    ///////////////////////////////
+
+    // the look of the face, which is shared
+    private FaceStyle style;
+
+    // the position of the head's top-left corner, and the face's size
+    private int x;
+    private int y;
+    private int width;
+    private int height;
+
+    ////////////////////////////////////////////////////////
+    // PlacedFace - constructor
+    //
+    // calling sequence:
+    //   aPlacedFace = new PlacedFace(style, w, h);
+    //
+    // parameters:
+    //   style - the face's style (see FaceStyle.of)
+    //   w - the face's width
+    //   h - the face's height
+    //
+    // side-effects:
+    //   the face is created, at (0,0)
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public PlacedFace(FaceStyle style, int w, int h) {
+        if (style == null) {
+            throw new NullPointerException("style");
+        }
+        this.style = style;
+        width = w;
+        height = h;
+    }
+
+    ////////////////////////////////////////////////////////
+    // PlacedFace - constructor, from a type of face
+    ////////////////////////////////////////////////////////
+    public PlacedFace(FaceType type, int w, int h) {
+        this(FaceStyle.of(type), w, h);
+    }
+
+    ////////////////////////////////////////////////////////
+    // PlacedFace - constructor, from a Face object
+    //
+    // calling sequence:
+    //   aPlacedFace = new PlacedFace(aFace);
+    //
+    // parameters:
+    //   f - the face to copy
+    //
+    // side-effects:
+    //   the face is created, with the style of f's class and f's position
+    //   and size
+    //
+    // bugs/anomalies:
+    //   throws IllegalArgumentException if f's class has no public
+    //   (width, height) constructor (see FaceStyle.of)
+    //
+    ////////////////////////////////////////////////////////
+    public PlacedFace(Face f) {
+        this(FaceStyle.of(f.getClass()), f.getWidth(), f.getHeight());
+        x = f.getX();
+        y = f.getY();
+    }
+
+    ////////////////////////////////////////////////////////
+    // setLocation - moves the face
+    //
+    // parameters:
+    //   x - the new position of the head's left
+    //   y - the new position of the head's top
+    ////////////////////////////////////////////////////////
+    public void setLocation(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    ////////////////////////////////////////////////////////
+    // simple accessors
+    ////////////////////////////////////////////////////////
+    public FaceStyle getStyle() { return style; }
+    public int getX() { return x; }
+    public int getY() { return y; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    ////////////////////////////////////////////////////////
+    // getBounds - tells the rectangle that the face occupies when drawn,
+    //             the same as Face.getBounds
+    ////////////////////////////////////////////////////////
+    public Rectangle getBounds() {
+        return style.getBounds(x, y, width, height);
+    }
+
+    ////////////////////////////////////////////////////////
+    // drawOn - draws the face
+    //
+    // calling sequence:
+    //   aPlacedFace.drawOn(g);
+    //
+    // parameters:
+    //   g - the graphics object on which to draw the face
+    //
+    // side-effects:
+    //   the face is drawn, exactly as Face.drawOn would draw a face of the
+    //   style's class.  The graphics object's color is unchanged.
+    //
+    // bugs/anomalies:
+    //   The nose and hair are fitted each time the face is drawn, which
+    //   Face avoids by keeping them; to draw many faces quickly, use
+    //   FaceBatch or SpriteCache.drawFace.
+    //
+    ////////////////////////////////////////////////////////
+    public void drawOn(Graphics g) {
+        Color temp = g.getColor();
+        style.draw(g, x, y, width, height, null);
+        g.setColor(temp);
+    }
+
+    ////////////////////////////////////////////////////////
+    // toFace - makes a Face object of the style's class, with this face's
+    //          position and size
+    ////////////////////////////////////////////////////////
+    public Face toFace() {
+        Face f = style.createFace(width, height);
+        f.setLocation(x, y);
+        return f;
+    }
+}
@@ -0,0 +1,487 @@
+////////////////////////////////////////////////////////
+// PolygonTransform.java - an in-place transformation for polygons
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.*;
+
+////////////////////////////////////////////////////////
+// class PolygonTransform - scales, rotates and translates polygon points
+//
+// The methods of Polygon2 are non-destructive: each one creates a new
+// Polygon2, so a chain such as rotateBy(...).fitIn(...) creates an extra
+// object for each step.  A PolygonTransform instead composes any number of
+// scale, rotate and translate steps into a single affine matrix, which is
+// then applied to a polygon's points in one pass, writing the results into
+// arrays (or a Polygon) supplied by the caller.
+//
+// A PolygonTransform object provides the following public methods:
+//   - PolygonTransform - the constructor; creates the identity transform
+//   - setToIdentity - resets the transform so that it changes nothing
+//   - translate - adds a translation step
+//   - scale - adds a scaling step
+//   - rotate - adds a clockwise rotation step
+//   - apply - transforms points into caller-supplied arrays or a Polygon
+//   - fitIn - (static) an in-place version of Polygon2.fitIn; or fits
+//     one polygon into many rectangles at once
+//   - rotateBy - (static) an in-place version of Polygon2.rotateBy; or
+//     rotates one polygon by many angles at once
+//
+// Each step is applied after the steps that were added before it, so that
+//   t.scale(2, 2).translate(10, 0)
+// doubles the size of a shape, then moves it 10 pixels to the right.
+//
+// The batch versions of fitIn and rotateBy transform one polygon (e.g.,
+// the hair of every face in a frame) many times, writing all of the
+// results, one polygon after another, into a pair of flat arrays.  They
+// find the polygon's bounds, and convert its points to doubles, only
+// once; each result is then a single multiply-and-round per coordinate.
+// The results are identical to those of the single versions;
+// FaceBenchmarks checks this, and compares the times.
+//
+////////////////////////////////////////////////////////
+public class PolygonTransform {
+
+    ///////////////////////////////
+    // instance variables
+    ///////////////////////////////
+
+    // the matrix:  x' = m00*x + m01*y + m02
+    //              y' = m10*x + m11*y + m12
+    private double m00, m01, m02;
+    private double m10, m11, m12;
+
+    ////////////////////////////////////////////////////////
+    // PolygonTransform - constructor
+    //
+    // calling sequence:
+    //   aTransform = new PolygonTransform();
+    //
+    // side-effects:
+    //   the transform is created, and set to the identity
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public PolygonTransform() {
+        setToIdentity();
+    }
+
+    ////////////////////////////////////////////////////////
+    // setToIdentity - resets the transform
+    //
+    // calling sequence:
+    //   aTransform.setToIdentity();
+    //
+    // return-value:
+    //   this transform, so that further steps may be chained
+    //
+    // side-effects:
+    //   all previously-added steps are forgotten
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public PolygonTransform setToIdentity() {
+        m00 = 1; m01 = 0; m02 = 0;
+        m10 = 0; m11 = 1; m12 = 0;
+        return this;
+    }
+
+    ////////////////////////////////////////////////////////
+    // translate - adds a translation step
+    //
+    // calling sequence:
+    //   aTransform.translate(dx, dy);
+    //
+    // parameters:
+    //   dx - the horizontal distance to move
+    //   dy - the vertical distance to move
+    //
+    // return-value:
+    //   this transform, so that further steps may be chained
+    //
+    // side-effects:
+    //   the transform is modified
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public PolygonTransform translate(double dx, double dy) {
+        m02 += dx;
+        m12 += dy;
+        return this;
+    }
+
+    ////////////////////////////////////////////////////////
+    // scale - adds a scaling step
+    //
+    // calling sequence:
+    //   aTransform.scale(sx, sy);
+    //
+    // parameters:
+    //   sx - the horizontal scaling factor
+    //   sy - the vertical scaling factor
+    //
+    // return-value:
+    //   this transform, so that further steps may be chained
+    //
+    // side-effects:
+    //   the transform is modified
+    //
+    // bugs/anomalies:
+    //   Unlike Polygon2.scaleBy, the scaling is about the origin, not about
+    //   the center of the shape.
+    //
+    ////////////////////////////////////////////////////////
+    public PolygonTransform scale(double sx, double sy) {
+        m00 *= sx; m01 *= sx; m02 *= sx;
+        m10 *= sy; m11 *= sy; m12 *= sy;
+        return this;
+    }
+
+    ////////////////////////////////////////////////////////
+    // rotate - adds a clockwise rotation step
+    //
+    // calling sequence:
+    //   aTransform.rotate(degrees);
+    //
+    // parameters:
+    //   degrees - the number of degrees of clockwise rotation
+    //
+    // return-value:
+    //   this transform, so that further steps may be chained
+    //
+    // side-effects:
+    //   the transform is modified
+    //
+    // bugs/anomalies:
+    //   Unlike Polygon2.rotateBy, the rotation is about the origin, not about
+    //   the center of the shape.  Use translate before and after to rotate
+    //   about another point.
+    //
+    ////////////////////////////////////////////////////////
+    public PolygonTransform rotate(double degrees) {
+        // same convention as Polygon2.rotateBy: with y pointing down the
+        // screen, this turns the shape clockwise
+        double rad = degrees/180*Math.PI;
+        double cos = Math.cos(rad);
+        double sin = Math.sin(rad);
+        double a = m00, b = m01, c = m02;
+        m00 = cos*a - sin*m10;
+        m01 = cos*b - sin*m11;
+        m02 = cos*c - sin*m12;
+        m10 = sin*a + cos*m10;
+        m11 = sin*b + cos*m11;
+        m12 = sin*c + cos*m12;
+        return this;
+    }
+
+    ////////////////////////////////////////////////////////
+    // apply - transforms a set of points into caller-supplied arrays
+    //
+    // calling sequence:
+    //   aTransform.apply(srcX, srcY, n, dstX, dstY);
+    //
+    // parameters:
+    //   srcX - the x-coordinates of the points
+    //   srcY - the y-coordinates of the points
+    //   n - the number of points
+    //   dstX - the array that receives the transformed x-coordinates
+    //   dstY - the array that receives the transformed y-coordinates
+    //
+    // side-effects:
+    //   the first 'n' elements of 'dstX' and 'dstY' are overwritten.  The
+    //   destination arrays may be the same as the source arrays.
+    //
+    // bugs/anomalies:
+    //   Each result is rounded to the nearest integer only once, at the end,
+    //   so the results may differ by a pixel from a chain of Polygon2
+    //   methods, which round after every step.
+    //
+    ////////////////////////////////////////////////////////
+    public void apply(int[] srcX, int[] srcY, int n, int[] dstX, int[] dstY) {
+        for (int i = 0; i < n; i++) {
+            double px = srcX[i];
+            double py = srcY[i];
+            dstX[i] = (int)Math.round(m00*px + m01*py + m02);
+            dstY[i] = (int)Math.round(m10*px + m11*py + m12);
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // apply - transforms a polygon into another (reusable) polygon
+    //
+    // calling sequence:
+    //   aTransform.apply(src, dst);
+    //
+    // parameters:
+    //   src - the polygon to transform
+    //   dst - the polygon that receives the result; may be 'src' itself
+    //
+    // side-effects:
+    //   the points of 'dst' are replaced.  Its arrays are reused when they
+    //   are large enough, so nothing is allocated in the usual case.
+    //
+    // bugs/anomalies:
+    //   see the other 'apply' method regarding rounding
+    //
+    ////////////////////////////////////////////////////////
+    public void apply(Polygon src, Polygon dst) {
+        int n = src.npoints;
+        ensureCapacity(dst, n);
+        apply(src.xpoints, src.ypoints, n, dst.xpoints, dst.ypoints);
+        dst.npoints = n;
+        dst.invalidate();
+    }
+
+    ////////////////////////////////////////////////////////
+    // fitIn - fits a polygon inside a rectangle, writing the result into
+    //         another (reusable) polygon
+    //
+    // calling sequence:
+    //   PolygonTransform.fitIn(src, left, top, width, height, dst);
+    //
+    // parameters:
+    //   src - the polygon to fit
+    //   left - the location of the left edge of the rectangle
+    //   top - the location of the top edge of the rectangle
+    //   width - the width of the rectangle
+    //   height - the height of the rectangle
+    //   dst - the polygon that receives the result; may be 'src' itself
+    //
+    // side-effects:
+    //   the points of 'dst' are replaced with exactly the points that
+    //   'new Polygon2(src).fitIn(left, top, width, height)' would have.  The
+    //   arrays of 'dst' are reused when they are large enough.
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public static void fitIn(Polygon src, int left, int top,
+                             int width, int height, Polygon dst) {
+        int n = src.npoints;
+        int[] sx = src.xpoints;
+        int[] sy = src.ypoints;
+
+        // find the bounding box of the source (without the Rectangle that
+        // getBounds would create)
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, sx[i]);
+            maxX = Math.max(maxX, sx[i]);
+            minY = Math.min(minY, sy[i]);
+            maxY = Math.max(maxY, sy[i]);
+        }
+
+        // move to the origin, scale, then move into place; this is done in
+        // the same order, with the same rounding, as Polygon2.fitIn
+        double xScale = (double)width/(maxX - minX);
+        double yScale = (double)height/(maxY - minY);
+        ensureCapacity(dst, n);
+        int[] dx = dst.xpoints;
+        int[] dy = dst.ypoints;
+        for (int i = 0; i < n; i++) {
+            dx[i] = (int)Math.round((sx[i] - minX)*xScale) + left;
+            dy[i] = (int)Math.round((sy[i] - minY)*yScale) + top;
+        }
+        dst.npoints = n;
+        dst.invalidate();
+    }
+
+    ////////////////////////////////////////////////////////
+    // fitIn - fits a polygon inside each of many rectangles, writing the
+    //         results into flat arrays
+    //
+    // calling sequence:
+    //   PolygonTransform.fitIn(src, count, lefts, tops, widths, heights,
+    //                          dstX, dstY);
+    //
+    // parameters:
+    //   src - the polygon to fit
+    //   count - the number of rectangles
+    //   lefts - the left edge of each rectangle
+    //   tops - the top edge of each rectangle
+    //   widths - the width of each rectangle
+    //   heights - the height of each rectangle
+    //   dstX - the array that receives the x-coordinates of the results
+    //   dstY - the array that receives the y-coordinates of the results
+    //
+    // side-effects:
+    //   for each rectangle k, elements k*n to k*n + n - 1 of 'dstX' and
+    //   'dstY' (where n is the number of points in 'src') are overwritten
+    //   with exactly the points that the other fitIn would give
+    //
+    // bugs/anomalies:
+    //   The destination arrays must hold count*n elements.
+    //
+    ////////////////////////////////////////////////////////
+    public static void fitIn(Polygon src, int count, int[] lefts, int[] tops,
+                             int[] widths, int[] heights,
+                             int[] dstX, int[] dstY) {
+        int n = src.npoints;
+        int[] sx = src.xpoints;
+        int[] sy = src.ypoints;
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, sx[i]);
+            maxX = Math.max(maxX, sx[i]);
+            minY = Math.min(minY, sy[i]);
+            maxY = Math.max(maxY, sy[i]);
+        }
+
+        // each point's distance from the corner of the bounding box, which
+        // is the same for every rectangle
+        double[] rx = new double[n];
+        double[] ry = new double[n];
+        for (int i = 0; i < n; i++) {
+            rx[i] = sx[i] - minX;
+            ry[i] = sy[i] - minY;
+        }
+
+        double xRange = maxX - minX;
+        double yRange = maxY - minY;
+        for (int k = 0, out = 0; k < count; k++, out += n) {
+            double xScale = widths[k]/xRange;
+            double yScale = heights[k]/yRange;
+            int left = lefts[k];
+            int top = tops[k];
+            for (int i = 0; i < n; i++) {
+                dstX[out + i] = (int)Math.round(rx[i]*xScale) + left;
+                dstY[out + i] = (int)Math.round(ry[i]*yScale) + top;
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // rotateBy - rotates a polygon about its center, writing the result
+    //            into another (reusable) polygon
+    //
+    // calling sequence:
+    //   PolygonTransform.rotateBy(src, degrees, dst);
+    //
+    // parameters:
+    //   src - the polygon to rotate
+    //   degrees - the number of degrees of clockwise rotation
+    //   dst - the polygon that receives the result; may be 'src' itself
+    //
+    // side-effects:
+    //   the points of 'dst' are replaced with exactly the points that
+    //   'new Polygon2(src).rotateBy(degrees)' would have.  The arrays of
+    //   'dst' are reused when they are large enough.
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public static void rotateBy(Polygon src, double degrees, Polygon dst) {
+        int n = src.npoints;
+        int[] sx = src.xpoints;
+        int[] sy = src.ypoints;
+
+        // find the center of the bounding box, as getBounds would
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, sx[i]);
+            maxX = Math.max(maxX, sx[i]);
+            minY = Math.min(minY, sy[i]);
+            maxY = Math.max(maxY, sy[i]);
+        }
+        double cx = n == 0 ? 0 : minX + (maxX - minX)/2.0;
+        double cy = n == 0 ? 0 : minY + (maxY - minY)/2.0;
+
+        // the sine and cosine come from the table for whole degrees; the
+        // arithmetic is in the same order as in Polygon2.rotateBy
+        double cos = TrigTable.cos(degrees);
+        double sin = TrigTable.sin(degrees);
+        ensureCapacity(dst, n);
+        int[] dx = dst.xpoints;
+        int[] dy = dst.ypoints;
+        for (int i = 0; i < n; i++) {
+            double px = sx[i] - cx;
+            double py = sy[i] - cy;
+            dx[i] = (int)Math.round(cx + (px*cos - py*sin));
+            dy[i] = (int)Math.round(cy + (px*sin + py*cos));
+        }
+        dst.npoints = n;
+        dst.invalidate();
+    }
+
+    ////////////////////////////////////////////////////////
+    // rotateBy - rotates a polygon about its center by each of many
+    //            angles, writing the results into flat arrays
+    //
+    // calling sequence:
+    //   PolygonTransform.rotateBy(src, count, degrees, dstX, dstY);
+    //
+    // parameters:
+    //   src - the polygon to rotate
+    //   count - the number of angles
+    //   degrees - the angles, each in degrees of clockwise rotation
+    //   dstX - the array that receives the x-coordinates of the results
+    //   dstY - the array that receives the y-coordinates of the results
+    //
+    // side-effects:
+    //   for each angle k, elements k*n to k*n + n - 1 of 'dstX' and 'dstY'
+    //   (where n is the number of points in 'src') are overwritten with
+    //   exactly the points that the other rotateBy would give
+    //
+    // bugs/anomalies:
+    //   The destination arrays must hold count*n elements.
+    //
+    ////////////////////////////////////////////////////////
+    public static void rotateBy(Polygon src, int count, double[] degrees,
+                                int[] dstX, int[] dstY) {
+        int n = src.npoints;
+        int[] sx = src.xpoints;
+        int[] sy = src.ypoints;
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, sx[i]);
+            maxX = Math.max(maxX, sx[i]);
+            minY = Math.min(minY, sy[i]);
+            maxY = Math.max(maxY, sy[i]);
+        }
+        double cx = n == 0 ? 0 : minX + (maxX - minX)/2.0;
+        double cy = n == 0 ? 0 : minY + (maxY - minY)/2.0;
+
+        // each point's offset from the center, which is the same for every
+        // angle
+        double[] px = new double[n];
+        double[] py = new double[n];
+        for (int i = 0; i < n; i++) {
+            px[i] = sx[i] - cx;
+            py[i] = sy[i] - cy;
+        }
+
+        for (int k = 0, out = 0; k < count; k++, out += n) {
+            double cos = TrigTable.cos(degrees[k]);
+            double sin = TrigTable.sin(degrees[k]);
+            for (int i = 0; i < n; i++) {
+                dstX[out + i] = (int)Math.round(cx + (px[i]*cos - py[i]*sin));
+                dstY[out + i] = (int)Math.round(cy + (px[i]*sin + py[i]*cos));
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // ensureCapacity - makes sure that a polygon's arrays can hold at
+    //                  least a given number of points
+    ////////////////////////////////////////////////////////
+    private static void ensureCapacity(Polygon p, int n) {
+        if (p.xpoints.length < n) {
+            p.xpoints = java.util.Arrays.copyOf(p.xpoints, n);
+        }
+        if (p.ypoints.length < n) {
+            p.ypoints = java.util.Arrays.copyOf(p.ypoints, n);
+        }
+    }
+}
@@ -0,0 +1,581 @@
+////////////////////////////////////////////////////////
+// RasterGraphics.java - draws filled shapes straight into an image's pixels
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.*;
+import java.awt.geom.Line2D;
+import java.awt.image.*;
+import java.util.Arrays;
+
+////////////////////////////////////////////////////////
+// class RasterGraphics - a Graphics object that fills rectangles, ovals and
+// polygons by writing directly into the int[] of a TYPE_INT_ARGB image
+//
+// Every call on an image's ordinary Graphics object goes through Java2D's
+// pipeline (validation, choosing a loop, span iteration, etc.) before any
+// pixel is written.  For the small shapes that make up a face, that work
+// costs more than the filling itself.  A RasterGraphics fills each shape
+// one scanline at a time with its own code: a rectangle's rows are filled
+// directly; an oval's rows come from a table of spans, worked out once
+// for each width and height and kept; a polygon's edges are stepped down
+// the rows as Java2D steps them.
+//
+// Since a Face draws itself with nothing but setColor, fillOval, fillRect
+// and fillPolygon, it can be drawn on a RasterGraphics just as on any other
+// Graphics object (e.g., 'f.drawOn(new RasterGraphics(image))').
+//
+// The pixels are chosen by the same rules as Java2D's (without
+// antialiasing):
+//   - a rectangle covers exactly the pixels inside it
+//   - a polygon's pixels are those whose centers are inside it (by the
+//     even-odd rule), after its corners are moved a quarter of a pixel
+//     down and to the right (Java2D's default "stroke control"), with the
+//     edges stepped in the same float and fixed-point arithmetic; the
+//     pixels are identical to Java2D's
+//   - an oval's pixels are those whose top-left corners are inside it,
+//     with the oval approximated by straight lines; Java2D approximates it
+//     somewhat differently, so a few pixels along the edge of an oval may
+//     differ (see RasterGraphicsBenchmark)
+// A translucent color is blended with the image's pixels as Java2D blends
+// it (source over destination, in 8-bit arithmetic).
+//
+// A RasterGraphics object provides the following public methods (in
+// addition to those of BasicGraphics):
+//   - RasterGraphics - the constructor
+//   - create - makes a copy that draws on the same image
+//   - fillRect/clearRect/fillOval/fillPolygon - fill a shape
+//
+////////////////////////////////////////////////////////
+public class RasterGraphics extends BasicGraphics {
+
+    // the most memory that kept oval span tables may use; the
+    // least-recently-used tables are discarded beyond this
+    private static final long MAX_OVAL_BYTES = 4L << 20;
+
+    // how far (in pixels) the straight lines approximating an oval may be
+    // from the curve.  This value gives the fewest differences from
+    // Java2D.
+    private static final double FLATNESS = 0.35;
+
+    // the distance of a Bezier control point from the end of a quarter
+    // circle, as a fraction of the radius (as in Ellipse2D)
+    private static final double KAPPA = 0.5522847498307933;
+
+    // the largest fraction of a pixel, for stepping polygon edges
+    private static final int ERRSTEP_MAX = 0x7fffffff;
+
+    // the oval span tables made so far, by width and height
+    private static final OvalCache ovals = new OvalCache(MAX_OVAL_BYTES);
+
+    ///////////////////////////////
+    // instance variables
+    ///////////////////////////////
+
+    // the image's pixels, shared by all copies
+    private int[] pixels;
+    private int width;
+    private int height;
+
+    // the area that may be drawn in, from the image's size and the clip;
+    // recomputed by 'updateClip' before each shape
+    private int clipX0;
+    private int clipY0;
+    private int clipX1;
+    private int clipY1;
+
+    // the state of each edge of the polygon being filled (see
+    // 'addPolygonEdge'), and the crossings of one row; reused between
+    // polygons
+    private int[] edgeX = new int[64];
+    private int[] edgeY = new int[64];
+    private int[] edgeLastY = new int[64];
+    private int[] edgeError = new int[64];
+    private int[] edgeBumpX = new int[64];
+    private int[] edgeBumpError = new int[64];
+    private int[] crossings = new int[64];
+    private int edgeCount;
+
+    ////////////////////////////////////////////////////////
+    // RasterGraphics - constructor
+    //
+    // calling sequence:
+    //   aRasterGraphics = new RasterGraphics(image);
+    //
+    // parameters:
+    //   image - the image to draw on, which must be of type
+    //           BufferedImage.TYPE_INT_ARGB
+    //
+    // side-effects:
+    //   the graphics object is created, with no translation or clip, and
+    //   the color black
+    //
+    // bugs/anomalies:
+    //   throws IllegalArgumentException if the image is of any other type.
+    //   Java keeps a copy of an image in video memory only while its
+    //   pixels have not been taken this way, so drawing the image (e.g.,
+    //   on the screen) may be slower afterwards.
+    //
+    ////////////////////////////////////////////////////////
+    public RasterGraphics(BufferedImage image) {
+        if (image.getType() != BufferedImage.TYPE_INT_ARGB) {
+            throw new IllegalArgumentException(
+                "RasterGraphics needs a TYPE_INT_ARGB image");
+        }
+        pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+        width = image.getWidth();
+        height = image.getHeight();
+    }
+
+    ////////////////////////////////////////////////////////
+    // RasterGraphics - constructor; used only by 'create'
+    ////////////////////////////////////////////////////////
+    private RasterGraphics(RasterGraphics other) {
+        pixels = other.pixels;
+        width = other.width;
+        height = other.height;
+        copyStateFrom(other);
+    }
+
+    ////////////////////////////////////////////////////////
+    // create - makes a copy of this graphics object, which draws on the
+    //          same image but has its own color, translation and clip
+    ////////////////////////////////////////////////////////
+    public Graphics create() {
+        return new RasterGraphics(this);
+    }
+
+    ////////////////////////////////////////////////////////
+    // fillRect - fills a rectangle
+    //
+    // calling sequence:
+    //   aRasterGraphics.fillRect(x, y, w, h);
+    //
+    // parameters:
+    //   x - the position of the rectangle's left
+    //   y - the position of the rectangle's top
+    //   w - the rectangle's width
+    //   h - the rectangle's height
+    //
+    // side-effects:
+    //   the pixels inside the rectangle (and the clip) are painted with the
+    //   current color
+    //
+    // bugs/anomalies:
+    //   nothing is drawn if the width or height is not positive, as with
+    //   Java2D
+    //
+    ////////////////////////////////////////////////////////
+    public void fillRect(int x, int y, int w, int h) {
+        if (w <= 0 || h <= 0) {
+            return;
+        }
+        updateClip();
+        x += transX;
+        y += transY;
+        int top = Math.max(y, clipY0);
+        int bottom = Math.min(y + h, clipY1);
+        int rgb = color.getRGB();
+        for (int row = top; row < bottom; row++) {
+            fillSpan(row, x, x + w, rgb);
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // clearRect - makes a rectangle transparent
+    ////////////////////////////////////////////////////////
+    public void clearRect(int x, int y, int w, int h) {
+        if (w <= 0 || h <= 0) {
+            return;
+        }
+        updateClip();
+        x += transX;
+        y += transY;
+        int left = Math.max(x, clipX0);
+        int right = Math.min(x + w, clipX1);
+        if (left >= right) {
+            return;
+        }
+        for (int row = Math.max(y, clipY0); row < Math.min(y + h, clipY1);
+             row++) {
+            Arrays.fill(pixels, row*width + left, row*width + right, 0);
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // fillOval - fills an oval
+    //
+    // calling sequence:
+    //   aRasterGraphics.fillOval(x, y, w, h);
+    //
+    // parameters:
+    //   x - the position of the left of the oval's bounding rectangle
+    //   y - the position of the top of the oval's bounding rectangle
+    //   w - the oval's width
+    //   h - the oval's height
+    //
+    // side-effects:
+    //   the oval is painted with the current color.  The first time an
+    //   oval of a given width and height is filled, its spans are worked
+    //   out and kept.
+    //
+    // bugs/anomalies:
+    //   A few pixels along the edge may differ from those Java2D fills
+    //   (see the class comment).
+    //
+    ////////////////////////////////////////////////////////
+    public void fillOval(int x, int y, int w, int h) {
+        if (w <= 0 || h <= 0) {
+            return;
+        }
+        updateClip();
+        x += transX;
+        y += transY;
+        OvalSpans spans = ovalSpans(w, h);
+        int rows = spans.left.length;
+        int first = Math.max(0, clipY0 - y);
+        int last = Math.min(rows, clipY1 - y);
+        int rgb = color.getRGB();
+        for (int r = first; r < last; r++) {
+            fillSpan(y + r, x + spans.left[r], x + spans.right[r], rgb);
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // fillPolygon - fills a polygon
+    //
+    // calling sequence:
+    //   aRasterGraphics.fillPolygon(xs, ys, n);
+    //
+    // parameters:
+    //   xs - the x-coordinates of the corners
+    //   ys - the y-coordinates of the corners
+    //   n - the number of corners
+    //
+    // side-effects:
+    //   the polygon is painted with the current color, by the even-odd
+    //   rule, exactly as Java2D would paint it
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public void fillPolygon(int[] xs, int[] ys, int n) {
+        if (n < 3) {
+            return;
+        }
+        updateClip();
+
+        // set up the edges, moving the corners as Java2D does
+        edgeCount = 0;
+        int top = Integer.MAX_VALUE;
+        int bottom = Integer.MIN_VALUE;
+        float lastX = (float)(xs[n - 1] + transX) + 0.25f;
+        float lastY = (float)(ys[n - 1] + transY) + 0.25f;
+        for (int i = 0; i < n; i++) {
+            float x = (float)(xs[i] + transX) + 0.25f;
+            float y = (float)(ys[i] + transY) + 0.25f;
+            if (addPolygonEdge(lastX, lastY, x, y)) {
+                int e = edgeCount - 1;
+                top = Math.min(top, edgeY[e]);
+                bottom = Math.max(bottom, edgeLastY[e]);
+            }
+            lastX = x;
+            lastY = y;
+        }
+
+        // fill each row between the pairs of crossings
+        int rgb = color.getRGB();
+        for (int row = Math.max(top, clipY0); row < Math.min(bottom, clipY1);
+             row++) {
+            int count = 0;
+            for (int e = 0; e < edgeCount; e++) {
+                if (edgeY[e] <= row && row < edgeLastY[e]) {
+                    while (edgeY[e] < row) {
+                        stepEdge(e);
+                    }
+                    insertCrossing(count++, edgeX[e]);
+                }
+            }
+            for (int c = 0; c + 1 < count; c += 2) {
+                fillSpan(row, crossings[c], crossings[c + 1], rgb);
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // addPolygonEdge - sets up one edge of a polygon: the first row whose
+    //   center it crosses, the pixel where it crosses that row, how far it
+    //   moves along each row (as a whole number of pixels and a 31-bit
+    //   fraction), and the row where it ends.  Tells whether the edge
+    //   crosses any row's center (if not, it is not added).
+    ////////////////////////////////////////////////////////
+    private boolean addPolygonEdge(float x0, float y0, float x1, float y1) {
+        if (y0 > y1) {
+            float t = x0;
+            x0 = x1;
+            x1 = t;
+            t = y0;
+            y0 = y1;
+            y1 = t;
+        }
+        int firstY = (int)Math.ceil(y0 - 0.5f);
+        int lastY = (int)Math.ceil(y1 - 0.5f);
+        if (firstY >= lastY) {
+            return false;
+        }
+
+        if (edgeCount == edgeX.length) {
+            int n = 2*edgeCount;
+            edgeX = Arrays.copyOf(edgeX, n);
+            edgeY = Arrays.copyOf(edgeY, n);
+            edgeLastY = Arrays.copyOf(edgeLastY, n);
+            edgeError = Arrays.copyOf(edgeError, n);
+            edgeBumpX = Arrays.copyOf(edgeBumpX, n);
+            edgeBumpError = Arrays.copyOf(edgeBumpError, n);
+            crossings = Arrays.copyOf(crossings, n);
+        }
+
+        float dx = x1 - x0;
+        float dy = y1 - y0;
+        float slope = dx/dy;
+        x0 += (firstY + 0.5f - y0)*dx/dy;
+        int startX = (int)Math.ceil(x0 - 0.5f);
+
+        int e = edgeCount++;
+        edgeX[e] = startX;
+        edgeY[e] = firstY;
+        edgeLastY[e] = lastY;
+        edgeBumpX[e] = (int)Math.floor(slope);
+        edgeBumpError[e] = (int)((slope - Math.floor(slope))*ERRSTEP_MAX);
+        edgeError[e] = (int)((x0 - (startX - 0.5f))*(float)ERRSTEP_MAX);
+        return true;
+    }
+
+    ////////////////////////////////////////////////////////
+    // stepEdge - moves an edge down one row
+    ////////////////////////////////////////////////////////
+    private void stepEdge(int e) {
+        long error = (edgeError[e] & 0xffffffffL) +
+            (edgeBumpError[e] & 0xffffffffL);
+        edgeX[e] += edgeBumpX[e];
+        if (error > ERRSTEP_MAX) {
+            edgeX[e]++;
+        }
+        edgeError[e] = (int)(error & ERRSTEP_MAX);
+        edgeY[e]++;
+    }
+
+    ////////////////////////////////////////////////////////
+    // insertCrossing - adds a crossing to the first 'count' crossings,
+    //                  keeping them in order
+    ////////////////////////////////////////////////////////
+    private void insertCrossing(int count, int x) {
+        int i = count;
+        while (i > 0 && crossings[i - 1] > x) {
+            crossings[i] = crossings[i - 1];
+            i--;
+        }
+        crossings[i] = x;
+    }
+
+    ////////////////////////////////////////////////////////
+    // fillSpan - paints the pixels from x0 up to (not including) x1 in a
+    //            row, within the clip
+    ////////////////////////////////////////////////////////
+    private void fillSpan(int row, int x0, int x1, int rgb) {
+        x0 = Math.max(x0, clipX0);
+        x1 = Math.min(x1, clipX1);
+        if (x0 >= x1) {
+            return;
+        }
+        int start = row*width;
+        int alpha = rgb >>> 24;
+        if (alpha == 0xff) {
+            Arrays.fill(pixels, start + x0, start + x1, rgb);
+        }
+        else if (alpha != 0) {
+            for (int i = start + x0; i < start + x1; i++) {
+                pixels[i] = blend(rgb, pixels[i]);
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // blend - paints a translucent color over a pixel, as Java2D's
+    //         source-over compositing does for TYPE_INT_ARGB
+    ////////////////////////////////////////////////////////
+    private static int blend(int src, int dst) {
+        int srcA = src >>> 24;
+        int dstA = dst >>> 24;
+        int dstF = mul8(0xff - srcA, dstA);
+        int resA = srcA + dstF;
+        int result = resA << 24;
+        for (int shift = 16; shift >= 0; shift -= 8) {
+            int s = mul8(srcA, (src >> shift) & 0xff);
+            int d = (dst >> shift) & 0xff;
+            if (dstF != 0xff) {
+                d = mul8(dstF, d);
+            }
+            int c = s + d;
+            if (resA > 0 && resA < 0xff) {
+                c = div8(c, resA);
+            }
+            result |= c << shift;
+        }
+        return result;
+    }
+
+    ////////////////////////////////////////////////////////
+    // mul8 - multiplies two 8-bit fractions (0-255 meaning 0-1), rounding
+    //        as Java2D does
+    ////////////////////////////////////////////////////////
+    private static int mul8(int a, int b) {
+        return (a*b*0x10101 + 0x800000) >>> 24;
+    }
+
+    ////////////////////////////////////////////////////////
+    // div8 - divides an 8-bit fraction by another, rounding as Java2D does
+    ////////////////////////////////////////////////////////
+    private static int div8(int v, int a) {
+        if (v >= a) {
+            return 0xff;
+        }
+        long step = ((0xffL << 24) + a/2)/a;
+        return (int)(((1L << 23) + v*step) >>> 24);
+    }
+
+    ////////////////////////////////////////////////////////
+    // updateClip - works out the area that may be drawn in
+    ////////////////////////////////////////////////////////
+    private void updateClip() {
+        clipX0 = 0;
+        clipY0 = 0;
+        clipX1 = width;
+        clipY1 = height;
+        if (deviceClip != null) {
+            clipX0 = Math.max(clipX0, deviceClip.x);
+            clipY0 = Math.max(clipY0, deviceClip.y);
+            clipX1 = Math.min(clipX1, deviceClip.x + deviceClip.width);
+            clipY1 = Math.min(clipY1, deviceClip.y + deviceClip.height);
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // ovalSpans - gives the spans of an oval of a given width and height,
+    //             making them if necessary
+    ////////////////////////////////////////////////////////
+    private static OvalSpans ovalSpans(int w, int h) {
+        Long key = ((long)w << 32) | h;
+        OvalSpans spans = ovals.get(key);
+        if (spans == null) {
+            spans = new OvalSpans(w, h);
+            ovals.put(key, spans);
+        }
+        return spans;
+    }
+
+    ////////////////////////////////////////////////////////
+    // class OvalCache - oval span tables, limited by their total size
+    ////////////////////////////////////////////////////////
+    private static class OvalCache extends LruCache<Long, OvalSpans> {
+        OvalCache(long maxBytes) {
+            super(maxBytes);
+        }
+
+        protected long sizeOf(OvalSpans spans) {
+            return 8L*spans.left.length + 48;
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // class OvalSpans - the pixels covered by an oval at (0,0): for each row
+    // from the top (0), the first pixel and the pixel just past the last
+    // (equal if the row is empty)
+    ////////////////////////////////////////////////////////
+    private static class OvalSpans {
+        int[] left;
+        int[] right;
+
+        // the corners of the straight lines approximating the oval, while
+        // they are being worked out
+        private double[] xs = new double[64];
+        private double[] ys = new double[64];
+        private int count;
+
+        OvalSpans(int w, int h) {
+            // approximate each quarter (a Bezier curve) by straight lines
+            double cx = w/2.0, cy = h/2.0;
+            double kx = KAPPA*cx, ky = KAPPA*cy;
+            addPoint(w, cy);
+            addCurve(w, cy, w, cy + ky, cx + kx, h, cx, h, 0);
+            addCurve(cx, h, cx - kx, h, 0, cy + ky, 0, cy, 0);
+            addCurve(0, cy, 0, cy - ky, cx - kx, 0, cx, 0, 0);
+            addCurve(cx, 0, cx + kx, 0, w, cy - ky, w, cy, 0);
+
+            // a pixel is covered if its top-left corner is inside
+            left = new int[h + 1];
+            right = new int[h + 1];
+            Arrays.fill(left, Integer.MAX_VALUE);
+            Arrays.fill(right, Integer.MIN_VALUE);
+            for (int i = 1; i < count; i++) {
+                double x0 = xs[i - 1], y0 = ys[i - 1];
+                double x1 = xs[i], y1 = ys[i];
+                if (y0 > y1) {
+                    double t = x0;
+                    x0 = x1;
+                    x1 = t;
+                    t = y0;
+                    y0 = y1;
+                    y1 = t;
+                }
+                int last = Math.min((int)Math.ceil(y1), h + 1);
+                for (int r = Math.max((int)Math.ceil(y0), 0); r < last; r++) {
+                    double x = x0 + (r - y0)*(x1 - x0)/(y1 - y0);
+                    int px = (int)Math.ceil(x);
+                    left[r] = Math.min(left[r], px);
+                    right[r] = Math.max(right[r], px);
+                }
+            }
+            for (int r = 0; r <= h; r++) {
+                if (left[r] >= right[r]) {
+                    left[r] = right[r] = 0;
+                }
+            }
+            xs = ys = null;
+        }
+
+        // approximates a Bezier curve by straight lines, splitting it in
+        // half until each piece is flat enough
+        private void addCurve(double x0, double y0, double x1, double y1,
+                              double x2, double y2, double x3, double y3,
+                              int depth) {
+            double limit = FLATNESS*FLATNESS;
+            if (depth < 10 &&
+                (Line2D.ptSegDistSq(x0, y0, x3, y3, x1, y1) > limit ||
+                 Line2D.ptSegDistSq(x0, y0, x3, y3, x2, y2) > limit)) {
+                double ax = (x0 + x1)/2, ay = (y0 + y1)/2;
+                double bx = (x1 + x2)/2, by = (y1 + y2)/2;
+                double cx = (x2 + x3)/2, cy = (y2 + y3)/2;
+                double dx = (ax + bx)/2, dy = (ay + by)/2;
+                double ex = (bx + cx)/2, ey = (by + cy)/2;
+                double mx = (dx + ex)/2, my = (dy + ey)/2;
+                addCurve(x0, y0, ax, ay, dx, dy, mx, my, depth + 1);
+                addCurve(mx, my, ex, ey, cx, cy, x3, y3, depth + 1);
+            }
+            else {
+                addPoint(x3, y3);
+            }
+        }
+
+        private void addPoint(double x, double y) {
+            if (count == xs.length) {
+                xs = Arrays.copyOf(xs, 2*count);
+                ys = Arrays.copyOf(ys, 2*count);
+            }
+            xs[count] = x;
+            ys[count] = y;
+            count++;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+////////////////////////////////////////////////////////
+// RasterGraphicsBenchmark.java - compares RasterGraphics with Java2D
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+
+////////////////////////////////////////////////////////
+// class RasterGraphicsBenchmark - reports how many pixels a RasterGraphics
+// fills differently from Java2D (for each kind of shape, for translucent
+// colors, and for whole faces), then times drawing faces each way, and
+// rendering avatars as HeadlessRenderer does
+//
+// To run:
+//   java RasterGraphicsBenchmark [faceCount]
+//
+////////////////////////////////////////////////////////
+public class RasterGraphicsBenchmark {
+
+    private static final int CANVAS_SIZE = 1000;
+    private static final int ROUNDS = 3;
+
+    // //////////////////////////////////////////////////////
+    // main - runs the benchmark
+    // //////////////////////////////////////////////////////
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+
+        System.out.println("pixels that differ from Java2D:");
+        compareShapes("rectangles", false);
+        compareShapes("polygons", false);
+        compareShapes("noses and hair", false);
+        compareShapes("ovals", false);
+        compareShapes("translucent rectangles", true);
+        compareShapes("translucent polygons", true);
+        compareFaces();
+
+        System.out.println();
+        timeFaces(n, 20);
+        timeFaces(n/5, 100);
+        timeAvatars(2000, 64);
+        timeAvatars(500, 256);
+    }
+
+    ////////////////////////////////////////////////////////
+    // compareShapes - draws thousands of random shapes of one kind each
+    //                 way, and reports the pixels that differ
+    ////////////////////////////////////////////////////////
+    private static void compareShapes(String kind, boolean translucent) {
+        Random rand = new Random(kind.hashCode());
+        BufferedImage expected = FaceBenchmarks.newCanvas(CANVAS_SIZE);
+        BufferedImage actual = FaceBenchmarks.newCanvas(CANVAS_SIZE);
+        Graphics g = expected.getGraphics();
+        Graphics r = new RasterGraphics(actual);
+        Polygon p = new Polygon();
+        int shapes = 0;
+        long differ = 0;
+        long painted = 0;
+
+        // draw a batch at a time on a cleared canvas, so that shapes do not
+        // simply cover each other up
+        for (int batch = 0; batch < 20; batch++) {
+            clear(expected);
+            clear(actual);
+            for (int i = 0; i < 200; i++, shapes++) {
+                Color c = new Color(rand.nextInt(0x1000000) |
+                                    (translucent ? rand.nextInt(255) << 24
+                                     : 0xff000000), true);
+                g.setColor(c);
+                r.setColor(c);
+                int x = rand.nextInt(CANVAS_SIZE + 100) - 100;
+                int y = rand.nextInt(CANVAS_SIZE + 100) - 100;
+                int w = 1 + rand.nextInt(kind.equals("ovals") ? 400 : 200);
+                int h = 1 + rand.nextInt(kind.equals("ovals") ? 400 : 200);
+                if (kind.endsWith("rectangles")) {
+                    g.fillRect(x, y, w, h);
+                    r.fillRect(x, y, w, h);
+                }
+                else if (kind.equals("ovals")) {
+                    g.fillOval(x, y, w, h);
+                    r.fillOval(x, y, w, h);
+                }
+                else {
+                    if (kind.equals("noses and hair")) {
+                        PolygonTransform.fitIn(i % 2 == 0 ? Face.NOSE_SHAPE
+                                               : Face.HAIR_SHAPE,
+                                               x, y, w, h, p);
+                    }
+                    else {
+                        p.reset();
+                        for (int k = 3 + rand.nextInt(8); k > 0; k--) {
+                            p.addPoint(x + rand.nextInt(w), y + rand.nextInt(h));
+                        }
+                    }
+                    g.fillPolygon(p);
+                    r.fillPolygon(p);
+                }
+            }
+            differ += FaceBenchmarks.countDifferences(expected, actual);
+            painted += countPainted(expected);
+        }
+        System.out.printf("  %-24s %7d of %9d painted pixels (%d shapes)%n",
+                          kind, differ, painted, shapes);
+    }
+
+    ////////////////////////////////////////////////////////
+    // compareFaces - draws random faces of every type and size each way,
+    //                and reports the pixels that differ
+    ////////////////////////////////////////////////////////
+    private static void compareFaces() {
+        Random rand = new Random(1);
+        FaceType[] types = FaceType.values();
+        BufferedImage expected = FaceBenchmarks.newCanvas(CANVAS_SIZE);
+        BufferedImage actual = FaceBenchmarks.newCanvas(CANVAS_SIZE);
+        Graphics g = expected.getGraphics();
+        Graphics r = new RasterGraphics(actual);
+        int faces = 0;
+        long differ = 0;
+        long painted = 0;
+        for (int batch = 0; batch < 10; batch++) {
+            clear(expected);
+            clear(actual);
+            for (int i = 0; i < 300; i++, faces++) {
+                Face f = types[rand.nextInt(types.length)].create(
+                    1 + rand.nextInt(250), 1 + rand.nextInt(250));
+                f.setLocation(rand.nextInt(CANVAS_SIZE) - 100,
+                              rand.nextInt(CANVAS_SIZE) - 100);
+                f.drawOn(g);
+                f.drawOn(r);
+            }
+            differ += FaceBenchmarks.countDifferences(expected, actual);
+            painted += countPainted(expected);
+        }
+        System.out.printf("  %-24s %7d of %9d painted pixels (%d faces)%n",
+                          "faces", differ, painted, faces);
+    }
+
+    ////////////////////////////////////////////////////////
+    // timeFaces - times drawing faces of one size on a canvas each way
+    ////////////////////////////////////////////////////////
+    private static void timeFaces(int n, int size) {
+        Random rand = new Random(2);
+        FaceType[] types = FaceType.values();
+        Face[] faces = new Face[n];
+        for (int i = 0; i < n; i++) {
+            faces[i] = types[rand.nextInt(types.length)].create(size, size);
+            faces[i].setLocation(rand.nextInt(CANVAS_SIZE - size),
+                                 rand.nextInt(CANVAS_SIZE - size));
+        }
+        BufferedImage expected = FaceBenchmarks.newCanvas(CANVAS_SIZE);
+        BufferedImage actual = FaceBenchmarks.newCanvas(CANVAS_SIZE);
+        Graphics g = expected.getGraphics();
+        Graphics r = new RasterGraphics(actual);
+        for (int round = 0; round < ROUNDS; round++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                faces[i].drawOn(g);
+            }
+            long t1 = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                faces[i].drawOn(r);
+            }
+            long t2 = System.nanoTime();
+            System.out.printf("%d faces of %dx%d: Java2D %.0f faces/s, " +
+                              "RasterGraphics %.0f faces/s%n", n, size, size,
+                              n/((t1 - t0)/1e9), n/((t2 - t1)/1e9));
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // timeAvatars - times rendering each face type into its own image, as
+    //               HeadlessRenderer does, each way (without writing files)
+    ////////////////////////////////////////////////////////
+    private static void timeAvatars(int n, int size) {
+        FaceType[] types = FaceType.values();
+        for (int round = 0; round < ROUNDS; round++) {
+            long sum = 0;
+            long t0 = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                sum += HeadlessRenderer.render(types[i % types.length], size,
+                                               size, false).getRGB(size/2, 1);
+            }
+            long t1 = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                sum -= HeadlessRenderer.render(types[i % types.length], size,
+                                               size, true).getRGB(size/2, 1);
+            }
+            long t2 = System.nanoTime();
+            System.out.printf("%d avatars of %dx%d: Java2D %.0f images/s, " +
+                              "RasterGraphics %.0f images/s%s%n", n, size,
+                              size, n/((t1 - t0)/1e9), n/((t2 - t1)/1e9),
+                              sum == 0 ? "" : " (pixels differ)");
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // countPainted - tells the number of pixels that are not transparent
+    ////////////////////////////////////////////////////////
+    private static long countPainted(BufferedImage image) {
+        int[] p = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+        long painted = 0;
+        for (int i = 0; i < p.length; i++) {
+            if (p[i] != 0) {
+                painted++;
+            }
+        }
+        return painted;
+    }
+
+    ////////////////////////////////////////////////////////
+    // clear - makes an image transparent
+    ////////////////////////////////////////////////////////
+    private static void clear(BufferedImage image) {
+        int[] p = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+        Arrays.fill(p, 0);
+    }
+}
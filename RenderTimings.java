@@ -0,0 +1,312 @@
+////////////////////////////////////////////////////////
+// RenderTimings.java - measures how long each part of a face takes to draw
+////////////////////////////////////////////////////////
+
+// imports
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.*;
+import javax.management.*;
+
+////////////////////////////////////////////////////////
+// class RenderTimings - optional timing of the parts of Face.helpDrawOn
+//
+// When timing is on (see setEnabled), helpDrawOn times each of drawHead,
+// drawEyes, drawMouth, drawNose, drawHair and drawEars, and adds the time
+// to a histogram kept for that part and the face's class.  When it is off,
+// the only cost is the test of a flag.
+//
+// The timings of each class of face are published, when first recorded, as
+// an MXBean (see FaceTimingsMXBean) named
+//   Faces:type=RenderTimings,name=CLASSNAME
+// in the platform MBean server, so they can be watched with JConsole.  They
+// can also be printed with 'report'.
+//
+// Timings are recorded with atomic counters, so faces may be drawn on
+// several threads at once (see TiledRenderer).  A face drawn from a sprite
+// cache or display list (see Face) does not call helpDrawOn, so it is
+// timed only when the sprite or recording is made.
+//
+// To see the timings of drawing each type of face:
+//   java FaceBenchmarks -parts [count]
+//
+// The RenderTimings class provides the following public methods:
+//   - setEnabled/isEnabled - (static) turn timing on and off
+//   - getTimings - (static) gives the timings of a class of face
+//   - report - (static) prints all of the timings
+//   - reset - (static) sets all of the timings to zero
+//
+////////////////////////////////////////////////////////
+public class RenderTimings {
+
+    // the parts of a face that are timed, in the order in which they are
+    // drawn
+    static final int HEAD = 0;
+    static final int EYES = 1;
+    static final int MOUTH = 2;
+    static final int NOSE = 3;
+    static final int HAIR = 4;
+    static final int EARS = 5;
+    private static final String[] PART_NAMES = {
+        "head", "eyes", "mouth", "nose", "hair", "ears"
+    };
+
+    // the domain and type of the MXBeans' names
+    private static final String OBJECT_NAME_PREFIX =
+        "Faces:type=RenderTimings,name=";
+
+    // whether helpDrawOn should time the parts
+    private static volatile boolean enabled = false;
+
+    // the timings of each class of face, made when first needed
+    private static final ConcurrentHashMap<Class<?>, ClassTimings> timings =
+        new ConcurrentHashMap<Class<?>, ClassTimings>();
+
+    ////////////////////////////////////////////////////////
+    // setEnabled - turns timing on or off
+    //
+    // calling sequence:
+    //   RenderTimings.setEnabled(true);
+    //
+    // parameters:
+    //   on - whether faces' parts should be timed
+    //
+    // side-effects:
+    //   affects every face drawn from now on, on any thread
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    ////////////////////////////////////////////////////////
+    // isEnabled - tells whether timing is on
+    ////////////////////////////////////////////////////////
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    ////////////////////////////////////////////////////////
+    // getTimings - gives the timings of a class of face
+    //
+    // calling sequence:
+    //   someTimings = RenderTimings.getTimings(HomerFace.class);
+    //
+    // parameters:
+    //   c - the class of face
+    //
+    // return-value:
+    //   the class's timings (which are zero if none have been recorded)
+    //
+    // side-effects:
+    //   if the class has no timings yet, they are made, and published as
+    //   an MXBean
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public static FaceTimingsMXBean getTimings(Class<?> c) {
+        return forClass(c);
+    }
+
+    ////////////////////////////////////////////////////////
+    // forClass - gives the timings of a class of face, making and
+    //            publishing them if necessary; used by Face
+    ////////////////////////////////////////////////////////
+    static ClassTimings forClass(Class<?> c) {
+        ClassTimings t = timings.get(c);
+        return t != null ? t : makeTimings(c);
+    }
+
+    ////////////////////////////////////////////////////////
+    // makeTimings - makes and publishes the timings of a class of face,
+    //               unless another thread just has
+    ////////////////////////////////////////////////////////
+    private static synchronized ClassTimings makeTimings(Class<?> c) {
+        ClassTimings t = timings.get(c);
+        if (t == null) {
+            t = new ClassTimings(c);
+            publish(t);
+            timings.put(c, t);
+        }
+        return t;
+    }
+
+    ////////////////////////////////////////////////////////
+    // publish - registers a class's timings with the platform MBean server
+    ////////////////////////////////////////////////////////
+    private static void publish(ClassTimings t) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME_PREFIX +
+                                             t.getFaceClass());
+            if (!server.isRegistered(name)) {
+                server.registerMBean(t, name);
+            }
+        }
+        catch (JMException e) {
+            // the timings are still kept, and can be reported; they just
+            // cannot be watched remotely
+            System.err.println("cannot publish timings of " +
+                               t.getFaceClass() + ": " + e);
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // report - prints the timings of every class of face
+    //
+    // parameters:
+    //   out - where to print them
+    ////////////////////////////////////////////////////////
+    public static void report(java.io.PrintStream out) {
+        // in order of class name
+        TreeMap<String, ClassTimings> all = new TreeMap<String, ClassTimings>();
+        for (ClassTimings t : timings.values()) {
+            all.put(t.getFaceClass(), t);
+        }
+        for (ClassTimings t : all.values()) {
+            out.println(t.getFaceClass());
+            for (int p = 0; p < PART_NAMES.length; p++) {
+                out.printf("  %-6s%s%n", PART_NAMES[p], t.getPart(p));
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // reset - sets the timings of every class of face to zero
+    ////////////////////////////////////////////////////////
+    public static void reset() {
+        for (ClassTimings t : timings.values()) {
+            t.reset();
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // class ClassTimings - the timings of the parts of one class of face
+    ////////////////////////////////////////////////////////
+    static class ClassTimings implements FaceTimingsMXBean {
+        private String className;
+        private Histogram[] parts = new Histogram[PART_NAMES.length];
+
+        ClassTimings(Class<?> c) {
+            className = c.getName();
+            for (int i = 0; i < parts.length; i++) {
+                parts[i] = new Histogram();
+            }
+        }
+
+        // records that drawing a part took the given time
+        void record(int part, long nanos) {
+            parts[part].record(nanos);
+        }
+
+        PartTiming getPart(int part) { return parts[part].summarize(); }
+
+        public String getFaceClass() { return className; }
+        public PartTiming getHead() { return getPart(HEAD); }
+        public PartTiming getEyes() { return getPart(EYES); }
+        public PartTiming getMouth() { return getPart(MOUTH); }
+        public PartTiming getNose() { return getPart(NOSE); }
+        public PartTiming getHair() { return getPart(HAIR); }
+        public PartTiming getEars() { return getPart(EARS); }
+
+        public void reset() {
+            for (int i = 0; i < parts.length; i++) {
+                parts[i].reset();
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // class Histogram - counts of times, in buckets a quarter of a power
+    // of two wide: times 0 to 3 have a bucket each, then 4, 5, 6, 7, then
+    // 8-9, 10-11, 12-13, 14-15, then 16-19, and so on
+    ////////////////////////////////////////////////////////
+    static class Histogram {
+        private static final int BUCKETS = 4*63;
+
+        private AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private LongAdder total = new LongAdder();
+        private AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            if (nanos < 0) {
+                nanos = 0;
+            }
+            counts.incrementAndGet(bucketOf(nanos));
+            total.add(nanos);
+            long m = max.get();
+            while (nanos > m && !max.compareAndSet(m, nanos)) {
+                m = max.get();
+            }
+        }
+
+        // tells the bucket that holds a time
+        static int bucketOf(long v) {
+            if (v < 4) {
+                return (int)v;
+            }
+            int e = 63 - Long.numberOfLeadingZeros(v);
+            return 4*(e - 1) + (int)((v >>> (e - 2)) & 3);
+        }
+
+        // tells the smallest time in a bucket
+        static long lowestIn(int bucket) {
+            if (bucket < 4) {
+                return bucket;
+            }
+            int e = bucket/4 + 1;
+            return (long)(4 + bucket%4) << (e - 2);
+        }
+
+        // tells the largest time in a bucket
+        static long highestIn(int bucket) {
+            return bucket + 1 < BUCKETS ? lowestIn(bucket + 1) - 1
+                : Long.MAX_VALUE;
+        }
+
+        PartTiming summarize() {
+            long[] c = new long[BUCKETS];
+            long n = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                c[i] = counts.get(i);
+                n += c[i];
+            }
+            // (a percentile is never more than the longest time seen)
+            long m = max.get();
+            return new PartTiming(n, total.sum(), m,
+                                  Math.min(percentile(c, n, 0.5), m),
+                                  Math.min(percentile(c, n, 0.99), m));
+        }
+
+        // tells the highest time in the bucket that holds the given
+        // fraction of the times
+        private static long percentile(long[] c, long n, double fraction) {
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long)Math.ceil(fraction*n);
+            long seen = 0;
+            for (int i = 0; i < c.length; i++) {
+                seen += c[i];
+                if (seen >= rank) {
+                    return highestIn(i);
+                }
+            }
+            return highestIn(c.length - 1);
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.set(i, 0);
+            }
+            total.reset();
+            max.set(0);
+        }
+    }
+}
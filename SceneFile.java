@@ -0,0 +1,345 @@
+////////////////////////////////////////////////////////
+// SceneFile.java - reads and writes scenes of faces in a binary format
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+////////////////////////////////////////////////////////
+// class SceneFile - a scene (faces and labels) stored in a file, read by
+// mapping the file into memory
+//
+// The file holds, in order (all numbers are big-endian):
+//   - a header: the magic number 0x4653434E ("FSCN"), the format version
+//     (1), the number of faces and of labels (ints), and the position in
+//     the file of the labels (a long); 24 bytes in all
+//   - the faces' types (FaceType ordinals), one byte each, followed by
+//     zeroes up to a multiple of four bytes
+//   - the faces' x-positions, then y-positions, widths and heights, as
+//     arrays of ints
+//   - the labels, each as its x, y, color (ARGB), font style and font
+//     size (ints), then its font's name and its text (each a two-byte
+//     length followed by that many bytes of UTF-8)
+//
+// So a face takes 17 bytes, and its numbers are at fixed positions.  A
+// SceneFile maps the file into memory (with FileChannel.map) and reads
+// each number from the file's pages when asked for it: opening the file
+// reads only the header, and no object is created for a face unless
+// asked for (see createFace).  The faces can also be copied into a
+// FaceBatch, which stores them as arrays.
+//
+// A SceneFile object provides the following public methods:
+//   - write - (static) writes a scene to a file
+//   - open - (static) maps a scene file for reading
+//   - getFaceCount - tells the number of faces
+//   - getType/getX/getY/getWidth/getHeight - tell about a face
+//   - createFace - makes a Face object for a face
+//   - toBatch - copies the faces into a FaceBatch
+//   - getLabelCount - tells the number of labels
+//   - getLabels - makes the labels
+//
+////////////////////////////////////////////////////////
+public class SceneFile {
+
+    // the first four bytes of a scene file, and the format version
+    private static final int MAGIC = 0x4653434E;
+    private static final int VERSION = 1;
+
+    // the length of the header
+    private static final int HEADER_BYTES = 24;
+
+    // the face types, indexed by ordinal
+    private static final FaceType[] TYPES = FaceType.values();
+
+    ///////////////////////////////
+    // instance variables
+    ///////////////////////////////
+
+    // the mapped file
+    private ByteBuffer buffer;
+
+    // the number of faces and labels, and where the labels start
+    private int faceCount;
+    private int labelCount;
+    private int labelsAt;
+
+    // views of the faces' arrays of ints
+    private IntBuffer xs;
+    private IntBuffer ys;
+    private IntBuffer widths;
+    private IntBuffer heights;
+
+    ////////////////////////////////////////////////////////
+    // SceneFile - constructor; used only by 'open'
+    ////////////////////////////////////////////////////////
+    private SceneFile(ByteBuffer buffer, String name) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException(name + " is not a scene file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException(name + " has unknown version " +
+                                  buffer.getInt(4));
+        }
+        faceCount = buffer.getInt(8);
+        labelCount = buffer.getInt(12);
+        long labels = buffer.getLong(16);
+        if (faceCount < 0 || labelCount < 0 ||
+            labels != labelsOffset(faceCount) || labels > buffer.capacity()) {
+            throw new IOException(name + " is damaged");
+        }
+        labelsAt = (int)labels;
+
+        int at = (int)typesEnd(faceCount);
+        xs = view(at);
+        ys = view(at + 4*faceCount);
+        widths = view(at + 8*faceCount);
+        heights = view(at + 12*faceCount);
+    }
+
+    ////////////////////////////////////////////////////////
+    // view - makes a view of 'faceCount' ints starting at a position
+    ////////////////////////////////////////////////////////
+    private IntBuffer view(int at) {
+        ByteBuffer b = buffer.duplicate();
+        b.position(at);
+        b.limit(at + 4*faceCount);
+        return b.slice().asIntBuffer();
+    }
+
+    ////////////////////////////////////////////////////////
+    // typesEnd - tells where the types of some number of faces end,
+    //            including the padding after them
+    ////////////////////////////////////////////////////////
+    private static long typesEnd(int faces) {
+        return (HEADER_BYTES + (long)faces + 3) & ~3L;
+    }
+
+    ////////////////////////////////////////////////////////
+    // labelsOffset - tells where the labels start, after some number of
+    //                faces
+    ////////////////////////////////////////////////////////
+    private static long labelsOffset(int faces) {
+        return typesEnd(faces) + 16L*faces;
+    }
+
+    ////////////////////////////////////////////////////////
+    // write - writes a scene to a file
+    //
+    // calling sequence:
+    //   SceneFile.write(file, faces, labels);
+    //
+    // parameters:
+    //   file - the file to write
+    //   faces - the faces, in the order in which they are drawn
+    //   labels - the labels (none if null)
+    //
+    // side-effects:
+    //   the file is created or replaced
+    //
+    // bugs/anomalies:
+    //   throws IOException if the file cannot be written, or if the scene
+    //   would be too large to map (2 gigabytes; about 125 million faces)
+    //
+    ////////////////////////////////////////////////////////
+    public static void write(File file, FaceBatch faces,
+                             java.util.List<FaceLabel> labels)
+        throws IOException {
+        int n = faces.size();
+        if (labelsOffset(n) > Integer.MAX_VALUE) {
+            throw new IOException("too many faces for a scene file: " + n);
+        }
+        int labelTotal = labels == null ? 0 : labels.size();
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            new FileOutputStream(file), 1 << 16));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(n);
+            out.writeInt(labelTotal);
+            out.writeLong(labelsOffset(n));
+
+            for (int i = 0; i < n; i++) {
+                out.writeByte(faces.getType(i).ordinal());
+            }
+            for (int i = HEADER_BYTES + n; i < typesEnd(n); i++) {
+                out.writeByte(0);
+            }
+            for (int i = 0; i < n; i++) {
+                out.writeInt(faces.getX(i));
+            }
+            for (int i = 0; i < n; i++) {
+                out.writeInt(faces.getY(i));
+            }
+            for (int i = 0; i < n; i++) {
+                out.writeInt(faces.getWidth(i));
+            }
+            for (int i = 0; i < n; i++) {
+                out.writeInt(faces.getHeight(i));
+            }
+
+            for (int i = 0; i < labelTotal; i++) {
+                FaceLabel label = labels.get(i);
+                Font font = label.getFont();
+                out.writeInt(label.getX());
+                out.writeInt(label.getY());
+                out.writeInt(label.getColor().getRGB());
+                out.writeInt(font.getStyle());
+                out.writeInt(font.getSize());
+                writeString(out, font.getName());
+                writeString(out, label.getText());
+            }
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // writeString - writes a string as its length and UTF-8 bytes
+    ////////////////////////////////////////////////////////
+    private static void writeString(DataOutputStream out, String s)
+        throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IOException("string too long for a scene file");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    ////////////////////////////////////////////////////////
+    // open - maps a scene file for reading
+    //
+    // calling sequence:
+    //   aScene = SceneFile.open(file);
+    //
+    // parameters:
+    //   file - the file to read
+    //
+    // return-value:
+    //   the scene
+    //
+    // side-effects:
+    //   the file is mapped into memory (read-only); it stays mapped until
+    //   the SceneFile is garbage-collected
+    //
+    // bugs/anomalies:
+    //   throws IOException if the file cannot be read, or is not a scene
+    //   file.  Changing the file while it is mapped changes (or, if it is
+    //   shortened, breaks) the scene.
+    //
+    ////////////////////////////////////////////////////////
+    public static SceneFile open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too large to map");
+            }
+            // (the mapping remains valid after the file is closed)
+            ByteBuffer b = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                       channel.size());
+            return new SceneFile(b, file.toString());
+        }
+        finally {
+            raf.close();
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // simple accessors for the faces
+    ////////////////////////////////////////////////////////
+    public int getFaceCount() { return faceCount; }
+    public int getX(int i) { return xs.get(i); }
+    public int getY(int i) { return ys.get(i); }
+    public int getWidth(int i) { return widths.get(i); }
+    public int getHeight(int i) { return heights.get(i); }
+
+    ////////////////////////////////////////////////////////
+    // getType - tells the type of a face
+    //
+    // bugs/anomalies:
+    //   throws IllegalStateException if the file holds an unknown type
+    ////////////////////////////////////////////////////////
+    public FaceType getType(int i) {
+        if (i < 0 || i >= faceCount) {
+            throw new IndexOutOfBoundsException("face " + i + " of " +
+                                                faceCount);
+        }
+        int t = buffer.get(HEADER_BYTES + i);
+        if (t < 0 || t >= TYPES.length) {
+            throw new IllegalStateException("face " + i + " has unknown type " +
+                                            t);
+        }
+        return TYPES[t];
+    }
+
+    ////////////////////////////////////////////////////////
+    // createFace - makes a Face object for one of the faces
+    ////////////////////////////////////////////////////////
+    public Face createFace(int i) {
+        Face f = getType(i).create(getWidth(i), getHeight(i));
+        f.setLocation(getX(i), getY(i));
+        return f;
+    }
+
+    ////////////////////////////////////////////////////////
+    // toBatch - copies all of the faces into a new FaceBatch
+    ////////////////////////////////////////////////////////
+    public FaceBatch toBatch() {
+        FaceBatch batch = new FaceBatch(faceCount);
+        for (int i = 0; i < faceCount; i++) {
+            batch.add(getType(i), xs.get(i), ys.get(i), widths.get(i),
+                      heights.get(i));
+        }
+        return batch;
+    }
+
+    ////////////////////////////////////////////////////////
+    // getLabelCount - tells the number of labels
+    ////////////////////////////////////////////////////////
+    public int getLabelCount() { return labelCount; }
+
+    ////////////////////////////////////////////////////////
+    // getLabels - makes FaceLabel objects for all of the labels
+    //
+    // bugs/anomalies:
+    //   throws IllegalStateException if the labels are damaged
+    ////////////////////////////////////////////////////////
+    public ArrayList<FaceLabel> getLabels() {
+        ArrayList<FaceLabel> labels = new ArrayList<FaceLabel>(labelCount);
+        ByteBuffer b = buffer.duplicate();
+        b.position(labelsAt);
+        try {
+            for (int i = 0; i < labelCount; i++) {
+                int x = b.getInt();
+                int y = b.getInt();
+                Color color = new Color(b.getInt(), true);
+                int style = b.getInt();
+                int size = b.getInt();
+                Font font = FontPool.get(readString(b), style, size);
+                labels.add(new FaceLabel(readString(b), x, y, font, color));
+            }
+        }
+        catch (BufferUnderflowException e) {
+            throw new IllegalStateException("scene file's labels are damaged");
+        }
+        return labels;
+    }
+
+    ////////////////////////////////////////////////////////
+    // readString - reads a string written by writeString
+    ////////////////////////////////////////////////////////
+    private static String readString(ByteBuffer b) {
+        byte[] bytes = new byte[b.getShort() & 0xFFFF];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
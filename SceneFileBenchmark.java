@@ -0,0 +1,155 @@
+////////////////////////////////////////////////////////
+// SceneFileBenchmark.java - measures loading a large scene file
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.*;
+import java.io.*;
+import java.util.*;
+
+////////////////////////////////////////////////////////
+// class SceneFileBenchmark - writes a scene of random faces to a file,
+// then reports how long it takes to open the file and read every face, and
+// how much memory that uses, checking that every face reads back the same
+//
+// Memory is reported two ways: the Java heap in use (after garbage
+// collection), and, on Linux, the process's resident set size, which also
+// counts the mapped pages of the file that have been touched.
+//
+// To run:
+//   java SceneFileBenchmark [faceCount [file]]
+//
+// (by default, a million faces, in a temporary file).
+//
+////////////////////////////////////////////////////////
+public class SceneFileBenchmark {
+
+    // //////////////////////////////////////////////////////
+    // main - runs the benchmark
+    // //////////////////////////////////////////////////////
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        File file;
+        if (args.length > 1) {
+            file = new File(args[1]);
+        }
+        else {
+            file = File.createTempFile("scene", ".bin");
+            file.deleteOnExit();
+        }
+
+        // a scene of random faces, with a label
+        Random rand = new Random(1);
+        FaceType[] types = FaceType.values();
+        FaceBatch faces = new FaceBatch(n);
+        for (int i = 0; i < n; i++) {
+            faces.add(types[rand.nextInt(types.length)],
+                      rand.nextInt(100000), rand.nextInt(100000),
+                      20 + rand.nextInt(200), 20 + rand.nextInt(200));
+        }
+        ArrayList<FaceLabel> labels = new ArrayList<FaceLabel>();
+        labels.add(new FaceLabel("A MILLION FACES", 10, 20));
+        labels.add(new FaceLabel("\u00e9t\u00e9", 10, 40,
+                                 new Font("Dialog", Font.ITALIC, 11),
+                                 new Color(10, 20, 30, 40)));
+
+        long t0 = System.nanoTime();
+        SceneFile.write(file, faces, labels);
+        long t1 = System.nanoTime();
+        System.out.printf("wrote %d faces in %.1f ms: %d bytes (%.1f " +
+                          "bytes/face)%n", n, (t1 - t0)/1e6, file.length(),
+                          (double)file.length()/n);
+
+        long heap0 = usedHeap();
+        long rss0 = residentBytes();
+        t0 = System.nanoTime();
+        SceneFile scene = SceneFile.open(file);
+        t1 = System.nanoTime();
+
+        // read every face's numbers, straight from the mapped file
+        long sum = 0;
+        for (int i = 0; i < scene.getFaceCount(); i++) {
+            sum += scene.getX(i) + scene.getY(i) + scene.getWidth(i) +
+                scene.getHeight(i) + scene.getType(i).ordinal();
+        }
+        long t2 = System.nanoTime();
+        long heap1 = usedHeap();
+        long rss1 = residentBytes();
+
+        System.out.printf("open: %.3f ms; read every face: %.1f ms " +
+                          "(checksum %d)%n", (t1 - t0)/1e6, (t2 - t1)/1e6,
+                          sum);
+        System.out.printf("heap grew by %d KB; resident memory grew by %s%n",
+                          (heap1 - heap0) >> 10,
+                          rss0 < 0 ? "(unknown)" : ((rss1 - rss0) >> 10) +
+                          " KB");
+
+        // copying into arrays
+        t0 = System.nanoTime();
+        FaceBatch copy = scene.toBatch();
+        t1 = System.nanoTime();
+        System.out.printf("toBatch: %.1f ms, %d bytes/face on the heap%n",
+                          (t1 - t0)/1e6, FaceBatch.bytesPerFace());
+
+        // check that everything came back
+        for (int i = 0; i < n; i++) {
+            if (copy.getType(i) != faces.getType(i) ||
+                copy.getX(i) != faces.getX(i) ||
+                copy.getY(i) != faces.getY(i) ||
+                copy.getWidth(i) != faces.getWidth(i) ||
+                copy.getHeight(i) != faces.getHeight(i)) {
+                throw new IllegalStateException("face " + i + " differs");
+            }
+        }
+        ArrayList<FaceLabel> read = scene.getLabels();
+        for (int i = 0; i < labels.size(); i++) {
+            FaceLabel a = labels.get(i);
+            FaceLabel b = read.get(i);
+            if (!a.getText().equals(b.getText()) || a.getX() != b.getX() ||
+                a.getY() != b.getY() || !a.getFont().equals(b.getFont()) ||
+                a.getColor().getRGB() != b.getColor().getRGB()) {
+                throw new IllegalStateException("label " + i + " differs");
+            }
+        }
+        System.out.println("all faces and labels read back correctly");
+    }
+
+    ////////////////////////////////////////////////////////
+    // usedHeap - tells the heap in use, after collecting garbage
+    ////////////////////////////////////////////////////////
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    ////////////////////////////////////////////////////////
+    // residentBytes - tells the process's resident set size, or -1 if it
+    //                 cannot be found (it is read from /proc on Linux)
+    ////////////////////////////////////////////////////////
+    private static long residentBytes() {
+        try {
+            BufferedReader in = new BufferedReader(
+                new FileReader("/proc/self/status"));
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.startsWith("VmRSS:")) {
+                        String kb = line.substring(6).trim().split("\\s+")[0];
+                        return Long.parseLong(kb) << 10;
+                    }
+                }
+            }
+            finally {
+                in.close();
+            }
+        }
+        catch (IOException e) {
+            // not Linux
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,207 @@
+////////////////////////////////////////////////////////
+// SpriteCache.java - pre-drawn images of faces
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.*;
+import java.awt.image.*;
+
+////////////////////////////////////////////////////////
+// class SpriteCache - a cache of faces that have already been drawn
+//
+// Drawing a face takes a dozen or so fill operations, but what is drawn
+// depends only on the face's class and its width and height; the face's
+// location just moves the picture.  A SpriteCache draws each (class, width,
+// height) combination once into a translucent image (a "sprite"), and
+// afterwards just copies that image to wherever the face is.
+//
+// The cache is limited to a given number of bytes; the least-recently-used
+// sprites are discarded when it is full.  To have all faces drawn through
+// a cache, use Face.setSpriteCache.  A PlacedFace shares the sprites of
+// Faces of its style's class.
+//
+// A SpriteCache object provides the following public methods (in addition
+// to those of LruCache):
+//   - SpriteCache - the constructor
+//   - drawFace - draws a face (a Face or a PlacedFace), using (or
+//     creating) its sprite
+//
+////////////////////////////////////////////////////////
+public class SpriteCache extends LruCache<SpriteCache.Key, SpriteCache.Sprite> {
+
+    ////////////////////////////////////////////////////////
+    // SpriteCache - constructor
+    //
+    // calling sequence:
+    //   aCache = new SpriteCache(maxBytes);
+    //
+    // parameters:
+    //   maxBytes - the most memory that the sprites may use
+    //
+    // side-effects:
+    //   the (empty) cache is created
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public SpriteCache(long maxBytes) {
+        super(maxBytes);
+    }
+
+    ////////////////////////////////////////////////////////
+    // drawFace - draws a face by copying its sprite
+    //
+    // calling sequence:
+    //   aCache.drawFace(aFace, g);
+    //
+    // parameters:
+    //   f - the face to draw
+    //   g - the graphics object on which to draw the face
+    //
+    // side-effects:
+    //   the face is drawn on the graphics object.  If there is no sprite for
+    //   the face yet, one is created and added to the cache.
+    //
+    // bugs/anomalies:
+    //   The sprite is drawn without the graphics object's rendering hints
+    //   (e.g., antialiasing).  Java's polygon filling is not exactly the same
+    //   at every position, so a few pixels along the edges of the nose and
+    //   hair may differ from those of a face drawn directly.  A face whose
+    //   drawing depends on anything other than its class, width and height
+    //   should not be drawn this way.  A face too large to fit in the cache
+    //   is drawn directly.
+    //
+    ////////////////////////////////////////////////////////
+    public void drawFace(Face f, Graphics g) {
+        Key key = new Key(f.getClass(), f.getWidth(), f.getHeight());
+        Sprite sprite = get(key);
+        if (sprite == null) {
+            sprite = makeSprite(key, f, g);
+            if (sprite == null) {
+                return;
+            }
+        }
+        g.drawImage(sprite.image, f.getX() + sprite.dx, f.getY() + sprite.dy,
+                    null);
+    }
+
+    ////////////////////////////////////////////////////////
+    // drawFace - draws a PlacedFace by copying its sprite
+    //
+    // calling sequence:
+    //   aCache.drawFace(aPlacedFace, g);
+    //
+    // parameters:
+    //   p - the face to draw
+    //   g - the graphics object on which to draw the face
+    //
+    // side-effects:
+    //   the face is drawn on the graphics object.  If there is no sprite for
+    //   the face's class and size yet, one is created (by way of a
+    //   temporary Face) and added to the cache.  The graphics object's color
+    //   may be changed.
+    //
+    // bugs/anomalies:
+    //   as for drawFace(Face, Graphics)
+    //
+    ////////////////////////////////////////////////////////
+    public void drawFace(PlacedFace p, Graphics g) {
+        Key key = new Key(p.getStyle().getFaceClass(), p.getWidth(),
+                          p.getHeight());
+        Sprite sprite = get(key);
+        if (sprite == null) {
+            sprite = makeSprite(key, p.toFace(), g);
+            if (sprite == null) {
+                return;
+            }
+        }
+        g.drawImage(sprite.image, p.getX() + sprite.dx, p.getY() + sprite.dy,
+                    null);
+    }
+
+    ////////////////////////////////////////////////////////
+    // makeSprite - creates and keeps the sprite for a face; or, if it is
+    //              too large to keep, draws the face directly and gives null
+    ////////////////////////////////////////////////////////
+    private Sprite makeSprite(Key key, Face f, Graphics g) {
+        // don't bother creating a sprite that could never be kept
+        Rectangle b = f.getBounds();
+        if (4L*b.width*b.height > getMaxBytes()) {
+            f.helpDrawOn(g);
+            return null;
+        }
+        Sprite sprite = createSprite(f, b);
+        put(key, sprite);
+        return sprite;
+    }
+
+    ////////////////////////////////////////////////////////
+    // sizeOf - tells the number of bytes used by a sprite's pixels
+    ////////////////////////////////////////////////////////
+    protected long sizeOf(Sprite s) {
+        return 4L*s.image.getWidth()*s.image.getHeight();
+    }
+
+    ////////////////////////////////////////////////////////
+    // createSprite - draws a face into a new image
+    //
+    // parameters:
+    //   f - the face to draw
+    //   b - the face's bounds
+    ////////////////////////////////////////////////////////
+    private static Sprite createSprite(Face f, Rectangle b) {
+        BufferedImage image = new BufferedImage(Math.max(b.width, 1),
+                                                Math.max(b.height, 1),
+                                                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = image.createGraphics();
+        g2.translate(-b.x, -b.y);
+        f.helpDrawOn(g2);
+        g2.dispose();
+        return new Sprite(image, b.x - f.getX(), b.y - f.getY());
+    }
+
+    ////////////////////////////////////////////////////////
+    // class Key - identifies a sprite: a face class, width and height
+    ////////////////////////////////////////////////////////
+    static class Key {
+        private Class<?> faceClass;
+        private int width;
+        private int height;
+
+        Key(Class<?> c, int w, int h) {
+            faceClass = c;
+            width = w;
+            height = h;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key)o;
+            return faceClass == k.faceClass && width == k.width &&
+                height == k.height;
+        }
+
+        public int hashCode() {
+            return (faceClass.hashCode()*31 + width)*31 + height;
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // class Sprite - a pre-drawn face, along with the offset of the image's
+    // top-left corner from the face's (x,y) position
+    ////////////////////////////////////////////////////////
+    static class Sprite {
+        private BufferedImage image;
+        private int dx;
+        private int dy;
+
+        Sprite(BufferedImage i, int x, int y) {
+            image = i;
+            dx = x;
+            dy = y;
+        }
+    }
+}
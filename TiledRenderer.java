@@ -0,0 +1,255 @@
+////////////////////////////////////////////////////////
+// TiledRenderer.java - draws faces using several threads
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+////////////////////////////////////////////////////////
+// class TiledRenderer - draws the faces in a FaceGrid into an image,
+// dividing the image into square tiles that are drawn in parallel
+//
+// Each tile is drawn by a task in a ForkJoinPool: the task draws every face
+// that overlaps the tile, in paint order, into an image of its own, then
+// copies just the tile's pixels into the destination image.  Since the
+// tiles do not overlap, the tasks never write to the same pixel.
+//
+// Each thread's own image covers the tile and every face that overlaps it
+// (cut off only at the destination's edges, as the faces would be), and is
+// drawn on through a translation that puts the faces where they are in the
+// destination.  The image is kept and reused for the next tile, growing
+// when a tile needs more room, so it is about the size of a tile plus the
+// largest face.  The faces are not clipped to the tile, since Java may
+// fill an oval slightly differently when a clip edge crosses it.
+//
+// The result is nearly the same as if each face's drawOn had been called,
+// in order, on a single thread.  Java rounds shape coordinates slightly
+// differently at different positions, so a face drawn through the
+// translation can differ from one drawn in place by a pixel or so along
+// its edges; TiledRendererBenchmark counts such pixels, which are
+// typically about 1 in 10,000.  Drawing at the faces' own coordinates would
+// make the result exact, but would need an image as large as the
+// destination for every thread.
+//
+// A tile whose faces all lie within it is drawn straight into the
+// destination, exactly, with no image of its own.  With a single thread,
+// splitting the area into tiles would only draw the faces that straddle
+// tiles more than once, so the whole area is drawn as one tile.
+//
+// A TiledRenderer object provides the following public methods:
+//   - TiledRenderer - the constructor
+//   - render - draws the faces in an area of an image
+//   - getTileSize - tells the size of the tiles
+//
+////////////////////////////////////////////////////////
+public class TiledRenderer {
+
+    ///////////////////////////////
+    // instance variables
+    ///////////////////////////////
+
+    // the threads that draw the tiles
+    private ForkJoinPool pool;
+
+    // the width and height of each tile
+    private int tileSize;
+
+    // each thread's own image, large enough for the largest tile so far
+    // and the faces overlapping it
+    private ThreadLocal<BufferedImage> scratch =
+        new ThreadLocal<BufferedImage>();
+
+    ////////////////////////////////////////////////////////
+    // TiledRenderer - constructor
+    //
+    // calling sequence:
+    //   aRenderer = new TiledRenderer(pool, tileSize);
+    //
+    // parameters:
+    //   pool - the threads that draw the tiles
+    //   tileSize - the width and height of each tile
+    //
+    // side-effects:
+    //   the renderer is created
+    //
+    // bugs/anomalies:
+    //   none known
+    //
+    ////////////////////////////////////////////////////////
+    public TiledRenderer(ForkJoinPool pool, int tileSize) {
+        this.pool = pool;
+        this.tileSize = Math.max(tileSize, 1);
+    }
+
+    ////////////////////////////////////////////////////////
+    // getTileSize - tells the width and height of each tile
+    ////////////////////////////////////////////////////////
+    public int getTileSize() { return tileSize; }
+
+    ////////////////////////////////////////////////////////
+    // render - draws the faces in an area of an image
+    //
+    // calling sequence:
+    //   aRenderer.render(grid, image, area, background);
+    //
+    // parameters:
+    //   grid - the faces to draw
+    //   image - the image to draw them on
+    //   area - the part of the image to draw
+    //   background - the color to fill the area with first, or null to
+    //                make the area transparent
+    //
+    // side-effects:
+    //   the pixels of the image within the area are replaced.  The method
+    //   returns when all of the tiles have been drawn.
+    //
+    // bugs/anomalies:
+    //   The faces must not be moved, and the grid must not be changed, while
+    //   this method runs.  Drawing a face must not depend on anything that
+    //   the other threads change; the faces in this project are all safe.
+    //   Each thread of the pool keeps an image about the size of a tile
+    //   and a face.  Throws IllegalArgumentException if the image is of a
+    //   custom type.
+    //
+    ////////////////////////////////////////////////////////
+    public void render(FaceGrid grid, BufferedImage image, Rectangle area,
+                       Color background) {
+        if (image.getType() == BufferedImage.TYPE_CUSTOM) {
+            throw new IllegalArgumentException(
+                "image type must not be custom");
+        }
+
+        // find each tile's faces here, since a FaceGrid may be used by only
+        // one thread at a time
+        ArrayList<Tile> tiles = new ArrayList<Tile>();
+        area = area.intersection(new Rectangle(0, 0, image.getWidth(),
+                                               image.getHeight()));
+        int size = pool.getParallelism() > 1 ? tileSize
+            : Math.max(area.width, area.height);
+        for (int ty = area.y; ty < area.y + area.height; ty += size) {
+            for (int tx = area.x; tx < area.x + area.width; tx += size) {
+                Tile t = new Tile();
+                t.bounds = area.intersection(new Rectangle(tx, ty, size,
+                                                           size));
+                grid.query(t.bounds, t.faces);
+                tiles.add(t);
+            }
+        }
+
+        pool.invoke(new DrawTiles(tiles, 0, tiles.size(), image, background));
+    }
+
+    ////////////////////////////////////////////////////////
+    // drawTile - draws one tile (on whichever thread the pool chooses)
+    ////////////////////////////////////////////////////////
+    private void drawTile(Tile t, BufferedImage image, Color background) {
+        // the area that the tile's faces cover, all of which must be cleared,
+        // as far as the destination goes
+        Rectangle used = new Rectangle(t.bounds);
+        for (int i = 0; i < t.faces.size(); i++) {
+            used.add(t.faces.get(i).getBounds());
+        }
+        used = used.intersection(new Rectangle(0, 0, image.getWidth(),
+                                               image.getHeight()));
+
+        // if no face reaches outside the tile, no other tile's pixels can
+        // be touched, so the tile is drawn straight into the destination
+        if (used.equals(t.bounds)) {
+            Graphics2D g = image.createGraphics();
+            clearAndDraw(g, t, used, background);
+            g.dispose();
+            return;
+        }
+
+        // get this thread's image, making sure it is of the destination's
+        // type and large enough; only the part of it the size of 'used' is
+        // drawn on, so that its edges are the destination's
+        BufferedImage own = scratch.get();
+        if (own == null || own.getWidth() < used.width ||
+            own.getHeight() < used.height ||
+            own.getType() != image.getType()) {
+            int w = Math.max(used.width, own == null ? 0 : own.getWidth());
+            int h = Math.max(used.height, own == null ? 0 : own.getHeight());
+            own = new BufferedImage(w, h, image.getType());
+            scratch.set(own);
+        }
+
+        Graphics2D g = own.getSubimage(0, 0, used.width,
+                                       used.height).createGraphics();
+        g.translate(-used.x, -used.y);
+        clearAndDraw(g, t, used, background);
+        g.dispose();
+
+        // copy the tile's pixels to the destination
+        Rectangle b = t.bounds;
+        image.getRaster().setRect(own.getRaster().createChild(
+            b.x - used.x, b.y - used.y, b.width, b.height, b.x, b.y, null));
+    }
+
+    ////////////////////////////////////////////////////////
+    // clearAndDraw - clears an area to the background (or to transparent,
+    // if the background is null), then draws a tile's faces in order
+    ////////////////////////////////////////////////////////
+    private static void clearAndDraw(Graphics2D g, Tile t, Rectangle area,
+                                     Color background) {
+        if (background == null) {
+            g.setComposite(AlphaComposite.Clear);
+            g.fillRect(area.x, area.y, area.width, area.height);
+            g.setComposite(AlphaComposite.SrcOver);
+        }
+        else {
+            g.setColor(background);
+            g.fillRect(area.x, area.y, area.width, area.height);
+        }
+        for (int i = 0; i < t.faces.size(); i++) {
+            t.faces.get(i).drawOn(g);
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // class Tile - a tile's rectangle, and the faces that overlap it
+    ////////////////////////////////////////////////////////
+    private static class Tile {
+        Rectangle bounds;
+        ArrayList<Face> faces = new ArrayList<Face>();
+    }
+
+    ////////////////////////////////////////////////////////
+    // class DrawTiles - a task that draws a range of tiles, splitting the
+    // range in half (to be drawn in parallel) until it is a single tile
+    ////////////////////////////////////////////////////////
+    private class DrawTiles extends RecursiveAction {
+        // RecursiveAction is Serializable; DrawTiles is never serialized
+        private static final long serialVersionUID = 1L;
+
+        private ArrayList<Tile> tiles;
+        private int from;
+        private int to;
+        private BufferedImage image;
+        private Color background;
+
+        DrawTiles(ArrayList<Tile> tiles, int from, int to,
+                  BufferedImage image, Color background) {
+            this.tiles = tiles;
+            this.from = from;
+            this.to = to;
+            this.image = image;
+            this.background = background;
+        }
+
+        protected void compute() {
+            if (to - from <= 1) {
+                if (to > from) {
+                    drawTile(tiles.get(from), image, background);
+                }
+                return;
+            }
+            int mid = (from + to)/2;
+            invokeAll(new DrawTiles(tiles, from, mid, image, background),
+                      new DrawTiles(tiles, mid, to, image, background));
+        }
+    }
+}
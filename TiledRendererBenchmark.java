@@ -0,0 +1,92 @@
+////////////////////////////////////////////////////////
+// TiledRendererBenchmark.java - times TiledRenderer with 1 to N threads
+////////////////////////////////////////////////////////
+
+// imports
+import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+////////////////////////////////////////////////////////
+// class TiledRendererBenchmark - draws a large canvas of faces on a single
+// thread, then with a TiledRenderer using 1, 2, 4, ... threads (up to the
+// number of processors), checking each time that no more than 1 pixel in
+// 1000 differs (see TiledRenderer for why a few may)
+//
+// To run:
+//   java TiledRendererBenchmark [faceCount [canvasSize [tileSize]]]
+//
+////////////////////////////////////////////////////////
+public class TiledRendererBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    // //////////////////////////////////////////////////////
+    // main - runs the benchmark
+    // //////////////////////////////////////////////////////
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int tileSize = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+
+        // a canvas of random faces of every type
+        Random rand = new Random(1);
+        FaceType[] types = FaceType.values();
+        FaceGrid grid = new FaceGrid(new Rectangle(0, 0, size, size), 128);
+        ArrayList<Face> faces = new ArrayList<Face>();
+        for (int i = 0; i < n; i++) {
+            Face f = types[rand.nextInt(types.length)].create(
+                20 + rand.nextInt(100), 20 + rand.nextInt(100));
+            f.setLocation(rand.nextInt(size) - 50, rand.nextInt(size) - 50);
+            grid.add(f);
+            faces.add(f);
+        }
+        Rectangle all = new Rectangle(0, 0, size, size);
+
+        // the single-threaded result, to compare against
+        BufferedImage expected = FaceBenchmarks.newCanvas(size);
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < ROUNDS; r++) {
+            long t0 = System.nanoTime();
+            Graphics g = expected.getGraphics();
+            g.setColor(Color.white);
+            g.fillRect(0, 0, size, size);
+            for (int i = 0; i < faces.size(); i++) {
+                faces.get(i).drawOn(g);
+            }
+            g.dispose();
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        System.out.printf("%d faces on %dx%d, tiles %d; %d processors%n", n,
+                          size, size, tileSize,
+                          Runtime.getRuntime().availableProcessors());
+        System.out.printf("sequential drawOn: %8.1f ms%n", best/1e6);
+
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; ; threads *= 2) {
+            threads = Math.min(threads, maxThreads);
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            TiledRenderer renderer = new TiledRenderer(pool, tileSize);
+            BufferedImage actual = FaceBenchmarks.newCanvas(size);
+            long tiledBest = Long.MAX_VALUE;
+            for (int r = 0; r < ROUNDS; r++) {
+                long t0 = System.nanoTime();
+                renderer.render(grid, actual, all, Color.white);
+                tiledBest = Math.min(tiledBest, System.nanoTime() - t0);
+            }
+            pool.shutdown();
+
+            long differ = FaceBenchmarks.countDifferences(expected, actual);
+            System.out.printf("tiled, %2d threads: %8.1f ms  (speedup %.2f," +
+                              " %d pixels differ)%n", threads, tiledBest/1e6,
+                              (double)best/tiledBest, differ);
+            if (differ > (long)size * size / 1000) {
+                throw new IllegalStateException("tiled output differs");
+            }
+            if (threads == maxThreads) {
+                break;
+            }
+        }
+    }
+}
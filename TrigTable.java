@@ -0,0 +1,102 @@
+////////////////////////////////////////////////////////
+// TrigTable.java - precomputed sines and cosines of whole degrees
+////////////////////////////////////////////////////////
+
+////////////////////////////////////////////////////////
+// class TrigTable - sines and cosines looked up in a table
+//
+// The shapes of faces are turned only by whole numbers of degrees (most
+// often 0, 90, 180 or 270), so the sine and cosine of each whole degree
+// from 0 to 359 are computed once, when the class is loaded.  Other angles
+// are computed with Math.sin and Math.cos, as before.
+//
+// Each value in the table is computed exactly as Polygon2.rotateBy
+// computes it (the angle is converted with 'degrees/180.0*Math.PI'), so a
+// shape rotated with the table has exactly the same points as one rotated
+// by Polygon2 (see PolygonTransform.rotateBy).
+//
+// The TrigTable class provides the following public methods:
+//   - sin - (static) the sine of an angle given in degrees
+//   - cos - (static) the cosine of an angle given in degrees
+//
+////////////////////////////////////////////////////////
+public class TrigTable {
+
+    // the number of whole degrees in the table
+    private static final int DEGREES = 360;
+
+    // the sine and cosine of each whole degree
+    private static final double[] SINES = new double[DEGREES];
+    private static final double[] COSINES = new double[DEGREES];
+
+    static {
+        for (int d = 0; d < DEGREES; d++) {
+            double rad = d/180.0*Math.PI;
+            SINES[d] = Math.sin(rad);
+            COSINES[d] = Math.cos(rad);
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // TrigTable - constructor; not used, since all methods are static
+    ////////////////////////////////////////////////////////
+    private TrigTable() {
+    }
+
+    ////////////////////////////////////////////////////////
+    // sin - gives the sine of an angle
+    //
+    // calling sequence:
+    //   aDouble = TrigTable.sin(degrees);
+    //
+    // parameters:
+    //   degrees - the angle, in degrees
+    //
+    // return-value:
+    //   the same value as Math.sin(degrees/180.0*Math.PI)
+    //
+    // side-effects:
+    //   none
+    //
+    // bugs/anomalies:
+    //   Only whole angles from 0 to 359 are in the table.  Others (including
+    //   -90 and 360) are computed, since reducing them to that range could
+    //   change the last bit of the result.  The sine of -0.0 is given as
+    //   0.0 rather than -0.0, which makes no difference to a rotated point.
+    //
+    ////////////////////////////////////////////////////////
+    public static double sin(double degrees) {
+        int d = (int)degrees;
+        if (d == degrees && d >= 0 && d < DEGREES) {
+            return SINES[d];
+        }
+        return Math.sin(degrees/180.0*Math.PI);
+    }
+
+    ////////////////////////////////////////////////////////
+    // cos - gives the cosine of an angle
+    //
+    // calling sequence:
+    //   aDouble = TrigTable.cos(degrees);
+    //
+    // parameters:
+    //   degrees - the angle, in degrees
+    //
+    // return-value:
+    //   the same value as Math.cos(degrees/180.0*Math.PI)
+    //
+    // side-effects:
+    //   none
+    //
+    // bugs/anomalies:
+    //   see 'sin'
+    //
+    ////////////////////////////////////////////////////////
+    public static double cos(double degrees) {
+        int d = (int)degrees;
+        if (d == degrees && d >= 0 && d < DEGREES) {
+            return COSINES[d];
+        }
+        return Math.cos(degrees/180.0*Math.PI);
+    }
+}